@@ -45,7 +45,8 @@ import org.pdfclown.util.ConvertUtils;
   @version 0.2.0, 05/22/15
 */
 public final class Buffer
-  implements IBuffer
+  implements IBuffer,
+    IConcurrentInputStream
 {
   // <class>
   // <static>
@@ -158,6 +159,18 @@ public final class Buffer
     this();
     append(data);
   }
+
+  /**
+    Creates a duplicate of the specified buffer.
+  */
+  private Buffer(
+    Buffer buffer
+    )
+  {
+    this.data = buffer.data;
+    this.length = buffer.length;
+    this.byteOrder = buffer.byteOrder;
+  }
   // </constructors>
 
   // <interface>
@@ -576,6 +589,31 @@ public final class Buffer
   // </IInputStream>
   // </IBuffer>
 
+  // <IConcurrentInputStream>
+  /**
+    {@inheritDoc}
+    <p>NOTE: The data are shared as long as neither buffer is modified.</p>
+  */
+  @Override
+  public Buffer duplicate(
+    )
+  {return new Buffer(this);}
+
+  @Override
+  public void read(
+    long position,
+    byte[] data,
+    int offset,
+    int length
+    ) throws EOFException
+  {
+    if(position < 0 || position + length > this.length)
+      throw new EOFException();
+
+    System.arraycopy(this.data, (int)position, data, offset, length);
+  }
+  // </IConcurrentInputStream>
+
   // <IOutputStream>
   @Override
   public void write(
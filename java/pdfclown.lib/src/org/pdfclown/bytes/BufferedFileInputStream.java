@@ -0,0 +1,497 @@
+/*
+  Copyright 2015 Stefano Chizzolini. http://www.pdfclown.org
+
+  Contributors:
+    * Stefano Chizzolini (original code developer, http://www.stefanochizzolini.it)
+
+  This file should be part of the source code distribution of "PDF Clown library"
+  (the Program): see the accompanying README files for more info.
+
+  This Program is free software; you can redistribute it and/or modify it under the terms
+  of the GNU Lesser General Public License as published by the Free Software Foundation;
+  either version 3 of the License, or (at your option) any later version.
+
+  This Program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY,
+  either expressed or implied; without even the implied warranty of MERCHANTABILITY or
+  FITNESS FOR A PARTICULAR PURPOSE. See the License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this
+  Program (see README files); if not, go to the GNU website (http://www.gnu.org/licenses/).
+
+  Redistribution and use, with or without modification, are permitted provided that such
+  redistributions retain the above copyright notice, license and disclaimer, along with
+  this list of conditions.
+*/
+
+package org.pdfclown.bytes;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import org.pdfclown.tokens.Encoding;
+import org.pdfclown.util.ConvertUtils;
+
+/**
+  Block-cached file stream.
+  <p>The file is read through a cache of fixed-size blocks with least-recently-used eviction, so
+  that sequential parsing and short backward moves (such as token rollbacks) are served from
+  memory instead of issuing a native read call per byte like {@link FileInputStream}.</p>
+  <p>It is an alternative to {@link MappedFileInputStream} for hosts which restrict memory
+  mapping.</p>
+
+  @author Stefano Chizzolini (http://www.stefanochizzolini.it)
+  @since 0.2.0
+  @version 0.2.0, 06/15/15
+*/
+public final class BufferedFileInputStream
+  implements IConcurrentInputStream,
+    IFileInputStream
+{
+  // <class>
+  // <static>
+  // <fields>
+  /**
+    Default block size (64 KB).
+  */
+  public static final int DefaultBlockSize = 1 << 16;
+  /**
+    Default maximum number of cached blocks.
+  */
+  public static final int DefaultCacheCapacity = 16;
+  // </fields>
+  // </static>
+
+  // <dynamic>
+  // <fields>
+  private RandomAccessFile file;
+  private final long length;
+  /**
+    Whether the file is owned by this stream (that is, it isn't a duplicate).
+  */
+  private final boolean owner;
+  /**
+    Pointer position within the file.
+  */
+  private long position;
+
+  private final int blockSize;
+  private final int cacheCapacity;
+  /**
+    Cached blocks (in least-recently-used order), keyed by block index.
+  */
+  private final LinkedHashMap<Long,byte[]> blocks;
+  /**
+    Block containing the pointer position.
+  */
+  private byte[] block;
+  private int blockLength;
+  private long blockStart = -1;
+
+  private long hitCount;
+  private long missCount;
+
+  private ByteOrder byteOrder = ByteOrder.BIG_ENDIAN;
+  // </fields>
+
+  // <constructors>
+  public BufferedFileInputStream(
+    RandomAccessFile file
+    )
+  {this(file, DefaultBlockSize, DefaultCacheCapacity);}
+
+  /**
+    @param file Source file.
+    @param blockSize Size of the cached blocks.
+    @param cacheCapacity Maximum number of cached blocks.
+  */
+  public BufferedFileInputStream(
+    RandomAccessFile file,
+    int blockSize,
+    int cacheCapacity
+    )
+  {
+    if(blockSize < 1)
+      throw new IllegalArgumentException("blockSize MUST be positive.");
+    if(cacheCapacity < 1)
+      throw new IllegalArgumentException("cacheCapacity MUST be positive.");
+
+    this.file = file;
+    this.owner = true;
+    this.blockSize = blockSize;
+    this.cacheCapacity = cacheCapacity;
+    this.blocks = new LinkedHashMap<Long,byte[]>(cacheCapacity * 2, .75f, true);
+    try
+    {length = file.length();}
+    catch(IOException e)
+    {throw new RuntimeException(e);}
+  }
+
+  /**
+    Creates a duplicate of the specified stream.
+    <p>The duplicate has its own block cache, as blocks are recycled on eviction.</p>
+  */
+  private BufferedFileInputStream(
+    BufferedFileInputStream stream
+    )
+  {
+    this.file = stream.file;
+    this.length = stream.length;
+    this.owner = false;
+    this.byteOrder = stream.byteOrder;
+    this.blockSize = stream.blockSize;
+    this.cacheCapacity = stream.cacheCapacity;
+    this.blocks = new LinkedHashMap<Long,byte[]>(cacheCapacity * 2, .75f, true);
+  }
+  // </constructors>
+
+  // <interface>
+  // <public>
+  /**
+    Gets the size of the cached blocks.
+  */
+  public int getBlockSize(
+    )
+  {return blockSize;}
+
+  /**
+    Gets the maximum number of cached blocks.
+  */
+  public int getCacheCapacity(
+    )
+  {return cacheCapacity;}
+
+  /**
+    Gets the number of block lookups served by the cache.
+  */
+  public long getHitCount(
+    )
+  {return hitCount;}
+
+  /**
+    Gets the number of block lookups which required to read the file.
+  */
+  public long getMissCount(
+    )
+  {return missCount;}
+
+  // <IConcurrentInputStream>
+  @Override
+  public BufferedFileInputStream duplicate(
+    )
+  {return new BufferedFileInputStream(this);}
+
+  @Override
+  public void read(
+    long position,
+    byte[] data,
+    int offset,
+    int length
+    ) throws EOFException
+  {
+    if(position < 0 || position + length > this.length)
+      throw new EOFException();
+
+    readFile(position, data, offset, length);
+  }
+  // </IConcurrentInputStream>
+
+  // <IFileInputStream>
+  @Override
+  public FileChannel getChannel(
+    )
+  {return file.getChannel();}
+
+  // <IInputStream>
+  @Override
+  public ByteOrder getByteOrder(
+    )
+  {return byteOrder;}
+
+  @Override
+  public long getPosition(
+    )
+  {return position;}
+
+  @Override
+  public int hashCode(
+    )
+  {return file.hashCode();}
+
+  @Override
+  public void read(
+    byte[] data
+    ) throws EOFException
+  {read(data, 0, data.length);}
+
+  @Override
+  public void read(
+    byte[] data,
+    int offset,
+    int length
+    ) throws EOFException
+  {
+    if(position + length > this.length)
+      throw new EOFException();
+
+    if(length >= blockSize)
+    {
+      /*
+        NOTE: Large reads (typically stream bodies) bypass the cache, not to evict the blocks
+        surrounding the parsing position.
+      */
+      readFile(position, data, offset, length);
+      position += length;
+      return;
+    }
+
+    while(length > 0)
+    {
+      int blockOffset = ensureBlock();
+      int chunkLength = Math.min(length, blockLength - blockOffset);
+      System.arraycopy(block, blockOffset, data, offset, chunkLength);
+
+      position += chunkLength;
+      offset += chunkLength;
+      length -= chunkLength;
+    }
+  }
+
+  @Override
+  public byte readByte(
+    ) throws EOFException
+  {return (byte)readUnsignedByte();}
+
+  @Override
+  public int readInt(
+    ) throws EOFException
+  {return readInt(4);}
+
+  @Override
+  public int readInt(
+    int length
+    ) throws EOFException
+  {
+    byte[] data = new byte[length];
+    read(data);
+    return ConvertUtils.byteArrayToNumber(data, 0, length, byteOrder);
+  }
+
+  @Override
+  public String readLine(
+    ) throws EOFException
+  {
+    if(position >= length)
+      throw new EOFException();
+
+    StringBuilder buffer = new StringBuilder();
+    while(position < length)
+    {
+      int c = readUnsignedByte();
+      if(c == '\n')
+        break;
+      else if(c == '\r')
+      {
+        if(position < length && readUnsignedByte() != '\n')
+        {position--;}
+        break;
+      }
+
+      buffer.append((char)c);
+    }
+    return buffer.toString();
+  }
+
+  @Override
+  public short readShort(
+    ) throws EOFException
+  {return (short)readInt(2);}
+
+  @Override
+  public String readString(
+    int length
+    ) throws EOFException
+  {
+    byte[] data = new byte[length];
+    read(data);
+    return Encoding.Pdf.decode(data, 0, length);
+  }
+
+  @Override
+  public int readUnsignedByte(
+    ) throws EOFException
+  {
+    long blockOffset = position - blockStart;
+    if(blockOffset < 0 || blockOffset >= blockLength) // Outside the current block.
+    {
+      if(position >= length)
+        throw new EOFException();
+
+      blockOffset = ensureBlock();
+    }
+    position++;
+    return block[(int)blockOffset] & 0xFF;
+  }
+
+  @Override
+  public int readUnsignedShort(
+    ) throws EOFException
+  {return readInt(2) & 0xFFFF;}
+
+  @Override
+  public void seek(
+    long position
+    )
+  {
+    if(position < 0)
+    {position = 0;}
+    else if(position > length)
+    {position = length;}
+
+    this.position = position;
+  }
+
+  @Override
+  public void setByteOrder(
+    ByteOrder value
+    )
+  {byteOrder = value;}
+
+  @Override
+  public void skip(
+    long offset
+    )
+  {seek(position + offset);}
+
+  // <IDataWrapper>
+  @Override
+  public byte[] toByteArray(
+    )
+  {
+    byte[] data = new byte[(int)length];
+    try
+    {readFile(0, data, 0, data.length);}
+    catch(EOFException e)
+    {throw new RuntimeException(e);}
+    return data;
+  }
+  // </IDataWrapper>
+
+  // <IStream>
+  @Override
+  public long getLength(
+    )
+  {return length;}
+
+  // <Closeable>
+  @Override
+  public void close(
+    ) throws IOException
+  {
+    if(file != null)
+    {
+      blocks.clear();
+      block = null;
+      blockLength = 0;
+
+      if(owner)
+      {file.close();}
+      file = null;
+    }
+  }
+  // </Closeable>
+  // </IStream>
+  // </IInputStream>
+  // </IFileInputStream>
+  // </public>
+
+  // <protected>
+  @Override
+  protected void finalize(
+    ) throws Throwable
+  {
+    try
+    {close();}
+    finally
+    {super.finalize();}
+  }
+  // </protected>
+
+  // <private>
+  /**
+    Ensures that the current block contains the pointer position.
+
+    @return Pointer offset within the current block.
+  */
+  private int ensureBlock(
+    )
+  {
+    long blockOffset = position - blockStart;
+    if(blockOffset >= 0 && blockOffset < blockLength) // Inside the current block.
+      return (int)blockOffset;
+
+    long blockIndex = position / blockSize;
+    byte[] block = blocks.get(blockIndex);
+    if(block != null)
+    {hitCount++;}
+    else
+    {
+      missCount++;
+
+      // Evict the least-recently-used block, recycling its memory!
+      if(blocks.size() >= cacheCapacity)
+      {
+        Iterator<byte[]> blockIterator = blocks.values().iterator();
+        block = blockIterator.next();
+        blockIterator.remove();
+      }
+      else
+      {block = new byte[blockSize];}
+
+      // Load the block!
+      try
+      {readFile(blockIndex * blockSize, block, 0, (int)Math.min(blockSize, length - blockIndex * blockSize));}
+      catch(EOFException e)
+      {throw new RuntimeException(e);}
+      blocks.put(blockIndex, block);
+    }
+    this.block = block;
+    blockStart = blockIndex * blockSize;
+    blockLength = (int)Math.min(blockSize, length - blockStart);
+    return (int)(position - blockStart);
+  }
+
+  /**
+    Reads the specified data from the file.
+    <p>As the file pointer is shared with the duplicates of this stream, it is moved atomically with
+    the read.</p>
+  */
+  private void readFile(
+    long position,
+    byte[] data,
+    int offset,
+    int length
+    ) throws EOFException
+  {
+    try
+    {
+      synchronized(file)
+      {
+        file.seek(position);
+        file.readFully(data, offset, length);
+      }
+    }
+    catch(EOFException e)
+    {throw e;}
+    catch(IOException e)
+    {throw new RuntimeException(e);}
+  }
+  // </private>
+  // </interface>
+  // </dynamic>
+  // </class>
+}
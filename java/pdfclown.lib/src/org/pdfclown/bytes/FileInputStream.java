@@ -29,6 +29,7 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 
 import org.pdfclown.tokens.Encoding;
 import org.pdfclown.util.ConvertUtils;
@@ -40,7 +41,7 @@ import org.pdfclown.util.ConvertUtils;
   @version 0.1.2.1, 05/22/15
 */
 public final class FileInputStream
-  implements IInputStream
+  implements IFileInputStream
 {
   // <class>
   // <dynamic>
@@ -57,6 +58,12 @@ public final class FileInputStream
 
   // <interface>
   // <public>
+  // <IFileInputStream>
+  @Override
+  public FileChannel getChannel(
+    )
+  {return file.getChannel();}
+
   // <IInputStream>
   @Override
   public ByteOrder getByteOrder(
@@ -281,6 +288,7 @@ public final class FileInputStream
   // </Closeable>
   // </IStream>
   // </IInputStream>
+  // </IFileInputStream>
   // </public>
 
   // <protected>
@@ -0,0 +1,68 @@
+/*
+  Copyright 2015 Stefano Chizzolini. http://www.pdfclown.org
+
+  Contributors:
+    * Stefano Chizzolini (original code developer, http://www.stefanochizzolini.it)
+
+  This file should be part of the source code distribution of "PDF Clown library"
+  (the Program): see the accompanying README files for more info.
+
+  This Program is free software; you can redistribute it and/or modify it under the terms
+  of the GNU Lesser General Public License as published by the Free Software Foundation;
+  either version 3 of the License, or (at your option) any later version.
+
+  This Program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY,
+  either expressed or implied; without even the implied warranty of MERCHANTABILITY or
+  FITNESS FOR A PARTICULAR PURPOSE. See the License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this
+  Program (see README files); if not, go to the GNU website (http://www.gnu.org/licenses/).
+
+  Redistribution and use, with or without modification, are permitted provided that such
+  redistributions retain the above copyright notice, license and disclaimer, along with
+  this list of conditions.
+*/
+
+package org.pdfclown.bytes;
+
+import java.io.EOFException;
+
+/**
+  Input stream supporting concurrent reads.
+  <p>Like any other stream, its pointer isn't thread-safe: concurrent readers work on {@link
+  #duplicate() duplicates}, each with its own pointer over the same data, or through {@link
+  #read(long, byte[], int, int) positional reads}, which leave the pointer untouched.</p>
+
+  @author Stefano Chizzolini (http://www.stefanochizzolini.it)
+  @since 0.2.0
+  @version 0.2.0, 06/15/15
+*/
+public interface IConcurrentInputStream
+  extends IInputStream
+{
+  /**
+    Creates a new stream sharing the data of this one.
+    <p>The new stream has its own pointer (initially at the start) and byte order (initially the same
+    as this stream's), so that it can be read concurrently to this stream and to its other duplicates. Closing it doesn't affect this
+    stream; conversely, it MUST NOT be used after this stream is closed.</p>
+  */
+  IConcurrentInputStream duplicate(
+    );
+
+  /**
+    Reads a sequence of bytes at the specified position.
+    <p>Differently from {@link #read(byte[], int, int)}, the stream pointer is left untouched, and
+    the operation can be executed concurrently to any other read.</p>
+
+    @param position Position of the data to read.
+    @param data Target byte array.
+    @param offset Location in the byte array at which storing begins.
+    @param length Number of bytes to read.
+  */
+  void read(
+    long position,
+    byte[] data,
+    int offset,
+    int length
+    ) throws EOFException;
+}
@@ -0,0 +1,171 @@
+/*
+  Copyright 2015 Stefano Chizzolini. http://www.pdfclown.org
+
+  Contributors:
+    * Stefano Chizzolini (original code developer, http://www.stefanochizzolini.it)
+
+  This file should be part of the source code distribution of "PDF Clown library"
+  (the Program): see the accompanying README files for more info.
+
+  This Program is free software; you can redistribute it and/or modify it under the terms
+  of the GNU Lesser General Public License as published by the Free Software Foundation;
+  either version 3 of the License, or (at your option) any later version.
+
+  This Program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY,
+  either expressed or implied; without even the implied warranty of MERCHANTABILITY or
+  FITNESS FOR A PARTICULAR PURPOSE. See the License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this
+  Program (see README files); if not, go to the GNU website (http://www.gnu.org/licenses/).
+
+  Redistribution and use, with or without modification, are permitted provided that such
+  redistributions retain the above copyright notice, license and disclaimer, along with
+  this list of conditions.
+*/
+
+package org.pdfclown.bytes;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+  Standard input stream reading a region of an {@link IInputStream}.
+  <p>Reads are positional: the source stream position is restored after each of them, so that the
+  source can be shared with other readers (such as the file parser) in the meantime.</p>
+
+  @author Stefano Chizzolini (http://www.stefanochizzolini.it)
+  @since 0.2.0
+  @version 0.2.0, 06/15/15
+*/
+public final class InputStreamAdapter
+  extends InputStream
+{
+  // <class>
+  // <dynamic>
+  // <fields>
+  private final long end;
+  private long mark;
+  private long position;
+  private IInputStream source;
+  // </fields>
+
+  // <constructors>
+  /**
+    @param source Stream containing the data to read.
+    @param offset Position of the data within the source stream.
+    @param length Number of bytes of the data.
+  */
+  public InputStreamAdapter(
+    IInputStream source,
+    long offset,
+    long length
+    )
+  {
+    this.source = source;
+    this.mark = this.position = offset;
+    this.end = offset + length;
+  }
+  // </constructors>
+
+  // <interface>
+  // <public>
+  @Override
+  public int available(
+    ) throws IOException
+  {return (int)Math.min(end - position, Integer.MAX_VALUE);}
+
+  @Override
+  public void close(
+    ) throws IOException
+  {source = null;}
+
+  @Override
+  public synchronized void mark(
+    int readLimit
+    )
+  {mark = position;}
+
+  @Override
+  public boolean markSupported(
+    )
+  {return true;}
+
+  @Override
+  public int read(
+    ) throws IOException
+  {
+    if(position >= end)
+      return -1;
+
+    IInputStream source = getSource();
+    long sourcePosition = source.getPosition();
+    try
+    {
+      source.seek(position);
+      int value = source.readUnsignedByte();
+      position++;
+      return value;
+    }
+    finally
+    {source.seek(sourcePosition);}
+  }
+
+  @Override
+  public int read(
+    byte[] data,
+    int offset,
+    int length
+    ) throws IOException
+  {
+    if(length == 0)
+      return 0;
+    else if(position >= end)
+      return -1;
+
+    length = (int)Math.min(length, end - position);
+    IInputStream source = getSource();
+    long sourcePosition = source.getPosition();
+    try
+    {
+      source.seek(position);
+      source.read(data, offset, length);
+      position += length;
+      return length;
+    }
+    finally
+    {source.seek(sourcePosition);}
+  }
+
+  @Override
+  public synchronized void reset(
+    ) throws IOException
+  {position = mark;}
+
+  @Override
+  public long skip(
+    long length
+    ) throws IOException
+  {
+    if(length <= 0)
+      return 0;
+
+    length = Math.min(length, end - position);
+    position += length;
+    return length;
+  }
+  // </public>
+
+  // <private>
+  private IInputStream getSource(
+    ) throws IOException
+  {
+    if(source == null)
+      throw new IOException("Stream closed.");
+
+    return source;
+  }
+  // </private>
+  // </interface>
+  // </dynamic>
+  // </class>
+}
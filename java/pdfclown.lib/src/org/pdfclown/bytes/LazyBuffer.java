@@ -0,0 +1,575 @@
+/*
+  Copyright 2015 Stefano Chizzolini. http://www.pdfclown.org
+
+  Contributors:
+    * Stefano Chizzolini (original code developer, http://www.stefanochizzolini.it)
+
+  This file should be part of the source code distribution of "PDF Clown library"
+  (the Program): see the accompanying README files for more info.
+
+  This Program is free software; you can redistribute it and/or modify it under the terms
+  of the GNU Lesser General Public License as published by the Free Software Foundation;
+  either version 3 of the License, or (at your option) any later version.
+
+  This Program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY,
+  either expressed or implied; without even the implied warranty of MERCHANTABILITY or
+  FITNESS FOR A PARTICULAR PURPOSE. See the License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this
+  Program (see README files); if not, go to the GNU website (http://www.gnu.org/licenses/).
+
+  Redistribution and use, with or without modification, are permitted provided that such
+  redistributions retain the above copyright notice, license and disclaimer, along with
+  this list of conditions.
+*/
+
+package org.pdfclown.bytes;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.pdfclown.bytes.filters.Filter;
+import org.pdfclown.objects.PdfDictionary;
+
+/**
+  Byte buffer whose data are lazily loaded from a source stream.
+  <p>It records the location of its data within the source stream, deferring their copy into
+  memory until they are actually accessed: this way, parsing a stream object doesn't cost its
+  body unless it is used.</p>
+
+  @author Stefano Chizzolini (http://www.stefanochizzolini.it)
+  @since 0.2.0
+  @version 0.2.0, 06/15/15
+*/
+public final class LazyBuffer
+  implements IBuffer,
+    IConcurrentInputStream
+{
+  // <class>
+  // <dynamic>
+  // <fields>
+  /**
+    Loaded data (<code>null</code> until the first access).
+  */
+  private volatile Buffer buffer;
+  private final long length;
+  private final long offset;
+  private IInputStream source;
+
+  private ByteOrder byteOrder = ByteOrder.BIG_ENDIAN;
+  private boolean dirty;
+  private List<IListener> listeners;
+  // </fields>
+
+  // <constructors>
+  /**
+    @param source Stream containing the buffer data.
+    @param offset Position of the buffer data within the source stream.
+    @param length Number of bytes of the buffer data.
+  */
+  public LazyBuffer(
+    IInputStream source,
+    long offset,
+    long length
+    )
+  {
+    this.source = source;
+    this.offset = offset;
+    this.length = length;
+  }
+  // </constructors>
+
+  // <interface>
+  // <public>
+  /**
+    Gets a standard stream reading the data.
+    <p>Unless they have already been loaded, the data are read straight from the source stream,
+    without being loaded into memory.</p>
+  */
+  public java.io.InputStream getInputStream(
+    )
+  {
+    Buffer buffer = this.buffer;
+    if(buffer == null)
+    {
+      IInputStream source = this.source;
+      if(source != null)
+        /*
+          NOTE: Concurrent sources are read through a duplicate, not to interfere with their other
+          readers.
+        */
+        return new InputStreamAdapter(
+          source instanceof IConcurrentInputStream ? ((IConcurrentInputStream)source).duplicate() : source,
+          offset,
+          length
+          );
+
+      buffer = getBuffer(); // NOTE: Loaded in the meantime.
+    }
+    return new InputStreamAdapter(buffer, 0, buffer.getLength());
+  }
+
+  /**
+    Gets whether the data have been loaded from the source stream.
+  */
+  public boolean isLoaded(
+    )
+  {return buffer != null;}
+
+  /**
+    Loads the data from the source stream, unless already loaded.
+  */
+  public void load(
+    )
+  {getBuffer();}
+
+  // <IBuffer>
+  @Override
+  public void addListener(
+    IListener listener
+    )
+  {
+    if(listeners == null)
+    {listeners = new ArrayList<IListener>();}
+
+    listeners.add(listener);
+  }
+
+  @Override
+  public IBuffer append(
+    byte data
+    )
+  {getBuffer().append(data); return this;}
+
+  @Override
+  public IBuffer append(
+    byte[] data
+    )
+  {getBuffer().append(data); return this;}
+
+  @Override
+  public IBuffer append(
+    byte[] data,
+    int offset,
+    int length
+    )
+  {getBuffer().append(data, offset, length); return this;}
+
+  @Override
+  public IBuffer append(
+    String data
+    )
+  {getBuffer().append(data); return this;}
+
+  @Override
+  public IBuffer append(
+    IInputStream data
+    )
+  {getBuffer().append(data); return this;}
+
+  @Override
+  public void clear(
+    )
+  {getBuffer().clear();}
+
+  @Override
+  public IBuffer clone(
+    )
+  {return getBuffer().clone();}
+
+  @Override
+  public void decode(
+    Filter filter,
+    PdfDictionary parameters
+    )
+  {getBuffer().decode(filter, parameters);}
+
+  @Override
+  public void delete(
+    int index,
+    int length
+    )
+  {getBuffer().delete(index, length);}
+
+  @Override
+  public byte[] encode(
+    Filter filter,
+    PdfDictionary parameters
+    )
+  {return getBuffer().encode(filter, parameters);}
+
+  @Override
+  public int getByte(
+    int index
+    )
+  {return getBuffer().getByte(index);}
+
+  @Override
+  public byte[] getByteArray(
+    int index,
+    int length
+    )
+  {return getBuffer().getByteArray(index, length);}
+
+  @Override
+  public String getString(
+    int index,
+    int length
+    )
+  {return getBuffer().getString(index, length);}
+
+  @Override
+  public int getCapacity(
+    )
+  {return buffer != null ? buffer.getCapacity() : (int)length;}
+
+  @Override
+  public void insert(
+    int index,
+    byte[] data
+    )
+  {getBuffer().insert(index, data);}
+
+  @Override
+  public void insert(
+    int index,
+    byte[] data,
+    int offset,
+    int length
+    )
+  {getBuffer().insert(index, data, offset, length);}
+
+  @Override
+  public void insert(
+    int index,
+    String data
+    )
+  {getBuffer().insert(index, data);}
+
+  @Override
+  public void insert(
+    int index,
+    IInputStream data
+    )
+  {getBuffer().insert(index, data);}
+
+  @Override
+  public boolean isDirty(
+    )
+  {return buffer != null ? buffer.isDirty() : dirty;}
+
+  @Override
+  public boolean removeListener(
+    IListener listener
+    )
+  {
+    if(listeners == null)
+      return false;
+
+    return listeners.remove(listener);
+  }
+
+  @Override
+  public void replace(
+    int index,
+    byte[] data
+    )
+  {getBuffer().replace(index, data);}
+
+  @Override
+  public void replace(
+    int index,
+    byte[] data,
+    int offset,
+    int length
+    )
+  {getBuffer().replace(index, data, offset, length);}
+
+  @Override
+  public void replace(
+    int index,
+    String data
+    )
+  {getBuffer().replace(index, data);}
+
+  @Override
+  public void replace(
+    int index,
+    IInputStream data
+    )
+  {getBuffer().replace(index, data);}
+
+  @Override
+  public void setDirty(
+    boolean value
+    )
+  {
+    if(buffer != null)
+    {buffer.setDirty(value);}
+    else
+    {dirty = value;}
+  }
+
+  @Override
+  public void setLength(
+    int value
+    )
+  {getBuffer().setLength(value);}
+
+  @Override
+  public void writeTo(
+    IOutputStream stream
+    )
+  {getBuffer().writeTo(stream);}
+
+  // <IInputStream>
+  @Override
+  public ByteOrder getByteOrder(
+    )
+  {return buffer != null ? buffer.getByteOrder() : byteOrder;}
+
+  @Override
+  public long getPosition(
+    )
+  {return buffer != null ? buffer.getPosition() : 0;}
+
+  /* int hashCode() uses inherited implementation. */
+
+  @Override
+  public void read(
+    byte[] data
+    ) throws EOFException
+  {getBuffer().read(data);}
+
+  @Override
+  public void read(
+    byte[] data,
+    int offset,
+    int length
+    ) throws EOFException
+  {getBuffer().read(data, offset, length);}
+
+  @Override
+  public byte readByte(
+    ) throws EOFException
+  {return getBuffer().readByte();}
+
+  @Override
+  public int readInt(
+    ) throws EOFException
+  {return getBuffer().readInt();}
+
+  @Override
+  public int readInt(
+    int length
+    ) throws EOFException
+  {return getBuffer().readInt(length);}
+
+  @Override
+  public String readLine(
+    ) throws EOFException
+  {return getBuffer().readLine();}
+
+  @Override
+  public short readShort(
+    ) throws EOFException
+  {return getBuffer().readShort();}
+
+  @Override
+  public String readString(
+    int length
+    ) throws EOFException
+  {return getBuffer().readString(length);}
+
+  @Override
+  public int readUnsignedByte(
+    ) throws EOFException
+  {return getBuffer().readUnsignedByte();}
+
+  @Override
+  public int readUnsignedShort(
+    ) throws EOFException
+  {return getBuffer().readUnsignedShort();}
+
+  @Override
+  public void seek(
+    long position
+    ) throws EOFException
+  {getBuffer().seek(position);}
+
+  @Override
+  public void setByteOrder(
+    ByteOrder value
+    )
+  {
+    if(buffer != null)
+    {buffer.setByteOrder(value);}
+    else
+    {byteOrder = value;}
+  }
+
+  @Override
+  public void skip(
+    long offset
+    ) throws EOFException
+  {getBuffer().skip(offset);}
+
+  // <IDataWrapper>
+  @Override
+  public byte[] toByteArray(
+    )
+  {return getBuffer().toByteArray();}
+  // </IDataWrapper>
+
+  // <IStream>
+  @Override
+  public long getLength(
+    )
+  {return buffer != null ? buffer.getLength() : length;}
+
+  // <Closeable>
+  @Override
+  public void close(
+    ) throws IOException
+  {}
+  // </Closeable>
+  // </IStream>
+  // </IInputStream>
+  // </IBuffer>
+
+  // <IConcurrentInputStream>
+  /**
+    {@inheritDoc}
+    <p>NOTE: The data are loaded into memory.</p>
+  */
+  @Override
+  public Buffer duplicate(
+    )
+  {return getBuffer().duplicate();}
+
+  @Override
+  public void read(
+    long position,
+    byte[] data,
+    int offset,
+    int length
+    ) throws EOFException
+  {
+    if(buffer == null)
+    {
+      IInputStream source = this.source;
+      if(source instanceof IConcurrentInputStream)
+      {
+        if(position < 0 || position + length > this.length)
+          throw new EOFException();
+
+        ((IConcurrentInputStream)source).read(this.offset + position, data, offset, length);
+        return;
+      }
+    }
+    getBuffer().read(position, data, offset, length);
+  }
+  // </IConcurrentInputStream>
+
+  // <IOutputStream>
+  @Override
+  public void write(
+    byte[] data
+    )
+  {getBuffer().write(data);}
+
+  @Override
+  public void write(
+    byte[] data,
+    int offset,
+    int length
+    )
+  {getBuffer().write(data, offset, length);}
+
+  @Override
+  public void write(
+    String data
+    )
+  {getBuffer().write(data);}
+
+  @Override
+  public void write(
+    IInputStream data
+    )
+  {getBuffer().write(data);}
+  // </IOutputStream>
+  // </public>
+
+  // <private>
+  /**
+    Gets the loaded data, copying them from the source stream on first access.
+  */
+  private Buffer getBuffer(
+    )
+  {
+    Buffer buffer = this.buffer;
+    if(buffer == null)
+    {
+      /*
+        NOTE: Loading is synchronized, as this buffer may be shared by concurrent readers (see
+        FileConfiguration#isConcurrentReadEnabled()).
+      */
+      synchronized(this)
+      {
+        if((buffer = this.buffer) == null)
+        {
+          byte[] data = new byte[(int)length];
+          try
+          {
+            if(source instanceof IConcurrentInputStream)
+            {((IConcurrentInputStream)source).read(offset, data, 0, data.length);}
+            else
+            {
+              /*
+                NOTE: The source stream is typically shared with a parser, so its position has to
+                be preserved.
+              */
+              long oldPosition = source.getPosition();
+              source.seek(offset);
+              source.read(data);
+              source.seek(oldPosition);
+            }
+          }
+          catch(EOFException e)
+          {throw new RuntimeException("Buffer data unavailable in source stream.", e);}
+
+          buffer = new Buffer(data, byteOrder);
+          buffer.setDirty(dirty);
+          buffer.addListener(new IListener()
+          {
+            @Override
+            public void onChange(
+              IBuffer buffer
+              )
+            {notifyChange();}
+          });
+          this.buffer = buffer;
+          source = null;
+        }
+      }
+    }
+    return buffer;
+  }
+
+  private void notifyChange(
+    )
+  {
+    if(listeners == null)
+      return;
+
+    for(IListener listener : listeners)
+    {listener.onChange(this);}
+  }
+  // </private>
+  // </interface>
+  // </dynamic>
+  // </class>
+}
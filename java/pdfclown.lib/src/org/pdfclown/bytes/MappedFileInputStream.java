@@ -0,0 +1,394 @@
+/*
+  Copyright 2015 Stefano Chizzolini. http://www.pdfclown.org
+
+  Contributors:
+    * Stefano Chizzolini (original code developer, http://www.stefanochizzolini.it)
+
+  This file should be part of the source code distribution of "PDF Clown library"
+  (the Program): see the accompanying README files for more info.
+
+  This Program is free software; you can redistribute it and/or modify it under the terms
+  of the GNU Lesser General Public License as published by the Free Software Foundation;
+  either version 3 of the License, or (at your option) any later version.
+
+  This Program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY,
+  either expressed or implied; without even the implied warranty of MERCHANTABILITY or
+  FITNESS FOR A PARTICULAR PURPOSE. See the License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this
+  Program (see README files); if not, go to the GNU website (http://www.gnu.org/licenses/).
+
+  Redistribution and use, with or without modification, are permitted provided that such
+  redistributions retain the above copyright notice, license and disclaimer, along with
+  this list of conditions.
+*/
+
+package org.pdfclown.bytes;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+import org.pdfclown.tokens.Encoding;
+import org.pdfclown.util.ConvertUtils;
+
+/**
+  Memory-mapped file stream.
+  <p>The file is mapped into memory as a sequence of fixed-size segments, so that files larger
+  than 2 GB can be addressed too; reads are served directly from the mapped memory, avoiding the
+  native call per byte of {@link FileInputStream}.</p>
+  <p>NOTE: Mapped segments are released by the garbage collector after the stream is closed; on
+  platforms which lock mapped files (e.g. Windows), this may delay the replacement of the source
+  file on {@link org.pdfclown.files.File#close() file closing} &mdash; in such case, disable
+  memory mapping through {@link org.pdfclown.files.FileConfiguration#setMemoryMapped(boolean)
+  FileConfiguration}.</p>
+
+  @author Stefano Chizzolini (http://www.stefanochizzolini.it)
+  @since 0.2.0
+  @version 0.2.0, 06/15/15
+*/
+public final class MappedFileInputStream
+  implements IConcurrentInputStream,
+    IFileInputStream
+{
+  // <class>
+  // <static>
+  // <fields>
+  /**
+    Default segment size exponent (1 GB segments).
+  */
+  private static final int DefaultSegmentSizeExponent = 30;
+  // </fields>
+  // </static>
+
+  // <dynamic>
+  // <fields>
+  private RandomAccessFile file;
+  private final long length;
+  /**
+    Whether the file is owned by this stream (that is, it isn't a duplicate).
+  */
+  private final boolean owner;
+  /**
+    Pointer position within the file.
+  */
+  private long position;
+  /**
+    Mapped file segments.
+  */
+  private ByteBuffer[] segments;
+  private final long segmentMask;
+  private final int segmentSizeExponent;
+
+  private ByteOrder byteOrder = ByteOrder.BIG_ENDIAN;
+  // </fields>
+
+  // <constructors>
+  /**
+    @param file Source file.
+    @throws IOException In case the file cannot be mapped.
+  */
+  public MappedFileInputStream(
+    RandomAccessFile file
+    ) throws IOException
+  {this(file, DefaultSegmentSizeExponent);}
+
+  /**
+    @param file Source file.
+    @param segmentSizeExponent Base-2 exponent of the segment size (for example, 30 for 1 GB
+      segments); it MUST be less than 31.
+    @throws IOException In case the file cannot be mapped.
+  */
+  public MappedFileInputStream(
+    RandomAccessFile file,
+    int segmentSizeExponent
+    ) throws IOException
+  {
+    if(segmentSizeExponent < 1 || segmentSizeExponent > 30)
+      throw new IllegalArgumentException("segmentSizeExponent MUST be between 1 and 30.");
+
+    this.file = file;
+    this.owner = true;
+    this.segmentSizeExponent = segmentSizeExponent;
+    this.segmentMask = (1L << segmentSizeExponent) - 1;
+
+    FileChannel channel = file.getChannel();
+    length = channel.size();
+    {
+      long segmentSize = 1L << segmentSizeExponent;
+      segments = new ByteBuffer[(int)((length + segmentSize - 1) >>> segmentSizeExponent)];
+      for(
+        int index = 0;
+        index < segments.length;
+        index++
+        )
+      {
+        long segmentStart = (long)index << segmentSizeExponent;
+        segments[index] = channel.map(
+          FileChannel.MapMode.READ_ONLY,
+          segmentStart,
+          Math.min(segmentSize, length - segmentStart)
+          );
+      }
+    }
+  }
+
+  /**
+    Creates a duplicate of the specified stream.
+  */
+  private MappedFileInputStream(
+    MappedFileInputStream stream
+    )
+  {
+    this.file = stream.file;
+    this.length = stream.length;
+    this.owner = false;
+    this.byteOrder = stream.byteOrder;
+    this.segments = stream.segments;
+    this.segmentMask = stream.segmentMask;
+    this.segmentSizeExponent = stream.segmentSizeExponent;
+  }
+  // </constructors>
+
+  // <interface>
+  // <public>
+  // <IConcurrentInputStream>
+  @Override
+  public MappedFileInputStream duplicate(
+    )
+  {return new MappedFileInputStream(this);}
+
+  @Override
+  public void read(
+    long position,
+    byte[] data,
+    int offset,
+    int length
+    ) throws EOFException
+  {
+    if(position < 0 || position + length > this.length)
+      throw new EOFException();
+
+    while(length > 0)
+    {
+      // Copy the chunk available within the current segment!
+      /*
+        NOTE: Segments are read through their duplicates, as their own position is shared.
+      */
+      ByteBuffer segment = segments[(int)(position >>> segmentSizeExponent)].duplicate();
+      segment.position((int)(position & segmentMask));
+      int chunkLength = Math.min(length, segment.remaining());
+      segment.get(data, offset, chunkLength);
+
+      position += chunkLength;
+      offset += chunkLength;
+      length -= chunkLength;
+    }
+  }
+  // </IConcurrentInputStream>
+
+  // <IFileInputStream>
+  @Override
+  public FileChannel getChannel(
+    )
+  {return file.getChannel();}
+
+  // <IInputStream>
+  @Override
+  public ByteOrder getByteOrder(
+    )
+  {return byteOrder;}
+
+  @Override
+  public long getPosition(
+    )
+  {return position;}
+
+  @Override
+  public int hashCode(
+    )
+  {return file.hashCode();}
+
+  @Override
+  public void read(
+    byte[] data
+    ) throws EOFException
+  {read(data, 0, data.length);}
+
+  @Override
+  public void read(
+    byte[] data,
+    int offset,
+    int length
+    ) throws EOFException
+  {
+    read(position, data, offset, length);
+    position += length;
+  }
+
+  @Override
+  public byte readByte(
+    ) throws EOFException
+  {
+    if(position >= length)
+      throw new EOFException();
+
+    byte value = segments[(int)(position >>> segmentSizeExponent)].get((int)(position & segmentMask));
+    position++;
+    return value;
+  }
+
+  @Override
+  public int readInt(
+    ) throws EOFException
+  {return readInt(4);}
+
+  @Override
+  public int readInt(
+    int length
+    ) throws EOFException
+  {
+    byte[] data = new byte[length];
+    read(data);
+    return ConvertUtils.byteArrayToNumber(data, 0, length, byteOrder);
+  }
+
+  @Override
+  public String readLine(
+    ) throws EOFException
+  {
+    if(position >= length)
+      throw new EOFException();
+
+    StringBuilder buffer = new StringBuilder();
+    while(position < length)
+    {
+      int c = readUnsignedByte();
+      if(c == '\n')
+        break;
+      else if(c == '\r')
+      {
+        if(position < length && readUnsignedByte() != '\n')
+        {position--;}
+        break;
+      }
+
+      buffer.append((char)c);
+    }
+    return buffer.toString();
+  }
+
+  @Override
+  public short readShort(
+    ) throws EOFException
+  {return (short)readInt(2);}
+
+  @Override
+  public String readString(
+    int length
+    ) throws EOFException
+  {
+    byte[] data = new byte[length];
+    read(data);
+    return Encoding.Pdf.decode(data, 0, length);
+  }
+
+  @Override
+  public int readUnsignedByte(
+    ) throws EOFException
+  {
+    if(position >= length)
+      throw new EOFException();
+
+    int value = segments[(int)(position >>> segmentSizeExponent)].get((int)(position & segmentMask)) & 0xFF;
+    position++;
+    return value;
+  }
+
+  @Override
+  public int readUnsignedShort(
+    ) throws EOFException
+  {return readInt(2) & 0xFFFF;}
+
+  @Override
+  public void seek(
+    long position
+    )
+  {
+    if(position < 0)
+    {position = 0;}
+    else if(position > length)
+    {position = length;}
+
+    this.position = position;
+  }
+
+  @Override
+  public void setByteOrder(
+    ByteOrder value
+    )
+  {byteOrder = value;}
+
+  @Override
+  public void skip(
+    long offset
+    )
+  {seek(position + offset);}
+
+  // <IDataWrapper>
+  @Override
+  public byte[] toByteArray(
+    )
+  {
+    byte[] data = new byte[(int)length];
+    try
+    {read(0, data, 0, data.length);}
+    catch(EOFException e)
+    {throw new RuntimeException(e);}
+    return data;
+  }
+  // </IDataWrapper>
+
+  // <IStream>
+  @Override
+  public long getLength(
+    )
+  {return length;}
+
+  // <Closeable>
+  @Override
+  public void close(
+    ) throws IOException
+  {
+    if(file != null)
+    {
+      segments = null;
+      if(owner)
+      {file.close();}
+      file = null;
+    }
+  }
+  // </Closeable>
+  // </IStream>
+  // </IInputStream>
+  // </IFileInputStream>
+  // </public>
+
+  // <protected>
+  @Override
+  protected void finalize(
+    ) throws Throwable
+  {
+    try
+    {close();}
+    finally
+    {super.finalize();}
+  }
+  // </protected>
+  // </interface>
+  // </dynamic>
+  // </class>
+}
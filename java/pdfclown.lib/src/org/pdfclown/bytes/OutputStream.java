@@ -28,6 +28,7 @@ package org.pdfclown.bytes;
 import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 
 import org.pdfclown.tokens.Encoding;
 
@@ -41,11 +42,24 @@ public final class OutputStream
   implements IOutputStream
 {
   // <class>
+  // <static>
+  // <fields>
+  /**
+    Size of the chunks used to copy input streams.
+  */
+  private static final int CopyChunkSize = 1 << 16;
+  // </fields>
+  // </static>
+
   // <dynamic>
   // <fields>
   private java.io.OutputStream stream;
+  /**
+    Channel of the file the stream writes to (<code>null</code> if undefined).
+  */
+  private FileChannel channel;
 
-  private int length;
+  private long length;
   // </fields>
 
   // <constructors>
@@ -53,6 +67,26 @@ public final class OutputStream
     java.io.OutputStream stream
     )
   {this.stream = stream;}
+
+  /**
+    @param stream Target stream.
+    @param channel Channel of the file <code>stream</code> writes to; it enables direct
+      file-to-file transfers when {@link #write(IInputStream) writing} {@link IFileInputStream file
+      input streams}. The {@link #getLength() length} of this stream starts from the current
+      channel position (for example, the size of a file opened for appending).
+  */
+  public OutputStream(
+    java.io.OutputStream stream,
+    FileChannel channel
+    )
+  {
+    this(stream);
+    this.channel = channel;
+    try
+    {length = channel.position();}
+    catch(IOException e)
+    {throw new RuntimeException(e);}
+  }
   // </constructors>
 
   // <interface>
@@ -116,16 +150,44 @@ public final class OutputStream
   {
     try
     {
-      // TODO:IMPL bufferize!!!
-      byte[] baseData = new byte[(int)data.getLength()];
-      // Force the source pointer to the BOF (as we must copy the entire content)!
-      data.seek(0);
-      // Read source content!
-      data.read(baseData);
-      // Write target content!
-      write(baseData);
+      long dataLength = data.getLength();
+      if(channel != null
+        && data instanceof IFileInputStream)
+      {
+        /*
+          NOTE: File-to-file transfer avoids copying the source content through the heap; buffered
+          data have to be flushed beforehand to preserve the write order.
+        */
+        stream.flush();
+        FileChannel dataChannel = ((IFileInputStream)data).getChannel();
+        long position = 0;
+        while(position < dataLength)
+        {
+          long transferredLength = dataChannel.transferTo(position, dataLength - position, channel);
+          if(transferredLength <= 0)
+            throw new EOFException("Source stream truncated at " + position + " (expected length: " + dataLength + ").");
+
+          position += transferredLength;
+        }
+        length += dataLength;
+      }
+      else
+      {
+        // Force the source pointer to the BOF (as we must copy the entire content)!
+        data.seek(0);
+        // Copy source content chunk by chunk!
+        byte[] chunk = new byte[(int)Math.min(CopyChunkSize, dataLength)];
+        long remainingLength = dataLength;
+        while(remainingLength > 0)
+        {
+          int chunkLength = (int)Math.min(chunk.length, remainingLength);
+          data.read(chunk, 0, chunkLength);
+          write(chunk, 0, chunkLength);
+          remainingLength -= chunkLength;
+        }
+      }
     }
-    catch(EOFException e)
+    catch(IOException e)
     {throw new RuntimeException(e);}
   }
 
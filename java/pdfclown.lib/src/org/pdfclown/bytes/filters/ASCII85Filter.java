@@ -28,6 +28,8 @@
 package org.pdfclown.bytes.filters;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 
 import org.pdfclown.PDF;
@@ -48,6 +50,166 @@ public final class ASCII85Filter
 {
   // <class>
   // <types>
+  /**
+    Incremental ASCII85 decoder.
+  */
+  private static final class DecodingStream
+    extends InputStream
+  {
+    private final byte[] decodedBlock = new byte[4];
+    private int decodedBlockIndex;
+    private int decodedBlockLength;
+    private final InputStream encodedData;
+    /**
+      Encoded character read ahead (-1 if none).
+    */
+    private int nextChar = -1;
+    /**
+      Whether the end of the encoded data has been reached.
+    */
+    private boolean ended;
+    /**
+      Whether the encoded data beginning has been checked for the prefix mark.
+    */
+    private boolean started;
+
+    DecodingStream(
+      InputStream encodedData
+      )
+    {this.encodedData = encodedData;}
+
+    @Override
+    public int available(
+      ) throws IOException
+    {return decodedBlockLength - decodedBlockIndex;}
+
+    @Override
+    public void close(
+      ) throws IOException
+    {encodedData.close();}
+
+    @Override
+    public int read(
+      ) throws IOException
+    {
+      if(decodedBlockIndex >= decodedBlockLength && !fill())
+        return -1;
+
+      return decodedBlock[decodedBlockIndex++] & 0xFF;
+    }
+
+    @Override
+    public int read(
+      byte[] data,
+      int offset,
+      int length
+      ) throws IOException
+    {
+      if(length == 0)
+        return 0;
+
+      int index = offset;
+      for(int endIndex = offset + length; index < endIndex;)
+      {
+        if(decodedBlockIndex >= decodedBlockLength && !fill())
+          break;
+
+        int count = Math.min(endIndex - index, decodedBlockLength - decodedBlockIndex);
+        System.arraycopy(decodedBlock, decodedBlockIndex, data, index, count);
+        decodedBlockIndex += count;
+        index += count;
+      }
+      return index > offset ? index - offset : -1;
+    }
+
+    /**
+      Decodes the next block.
+
+      @return Whether decoded data are available.
+    */
+    private boolean fill(
+      ) throws IOException
+    {
+      decodedBlockIndex = decodedBlockLength = 0;
+      if(ended)
+        return false;
+
+      long tuple = 0;
+      int count = 0;
+      while(count < 5)
+      {
+        int dataChar;
+        if(nextChar >= 0)
+        {
+          dataChar = nextChar;
+          nextChar = -1;
+        }
+        else
+        {dataChar = encodedData.read();}
+        switch(dataChar)
+        {
+          case -1:
+            ended = true;
+            break;
+          case '\n':
+          case '\r':
+          case '\t':
+          case '\0':
+          case '\f':
+          case '\b':
+          case ' ':
+            continue;
+          case '<':
+            if(!started)
+            {
+              started = true;
+              if((nextChar = encodedData.read()) == PrefixMark.charAt(1)) // Prefix mark.
+              {
+                nextChar = -1;
+                continue;
+              }
+            }
+            tuple += (dataChar - AsciiOffset) * (long)Pow85[count++];
+            continue;
+          case '~': // Suffix mark.
+            ended = true;
+            break;
+          case 'z':
+            if(count != 0)
+              throw new RuntimeException("The character 'z' is invalid inside an ASCII85 block.");
+
+            started = true;
+            decodedBlock[0] = decodedBlock[1] = decodedBlock[2] = decodedBlock[3] = 0;
+            decodedBlockLength = 4;
+            return true;
+          default:
+            if(dataChar < '!' || dataChar > 'u')
+              throw new RuntimeException("Bad character '" + (char)dataChar + "' found. ASCII85 only allows characters '!' to 'u'.");
+
+            started = true;
+            tuple += (dataChar - AsciiOffset) * (long)Pow85[count++];
+            continue;
+        }
+        break;
+      }
+
+      if(count == 5)
+      {decodedBlockLength = 4;}
+      else if(count == 0)
+        return false;
+      else if(count == 1)
+        throw new RuntimeException("The last block of ASCII85 data cannot be a single byte.");
+      else // Bytes left over at the end.
+      {
+        decodedBlockLength = --count;
+        tuple += Pow85[count];
+      }
+      for(int index = 0; index < decodedBlockLength; index++)
+      {decodedBlock[index] = (byte)(tuple >> 24 - (index * 8));}
+      return true;
+    }
+  }
+
   private static final class Params
   {
     int linePos;
@@ -259,6 +421,13 @@ public final class ASCII85Filter
     return stream.toByteArray();
   }
 
+  @Override
+  public InputStream decode(
+    InputStream data,
+    PdfDictionary parameters
+    )
+  {return new DecodingStream(data);}
+
   @Override
   public byte[] encode(
     byte[] data,
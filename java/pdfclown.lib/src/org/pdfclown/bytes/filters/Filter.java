@@ -25,6 +25,12 @@
 
 package org.pdfclown.bytes.filters;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
 import org.pdfclown.PDF;
 import org.pdfclown.VersionEnum;
 import org.pdfclown.objects.PdfDictionary;
@@ -97,6 +103,22 @@ public abstract class Filter
     return null;
   }
   // </public>
+
+  // <protected>
+  /**
+    Reads the whole remaining data of the given stream.
+  */
+  protected static byte[] readAll(
+    InputStream stream
+    ) throws IOException
+  {
+    ByteArrayOutputStream data = new ByteArrayOutputStream(Math.max(stream.available(), 32));
+    byte[] chunk = new byte[8192]; int chunkLength;
+    while((chunkLength = stream.read(chunk, 0, chunk.length)) != -1)
+    {data.write(chunk, 0, chunkLength);}
+    return data.toByteArray();
+  }
+  // </protected>
   // </interface>
   // </static>
 
@@ -116,12 +138,102 @@ public abstract class Filter
     PdfDictionary parameters
     );
 
+  /**
+    Gets a stream decoding the given encoded data as they are read.
+    <p>Filters can be lazily chained this way, without materializing their intermediate results.
+    The default implementation falls back to {@link #decode(byte[], int, int, PdfDictionary)}
+    on the first read, buffering the whole data; filters able to decode incrementally override
+    it.</p>
+
+    @param data Encoded data.
+    @param parameters Decoding parameters.
+    @return Decoded data (closing it closes the encoded data too).
+  */
+  public InputStream decode(
+    final InputStream data,
+    final PdfDictionary parameters
+    )
+  {
+    return new InputStream()
+    {
+      private InputStream decodedData;
+
+      @Override
+      public int available(
+        ) throws IOException
+      {return decodedData != null ? decodedData.available() : 0;}
+
+      @Override
+      public void close(
+        ) throws IOException
+      {data.close();}
+
+      @Override
+      public int read(
+        ) throws IOException
+      {return getDecodedData().read();}
+
+      @Override
+      public int read(
+        byte[] buffer,
+        int offset,
+        int length
+        ) throws IOException
+      {return getDecodedData().read(buffer, offset, length);}
+
+      private InputStream getDecodedData(
+        ) throws IOException
+      {
+        if(decodedData == null)
+        {
+          byte[] encodedData = readAll(data);
+          decodedData = new ByteArrayInputStream(decode(encodedData, 0, encodedData.length, parameters));
+        }
+        return decodedData;
+      }
+    };
+  }
+
   public abstract byte[] encode(
     byte[] data,
     int offset,
     int length,
     PdfDictionary parameters
     );
+
+  /**
+    Gets a stream encoding the data written into it.
+    <p>The default implementation buffers the whole data, falling back to
+    {@link #encode(byte[], int, int, PdfDictionary)} on closing; filters able to encode
+    incrementally override it.</p>
+
+    @param data Target of the encoded data.
+    @param parameters Encoding parameters.
+    @return Decoded data sink (closing it flushes the encoded data and closes their target).
+  */
+  public OutputStream encode(
+    final OutputStream data,
+    final PdfDictionary parameters
+    )
+  {
+    return new ByteArrayOutputStream()
+    {
+      private boolean closed;
+
+      @Override
+      public void close(
+        ) throws IOException
+      {
+        if(closed)
+          return;
+
+        closed = true;
+        byte[] decodedData = toByteArray();
+        data.write(encode(decodedData, 0, decodedData.length, parameters));
+        data.close();
+      }
+    };
+  }
   // </public>
   // </interface>
   // </dynamic>
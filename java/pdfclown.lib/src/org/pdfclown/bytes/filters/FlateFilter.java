@@ -29,17 +29,23 @@
 
 package org.pdfclown.bytes.filters;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Deque;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
 import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
 
 import org.pdfclown.PDF;
 import org.pdfclown.VersionEnum;
+import org.pdfclown.objects.PdfDataObject;
 import org.pdfclown.objects.PdfDictionary;
 import org.pdfclown.objects.PdfInteger;
 import org.pdfclown.objects.PdfName;
@@ -57,11 +63,149 @@ public final class FlateFilter
   extends Filter
 {
   // <class>
+  // <static>
+  // <fields>
+  /**
+    Maximum number of idle zlib instances retained for reuse.
+  */
+  private static final int PoolCapacity = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+  /**
+    Assumed compression ratio, used to presize the output buffers.
+  */
+  private static final int EstimatedRatio = 4;
+  /**
+    Maximum size of the output buffers presized by estimate (larger outputs are grown on demand).
+  */
+  private static final int MaxEstimatedOutputSize = 1 << 20;
+  /**
+    Maximum size of the output buffers presized by hint (larger outputs are grown on demand).
+  */
+  private static final int MaxHintedOutputSize = 1 << 26;
+  /**
+    Maximum compression ratio achievable by deflate [RFC:1951].
+  */
+  private static final int MaxRatio = 1032;
+  private static final int MaxOutputSize = Integer.MAX_VALUE - 8;
+  private static final int MinOutputSize = 256;
+
+  private static final Deque<Deflater> deflaterPool = new ArrayDeque<Deflater>();
+  private static final Deque<Inflater> inflaterPool = new ArrayDeque<Inflater>();
+  // </fields>
+
+  // <interface>
+  // <public>
+  /**
+    Gets the filter applying the specified compression settings on encoding.
+
+    @param level Compression level (see {@link Deflater#setLevel(int)}).
+    @param strategy Compression strategy (see {@link Deflater#setStrategy(int)}).
+  */
+  public static FlateFilter get(
+    int level,
+    int strategy
+    )
+  {
+    return level == Deflater.DEFAULT_COMPRESSION && strategy == Deflater.DEFAULT_STRATEGY
+      ? (FlateFilter)get(PdfName.FlateDecode)
+      : new FlateFilter(level, strategy);
+  }
+  // </public>
+
+  // <private>
+  /**
+    Gets the initial size of the buffer to decode the specified data length into.
+    <p>The decoded length hint ({@link PdfName#DL}) is honored whenever it's plausible; otherwise, the
+    size is estimated. As hints may be bogus, the presized buffer is capped anyway.</p>
+  */
+  private static int getOutputSize(
+    int length,
+    PdfDictionary parameters
+    )
+  {
+    PdfDataObject decodedLengthObject = (parameters != null ? parameters.resolve(PdfName.DL) : null);
+    if(decodedLengthObject instanceof PdfInteger)
+    {
+      long decodedLength = ((PdfInteger)decodedLengthObject).getValue();
+      if(decodedLength > 0
+        && decodedLength <= (long)length * MaxRatio)
+        return (int)Math.min(decodedLength, MaxHintedOutputSize);
+    }
+    return (int)Math.max(MinOutputSize, Math.min((long)length * EstimatedRatio, MaxEstimatedOutputSize));
+  }
+
+  private static Deflater acquireDeflater(
+    )
+  {
+    Deflater deflater;
+    synchronized(deflaterPool)
+    {deflater = deflaterPool.poll();}
+    return deflater != null ? deflater : new Deflater();
+  }
+
+  private static Inflater acquireInflater(
+    )
+  {
+    Inflater inflater;
+    synchronized(inflaterPool)
+    {inflater = inflaterPool.poll();}
+    return inflater != null ? inflater : new Inflater();
+  }
+
+  private static void release(
+    Deflater deflater
+    )
+  {
+    deflater.reset();
+    synchronized(deflaterPool)
+    {
+      if(deflaterPool.size() < PoolCapacity)
+      {
+        deflaterPool.push(deflater);
+        return;
+      }
+    }
+    deflater.end();
+  }
+
+  private static void release(
+    Inflater inflater
+    )
+  {
+    inflater.reset();
+    synchronized(inflaterPool)
+    {
+      if(inflaterPool.size() < PoolCapacity)
+      {
+        inflaterPool.push(inflater);
+        return;
+      }
+    }
+    inflater.end();
+  }
+  // </private>
+  // </interface>
+  // </static>
+
   // <dynamic>
+  // <fields>
+  private final int level;
+  private final int strategy;
+  // </fields>
+
   // <constructors>
   FlateFilter(
     )
-  {}
+  {this(Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY);}
+
+  private FlateFilter(
+    int level,
+    int strategy
+    )
+  {
+    this.level = level;
+    this.strategy = strategy;
+  }
   // </constructors>
 
   // <interface>
@@ -74,17 +218,72 @@ public final class FlateFilter
     PdfDictionary parameters
     )
   {
+    Inflater inflater = acquireInflater();
     try
     {
-      InflaterInputStream inputFilter = new InflaterInputStream(
-        new ByteArrayInputStream(data, offset, length)
-        );
-      ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-      transform(inputFilter, outputStream);
-      return decodePredictor(outputStream.toByteArray(), parameters);
+      inflater.setInput(data, offset, length);
+      byte[] decodedData = new byte[getOutputSize(length, parameters)];
+      int decodedLength = 0;
+      while(!inflater.finished())
+      {
+        if(decodedLength == decodedData.length)
+        {
+          if(decodedLength == MaxOutputSize)
+            throw new IOException("Decoded data exceed the maximum buffer size (" + MaxOutputSize + " bytes).");
+
+          decodedData = Arrays.copyOf(decodedData, (int)Math.min((long)decodedLength * 2, MaxOutputSize));
+        }
+
+        int count = inflater.inflate(decodedData, decodedLength, decodedData.length - decodedLength);
+        if(count == 0 && !inflater.finished())
+        {
+          if(inflater.needsInput())
+            throw new EOFException("Unexpected end of ZLIB input stream");
+          else if(inflater.needsDictionary())
+            throw new ZipException("Preset dictionary unsupported");
+        }
+        decodedLength += count;
+      }
+      Predictor predictor = Predictor.get(parameters);
+      if(predictor != null)
+        return predictor.decode(decodedData, decodedLength);
+      else
+        return decodedLength == decodedData.length ? decodedData : Arrays.copyOf(decodedData, decodedLength);
     }
+    catch(DataFormatException e)
+    {throw new RuntimeException(new ZipException(e.getMessage()));}
     catch(IOException e)
     {throw new RuntimeException(e);}
+    finally
+    {release(inflater);}
+  }
+
+  @Override
+  public InputStream decode(
+    InputStream data,
+    PdfDictionary parameters
+    )
+  {
+    final InputStream inputFilter = new InflaterInputStream(data, acquireInflater(), 8192)
+    {
+      @Override
+      public void close(
+        ) throws IOException
+      {
+        if(inf == null)
+          return;
+
+        try
+        {super.close();}
+        finally
+        {
+          release(inf);
+          inf = null;
+        }
+      }
+    };
+    Predictor predictor = Predictor.get(parameters);
+    return predictor != null ? predictor.decode(inputFilter) : inputFilter;
   }
 
   @Override
@@ -95,141 +294,67 @@ public final class FlateFilter
     PdfDictionary parameters
     )
   {
+    Predictor predictor = Predictor.get(parameters);
+    if(predictor != null)
+    {
+      data = predictor.encode(data, offset, length);
+      offset = 0;
+      length = data.length;
+    }
+
+    Deflater deflater = acquireDeflater();
     try
     {
-      ByteArrayInputStream inputStream = new ByteArrayInputStream(data, offset, length);
-      ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-      DeflaterOutputStream outputFilter = new DeflaterOutputStream(outputStream);
-      transform(inputStream, outputFilter);
-      return outputStream.toByteArray();
+      deflater.setLevel(level);
+      deflater.setStrategy(strategy);
+      deflater.setInput(data, offset, length);
+      deflater.finish();
+      byte[] encodedData = new byte[Math.max(length / EstimatedRatio, MinOutputSize)];
+      int encodedLength = 0;
+      while(!deflater.finished())
+      {
+        if(encodedLength == encodedData.length)
+        {encodedData = Arrays.copyOf(encodedData, encodedData.length * 2);}
+
+        encodedLength += deflater.deflate(encodedData, encodedLength, encodedData.length - encodedLength);
+      }
+      return encodedLength == encodedData.length ? encodedData : Arrays.copyOf(encodedData, encodedLength);
     }
-    catch(IOException e)
-    {throw new RuntimeException(e);}
+    finally
+    {release(deflater);}
   }
-  // </public>
 
-  // <private>
-  private byte[] decodePredictor(
-    byte[] data,
+  @Override
+  public OutputStream encode(
+    OutputStream data,
     PdfDictionary parameters
-    ) throws IOException
+    )
   {
-    if(parameters == null)
-      return data;
-
-    int predictor = (parameters.containsKey(PdfName.Predictor) ? ((PdfInteger)parameters.get(PdfName.Predictor)).getRawValue() : 1);
-    if(predictor == 1) // No predictor was applied during data encoding.
-      return data;
-
-    int sampleComponentBitsCount = (parameters.containsKey(PdfName.BitsPerComponent) ? ((PdfInteger)parameters.get(PdfName.BitsPerComponent)).getRawValue() : 8);
-    int sampleComponentsCount = (parameters.containsKey(PdfName.Colors) ? ((PdfInteger)parameters.get(PdfName.Colors)).getRawValue() : 1);
-    int rowSamplesCount = (parameters.containsKey(PdfName.Columns) ? ((PdfInteger)parameters.get(PdfName.Columns)).getRawValue() : 1);
-
-    InputStream input = new ByteArrayInputStream(data);
-    ByteArrayOutputStream output = new ByteArrayOutputStream();
-    switch (predictor)
+    Deflater deflater = acquireDeflater();
+    deflater.setLevel(level);
+    deflater.setStrategy(strategy);
+    OutputStream outputFilter = new DeflaterOutputStream(data, deflater, 8192)
     {
-      case 2: // TIFF Predictor 2 (component-based).
+      @Override
+      public void close(
+        ) throws IOException
       {
-        int[] sampleComponentPredictions = new int[sampleComponentsCount];
-        int sampleComponentDelta = 0;
-        int sampleComponentIndex = 0;
-        while((sampleComponentDelta = input.read()) != -1)
-        {
-          int sampleComponent = sampleComponentDelta + sampleComponentPredictions[sampleComponentIndex];
-          output.write(sampleComponent);
-
-          sampleComponentPredictions[sampleComponentIndex] = sampleComponent;
+        if(def == null)
+          return;
 
-          sampleComponentIndex = ++sampleComponentIndex % sampleComponentsCount;
-        }
-        break;
-      }
-      default: // PNG Predictors [RFC 2083] (byte-based).
-      {
-        int sampleBytesCount = (int)Math.ceil(sampleComponentBitsCount * sampleComponentsCount / 8); // Number of bytes per pixel (bpp).
-        int rowSampleBytesCount = (int)Math.ceil(sampleComponentBitsCount * sampleComponentsCount * rowSamplesCount / 8) + sampleBytesCount; // Number of bytes per row (comprising a leading upper-left sample (see Paeth method)).
-        int[] previousRowBytePredictions = new int[rowSampleBytesCount];
-        int[] currentRowBytePredictions = new int[rowSampleBytesCount];
-        int[] leftBytePredictions = new int[sampleBytesCount];
-        int predictionMethod;
-        while((predictionMethod = input.read()) != -1)
+        try
+        {super.close();}
+        finally
         {
-          System.arraycopy(currentRowBytePredictions, 0, previousRowBytePredictions, 0, currentRowBytePredictions.length);
-          Arrays.fill(leftBytePredictions, 0, leftBytePredictions.length, 0);
-          for(
-            int rowSampleByteIndex = sampleBytesCount; // Starts after the leading upper-left sample (see Paeth method).
-            rowSampleByteIndex < rowSampleBytesCount;
-            rowSampleByteIndex++
-            )
-          {
-            int byteDelta = input.read();
-
-            int sampleByteIndex = rowSampleByteIndex % sampleBytesCount;
-
-            int sampleByte;
-            switch(predictionMethod)
-            {
-              case 0: // None (no prediction).
-                sampleByte = byteDelta;
-                break;
-              case 1: // Sub (predicts the same as the sample to the left).
-                sampleByte = byteDelta + leftBytePredictions[sampleByteIndex];
-                break;
-              case 2: // Up (predicts the same as the sample above).
-                sampleByte = byteDelta + previousRowBytePredictions[rowSampleByteIndex];
-                break;
-              case 3: // Average (predicts the average of the sample to the left and the sample above).
-                sampleByte = byteDelta + (int)Math.floor(((leftBytePredictions[sampleByteIndex] + previousRowBytePredictions[rowSampleByteIndex])) / 2);
-                break;
-              case 4: // Paeth (a nonlinear function of the sample above, the sample to the left, and the sample to the upper left).
-              {
-                int paethPrediction;
-                {
-                  int leftBytePrediction = leftBytePredictions[sampleByteIndex];
-                  int topBytePrediction = previousRowBytePredictions[rowSampleByteIndex];
-                  int topLeftBytePrediction = previousRowBytePredictions[rowSampleByteIndex - sampleBytesCount];
-                  int initialPrediction = leftBytePrediction + topBytePrediction - topLeftBytePrediction;
-                  int leftPrediction = Math.abs(initialPrediction - leftBytePrediction);
-                  int topPrediction = Math.abs(initialPrediction - topBytePrediction);
-                  int topLeftPrediction = Math.abs(initialPrediction - topLeftBytePrediction);
-                  if(leftPrediction <= topPrediction
-                    && leftPrediction <= topLeftPrediction)
-                  {paethPrediction = leftBytePrediction;}
-                  else if(topPrediction <= topLeftPrediction)
-                  {paethPrediction = topBytePrediction;}
-                  else
-                  {paethPrediction = topLeftBytePrediction;}
-                }
-                sampleByte = byteDelta + paethPrediction;
-                break;
-              }
-              default:
-                throw new UnsupportedOperationException("Prediction method " + predictionMethod + " unknown.");
-            }
-            output.write(sampleByte);
-
-            leftBytePredictions[sampleByteIndex] = currentRowBytePredictions[rowSampleByteIndex] = sampleByte & 0xFF;
-          }
+          release(def);
+          def = null;
         }
-        break;
       }
-    }
-    return output.toByteArray();
+    };
+    Predictor predictor = Predictor.get(parameters);
+    return predictor != null ? predictor.encode(outputFilter) : outputFilter;
   }
-
-  private void transform(
-    InputStream input,
-    OutputStream output
-    ) throws IOException
-  {
-    byte[] buffer = new byte[8192]; int bufferLength;
-    while((bufferLength = input.read(buffer, 0, buffer.length)) != -1)
-    {output.write(buffer, 0, bufferLength);}
-
-    input.close(); output.close();
-  }
-  // </private>
+  // </public>
   // </interface>
   // </dynamic>
   // </class>
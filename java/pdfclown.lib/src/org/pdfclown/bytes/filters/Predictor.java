@@ -0,0 +1,784 @@
+/*
+  Copyright 2015 Stefano Chizzolini. http://www.pdfclown.org
+
+  Contributors:
+    * Stefano Chizzolini (original code developer, http://www.stefanochizzolini.it)
+
+  This file should be part of the source code distribution of "PDF Clown library"
+  (the Program): see the accompanying README files for more info.
+
+  This Program is free software; you can redistribute it and/or modify it under the terms
+  of the GNU Lesser General Public License as published by the Free Software Foundation;
+  either version 3 of the License, or (at your option) any later version.
+
+  This Program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY,
+  either expressed or implied; without even the implied warranty of MERCHANTABILITY or
+  FITNESS FOR A PARTICULAR PURPOSE. See the License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this
+  Program (see README files); if not, go to the GNU website (http://www.gnu.org/licenses/).
+
+  Redistribution and use, with or without modification, are permitted provided that such
+  redistributions retain the above copyright notice, license and disclaimer, along with
+  this list of conditions.
+*/
+
+package org.pdfclown.bytes.filters;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.pdfclown.objects.PdfDictionary;
+import org.pdfclown.objects.PdfInteger;
+import org.pdfclown.objects.PdfName;
+
+/**
+  PNG/TIFF predictor [PDF:1.6:3.3.3].
+  <p>Data are processed a whole row at a time: array-based decoding works in place, whilst
+  stream-based coding keeps just the current and previous rows.</p>
+
+  @author Stefano Chizzolini (http://www.stefanochizzolini.it)
+  @since 0.2.0
+  @version 0.2.0, 06/15/15
+*/
+final class Predictor
+{
+  // <class>
+  // <classes>
+  /**
+    Incremental predictor decoder.
+  */
+  private final class DecodingStream
+    extends InputStream
+  {
+    private final InputStream encodedData;
+    /**
+      Predicted row.
+    */
+    private final byte[] encodedRow;
+    /**
+      Decoded rows (current and previous ones, alternating).
+    */
+    private final byte[] rows = new byte[rowLength * 2];
+    private int rowCount;
+    private int rowEnd;
+    private int rowIndex;
+
+    DecodingStream(
+      InputStream encodedData
+      )
+    {
+      this.encodedData = encodedData;
+      encodedRow = new byte[png ? rowLength + 1 : rowLength];
+    }
+
+    @Override
+    public int available(
+      ) throws IOException
+    {return rowEnd - rowIndex;}
+
+    @Override
+    public void close(
+      ) throws IOException
+    {encodedData.close();}
+
+    @Override
+    public int read(
+      ) throws IOException
+    {
+      if(rowIndex >= rowEnd && !fill())
+        return -1;
+
+      return rows[rowIndex++] & 0xFF;
+    }
+
+    @Override
+    public int read(
+      byte[] data,
+      int offset,
+      int length
+      ) throws IOException
+    {
+      if(length == 0)
+        return 0;
+
+      int index = offset;
+      for(int endIndex = offset + length; index < endIndex;)
+      {
+        if(rowIndex >= rowEnd && !fill())
+          break;
+
+        int count = Math.min(endIndex - index, rowEnd - rowIndex);
+        System.arraycopy(rows, rowIndex, data, index, count);
+        rowIndex += count;
+        index += count;
+      }
+      return index > offset ? index - offset : -1;
+    }
+
+    /**
+      Decodes the next row.
+
+      @return Whether decoded data are available.
+    */
+    private boolean fill(
+      ) throws IOException
+    {
+      int encodedRowLength = 0;
+      {
+        int count;
+        while(encodedRowLength < encodedRow.length
+          && (count = encodedData.read(encodedRow, encodedRowLength, encodedRow.length - encodedRowLength)) != -1)
+        {encodedRowLength += count;}
+      }
+      if(encodedRowLength == 0)
+        return false;
+
+      int rowOffset = (rowCount & 1) * rowLength;
+      if(png)
+      {
+        decodePngRow(
+          encodedRow[0] & 0xFF,
+          encodedRow,
+          1,
+          rows,
+          rowOffset,
+          rowCount > 0 ? rowLength - rowOffset : -1,
+          encodedRowLength - 1
+          );
+        rowEnd = rowOffset + encodedRowLength - 1;
+      }
+      else
+      {
+        System.arraycopy(encodedRow, 0, rows, rowOffset, encodedRowLength);
+        decodeTiffRow(rows, rowOffset, encodedRowLength);
+        rowEnd = rowOffset + encodedRowLength;
+      }
+      rowIndex = rowOffset;
+      rowCount++;
+      return true;
+    }
+  }
+
+  /**
+    Incremental predictor encoder.
+  */
+  private final class EncodingStream
+    extends OutputStream
+  {
+    private boolean closed;
+    private final OutputStream encodedData;
+    /**
+      Predicted row.
+    */
+    private final byte[] encodedRow;
+    /**
+      Raw rows (current and previous ones, alternating).
+    */
+    private final byte[] rows = new byte[rowLength * 2];
+    private int rowCount;
+    private int rowIndex;
+
+    EncodingStream(
+      OutputStream encodedData
+      )
+    {
+      this.encodedData = encodedData;
+      encodedRow = new byte[png ? rowLength + 1 : rowLength];
+    }
+
+    @Override
+    public void close(
+      ) throws IOException
+    {
+      if(closed)
+        return;
+
+      closed = true;
+      flushRow();
+      encodedData.close();
+    }
+
+    @Override
+    public void flush(
+      ) throws IOException
+    {encodedData.flush();}
+
+    @Override
+    public void write(
+      int data
+      ) throws IOException
+    {
+      rows[(rowCount & 1) * rowLength + rowIndex++] = (byte)data;
+      if(rowIndex == rowLength)
+      {flushRow();}
+    }
+
+    @Override
+    public void write(
+      byte[] data,
+      int offset,
+      int length
+      ) throws IOException
+    {
+      for(int endOffset = offset + length; offset < endOffset;)
+      {
+        int count = Math.min(endOffset - offset, rowLength - rowIndex);
+        System.arraycopy(data, offset, rows, (rowCount & 1) * rowLength + rowIndex, count);
+        offset += count;
+        if((rowIndex += count) == rowLength)
+        {flushRow();}
+      }
+    }
+
+    private void flushRow(
+      ) throws IOException
+    {
+      if(rowIndex == 0)
+        return;
+
+      int rowOffset = (rowCount & 1) * rowLength;
+      if(png)
+      {
+        encodePngRow(
+          rows,
+          rowOffset,
+          rowCount > 0 ? rowLength - rowOffset : -1,
+          rowIndex,
+          encodedRow,
+          0
+          );
+        encodedData.write(encodedRow, 0, rowIndex + 1);
+      }
+      else
+      {
+        System.arraycopy(rows, rowOffset, encodedRow, 0, rowIndex);
+        encodeTiffRow(encodedRow, 0, rowIndex);
+        encodedData.write(encodedRow, 0, rowIndex);
+      }
+      rowIndex = 0;
+      rowCount++;
+    }
+  }
+  // </classes>
+
+  // <static>
+  // <fields>
+  private static final int PngNone = 0;
+  private static final int PngSub = 1;
+  private static final int PngUp = 2;
+  private static final int PngAverage = 3;
+  private static final int PngPaeth = 4;
+
+  private static final int TiffPredictor = 2;
+  private static final int PngPredictorBase = 10;
+  /**
+    PNG predictor whose filter type is chosen row by row.
+  */
+  private static final int PngOptimumPredictor = 15;
+  // </fields>
+
+  // <interface>
+  // <public>
+  /**
+    Gets the predictor described by the specified filter parameters.
+
+    @return <code>null</code>, if no prediction applies.
+  */
+  public static Predictor get(
+    PdfDictionary parameters
+    )
+  {
+    if(parameters == null)
+      return null;
+
+    int predictor = getValue(parameters, PdfName.Predictor, 1);
+    if(predictor == 1) // No prediction.
+      return null;
+
+    return new Predictor(
+      predictor,
+      getValue(parameters, PdfName.BitsPerComponent, 8),
+      getValue(parameters, PdfName.Colors, 1),
+      getValue(parameters, PdfName.Columns, 1)
+      );
+  }
+  // </public>
+
+  // <private>
+  private static int getValue(
+    PdfDictionary parameters,
+    PdfName key,
+    int defaultValue
+    )
+  {
+    PdfInteger value = (PdfInteger)parameters.resolve(key);
+    return value != null ? value.getValue() : defaultValue;
+  }
+
+  private static int paeth(
+    int left,
+    int up,
+    int upLeft
+    )
+  {
+    int initialPrediction = left + up - upLeft;
+    int leftPrediction = Math.abs(initialPrediction - left);
+    int upPrediction = Math.abs(initialPrediction - up);
+    int upLeftPrediction = Math.abs(initialPrediction - upLeft);
+    if(leftPrediction <= upPrediction
+      && leftPrediction <= upLeftPrediction)
+      return left;
+    else if(upPrediction <= upLeftPrediction)
+      return up;
+    else
+      return upLeft;
+  }
+  // </private>
+  // </interface>
+  // </static>
+
+  // <dynamic>
+  // <fields>
+  private final int bitsPerComponent;
+  /**
+    Number of bytes per pixel (bpp).
+  */
+  private final int bytesPerPixel;
+  private final int colors;
+  private final int columns;
+  private final boolean png;
+  private final int predictor;
+  /**
+    Number of data bytes per row (excluding the PNG filter type).
+  */
+  private final int rowLength;
+  // </fields>
+
+  // <constructors>
+  private Predictor(
+    int predictor,
+    int bitsPerComponent,
+    int colors,
+    int columns
+    )
+  {
+    this.predictor = predictor;
+    this.bitsPerComponent = bitsPerComponent;
+    this.colors = colors;
+    this.columns = columns;
+    png = (predictor != TiffPredictor);
+
+    int bitsPerPixel = bitsPerComponent * colors;
+    bytesPerPixel = Math.max(1, (bitsPerPixel + 7) / 8);
+    rowLength = Math.max(1, (bitsPerPixel * columns + 7) / 8);
+  }
+  // </constructors>
+
+  // <interface>
+  // <public>
+  /**
+    Reverts the prediction of the specified data in place.
+
+    @param data Predicted data.
+    @param length Predicted data length.
+    @return Decoded data (either the same array or a trimmed copy of it).
+  */
+  public byte[] decode(
+    byte[] data,
+    int length
+    )
+  {
+    if(png)
+    {
+      int sourceOffset = 0, targetOffset = 0, previousOffset = -1;
+      while(sourceOffset < length)
+      {
+        int rowLength = Math.min(this.rowLength, length - sourceOffset - 1);
+        decodePngRow(data[sourceOffset] & 0xFF, data, sourceOffset + 1, data, targetOffset, previousOffset, rowLength);
+        previousOffset = targetOffset;
+        targetOffset += rowLength;
+        sourceOffset += this.rowLength + 1;
+      }
+      length = targetOffset;
+    }
+    else
+    {
+      for(int offset = 0; offset < length; offset += rowLength)
+      {decodeTiffRow(data, offset, Math.min(rowLength, length - offset));}
+    }
+    return length == data.length ? data : Arrays.copyOf(data, length);
+  }
+
+  /**
+    Gets a stream reverting the prediction of the given data as they are read.
+  */
+  public InputStream decode(
+    InputStream data
+    )
+  {return new DecodingStream(data);}
+
+  /**
+    Applies the prediction to the specified data.
+
+    @return Predicted data.
+  */
+  public byte[] encode(
+    byte[] data,
+    int offset,
+    int length
+    )
+  {
+    byte[] encodedData;
+    if(png)
+    {
+      int rowCount = (length + rowLength - 1) / rowLength;
+      encodedData = new byte[length + rowCount];
+      for(
+        int sourceOffset = offset, targetOffset = 0, endOffset = offset + length;
+        sourceOffset < endOffset;
+        sourceOffset += rowLength, targetOffset += rowLength + 1
+        )
+      {
+        encodePngRow(
+          data,
+          sourceOffset,
+          sourceOffset > offset ? sourceOffset - rowLength : -1,
+          Math.min(rowLength, endOffset - sourceOffset),
+          encodedData,
+          targetOffset
+          );
+      }
+    }
+    else
+    {
+      encodedData = Arrays.copyOfRange(data, offset, offset + length);
+      for(int rowOffset = 0; rowOffset < length; rowOffset += rowLength)
+      {encodeTiffRow(encodedData, rowOffset, Math.min(rowLength, length - rowOffset));}
+    }
+    return encodedData;
+  }
+
+  /**
+    Gets a stream applying the prediction to the data written into it.
+  */
+  public OutputStream encode(
+    OutputStream data
+    )
+  {return new EncodingStream(data);}
+  // </public>
+
+  // <private>
+  /**
+    Reverts the PNG prediction of a row.
+    <p>The target row may overlap the source row, provided that it doesn't follow it (in-place
+    decoding).</p>
+
+    @param type PNG filter type.
+    @param source Predicted row container.
+    @param sourceOffset Predicted row position.
+    @param target Decoded row container (containing also the previous decoded row).
+    @param targetOffset Decoded row position.
+    @param previousOffset Previous decoded row position (<code>-1</code>, if none).
+    @param length Row length.
+  */
+  private void decodePngRow(
+    int type,
+    byte[] source,
+    int sourceOffset,
+    byte[] target,
+    int targetOffset,
+    int previousOffset,
+    int length
+    )
+  {
+    if(length <= 0)
+      return;
+
+    int bytesPerPixel = this.bytesPerPixel;
+    switch(type)
+    {
+      case PngNone:
+        System.arraycopy(source, sourceOffset, target, targetOffset, length);
+        break;
+      case PngSub:
+        System.arraycopy(source, sourceOffset, target, targetOffset, Math.min(bytesPerPixel, length));
+        for(int index = bytesPerPixel; index < length; index++)
+        {target[targetOffset + index] = (byte)(source[sourceOffset + index] + target[targetOffset + index - bytesPerPixel]);}
+        break;
+      case PngUp:
+        if(previousOffset < 0)
+        {System.arraycopy(source, sourceOffset, target, targetOffset, length);}
+        else
+        {
+          for(int index = 0; index < length; index++)
+          {target[targetOffset + index] = (byte)(source[sourceOffset + index] + target[previousOffset + index]);}
+        }
+        break;
+      case PngAverage:
+        for(int index = 0; index < length; index++)
+        {
+          int left = (index >= bytesPerPixel ? target[targetOffset + index - bytesPerPixel] & 0xFF : 0);
+          int up = (previousOffset >= 0 ? target[previousOffset + index] & 0xFF : 0);
+          target[targetOffset + index] = (byte)(source[sourceOffset + index] + ((left + up) >>> 1));
+        }
+        break;
+      case PngPaeth:
+        for(int index = 0; index < length; index++)
+        {
+          int left, upLeft;
+          if(index >= bytesPerPixel)
+          {
+            left = target[targetOffset + index - bytesPerPixel] & 0xFF;
+            upLeft = (previousOffset >= 0 ? target[previousOffset + index - bytesPerPixel] & 0xFF : 0);
+          }
+          else
+          {left = upLeft = 0;}
+          int up = (previousOffset >= 0 ? target[previousOffset + index] & 0xFF : 0);
+          target[targetOffset + index] = (byte)(source[sourceOffset + index] + paeth(left, up, upLeft));
+        }
+        break;
+      default:
+        throw new UnsupportedOperationException("Prediction method " + type + " unknown.");
+    }
+  }
+
+  /**
+    Reverts the TIFF prediction of a row in place.
+  */
+  private void decodeTiffRow(
+    byte[] data,
+    int offset,
+    int length
+    )
+  {
+    switch(bitsPerComponent)
+    {
+      case 8:
+        for(int index = offset + colors, endIndex = offset + length; index < endIndex; index++)
+        {data[index] += data[index - colors];}
+        break;
+      case 16:
+      {
+        int distance = colors * 2;
+        for(int index = offset + distance, endIndex = offset + length - 1; index < endIndex; index += 2)
+        {
+          int value = ((data[index] & 0xFF) << 8 | (data[index + 1] & 0xFF))
+            + ((data[index - distance] & 0xFF) << 8 | (data[index - distance + 1] & 0xFF));
+          data[index] = (byte)(value >> 8);
+          data[index + 1] = (byte)value;
+        }
+        break;
+      }
+      default: // Packed components.
+      {
+        int mask = (1 << bitsPerComponent) - 1;
+        for(int index = colors, endIndex = getComponentCount(length); index < endIndex; index++)
+        {
+          setComponent(
+            data, offset, length, index,
+            (getComponent(data, offset, length, index) + getComponent(data, offset, length, index - colors)) & mask
+            );
+        }
+        break;
+      }
+    }
+  }
+
+  /**
+    Applies the PNG prediction to a row.
+
+    @param source Raw row container (containing also the previous raw row).
+    @param sourceOffset Raw row position.
+    @param previousOffset Previous raw row position (<code>-1</code>, if none).
+    @param length Row length.
+    @param target Predicted row container.
+    @param targetOffset Predicted row position (PNG filter type included).
+  */
+  private void encodePngRow(
+    byte[] source,
+    int sourceOffset,
+    int previousOffset,
+    int length,
+    byte[] target,
+    int targetOffset
+    )
+  {
+    int type;
+    if(predictor == PngOptimumPredictor)
+    {
+      /*
+        NOTE: The filter type minimizing the sum of absolute residuals is chosen (see PNG
+        specification, 12.8).
+      */
+      type = PngNone;
+      long minCost = Long.MAX_VALUE;
+      for(int candidateType = PngNone; candidateType <= PngPaeth; candidateType++)
+      {
+        long cost = 0;
+        for(int index = 0; index < length && cost < minCost; index++)
+        {cost += Math.abs((byte)(source[sourceOffset + index] - predictPng(candidateType, source, sourceOffset, previousOffset, index)));}
+        if(cost < minCost)
+        {
+          minCost = cost;
+          type = candidateType;
+        }
+      }
+    }
+    else if(predictor >= PngPredictorBase && predictor < PngOptimumPredictor)
+    {type = predictor - PngPredictorBase;}
+    else
+      throw new UnsupportedOperationException("Predictor " + predictor + " unknown.");
+
+    target[targetOffset++] = (byte)type;
+    for(int index = 0; index < length; index++)
+    {target[targetOffset + index] = (byte)(source[sourceOffset + index] - predictPng(type, source, sourceOffset, previousOffset, index));}
+  }
+
+  /**
+    Applies the TIFF prediction to a row in place.
+  */
+  private void encodeTiffRow(
+    byte[] data,
+    int offset,
+    int length
+    )
+  {
+    switch(bitsPerComponent)
+    {
+      case 8:
+        for(int index = offset + length - 1, startIndex = offset + colors; index >= startIndex; index--)
+        {data[index] -= data[index - colors];}
+        break;
+      case 16:
+      {
+        int distance = colors * 2;
+        for(int index = offset + (length & ~1) - 2, startIndex = offset + distance; index >= startIndex; index -= 2)
+        {
+          int value = ((data[index] & 0xFF) << 8 | (data[index + 1] & 0xFF))
+            - ((data[index - distance] & 0xFF) << 8 | (data[index - distance + 1] & 0xFF));
+          data[index] = (byte)(value >> 8);
+          data[index + 1] = (byte)value;
+        }
+        break;
+      }
+      default: // Packed components.
+      {
+        int mask = (1 << bitsPerComponent) - 1;
+        for(int index = getComponentCount(length) - 1; index >= colors; index--)
+        {
+          setComponent(
+            data, offset, length, index,
+            (getComponent(data, offset, length, index) - getComponent(data, offset, length, index - colors)) & mask
+            );
+        }
+        break;
+      }
+    }
+  }
+
+  /**
+    Gets the value of a packed component of a row.
+
+    @param index Component index within the row.
+  */
+  private int getComponent(
+    byte[] data,
+    int offset,
+    int length,
+    int index
+    )
+  {
+    /*
+      NOTE: Components are packed most significant bit first, possibly across byte boundaries: they
+      are read through a 24-bit window.
+    */
+    int bitIndex = index * bitsPerComponent;
+    int byteIndex = bitIndex >> 3;
+    int window = 0;
+    for(int windowIndex = 0; windowIndex < 3; windowIndex++)
+    {
+      window <<= 8;
+      if(byteIndex + windowIndex < length)
+      {window |= data[offset + byteIndex + windowIndex] & 0xFF;}
+    }
+    return (window >> (24 - bitsPerComponent - (bitIndex & 7))) & ((1 << bitsPerComponent) - 1);
+  }
+
+  /**
+    Gets the number of components in a row.
+  */
+  private int getComponentCount(
+    int length
+    )
+  {return (int)Math.min((long)columns * colors, (long)length * 8 / bitsPerComponent);}
+
+  /**
+    Gets the PNG prediction of a raw row byte.
+  */
+  private int predictPng(
+    int type,
+    byte[] source,
+    int sourceOffset,
+    int previousOffset,
+    int index
+    )
+  {
+    switch(type)
+    {
+      case PngNone:
+        return 0;
+      case PngSub:
+        return index >= bytesPerPixel ? source[sourceOffset + index - bytesPerPixel] & 0xFF : 0;
+      case PngUp:
+        return previousOffset >= 0 ? source[previousOffset + index] & 0xFF : 0;
+      case PngAverage:
+        return ((index >= bytesPerPixel ? source[sourceOffset + index - bytesPerPixel] & 0xFF : 0)
+          + (previousOffset >= 0 ? source[previousOffset + index] & 0xFF : 0)) >>> 1;
+      case PngPaeth:
+        return paeth(
+          index >= bytesPerPixel ? source[sourceOffset + index - bytesPerPixel] & 0xFF : 0,
+          previousOffset >= 0 ? source[previousOffset + index] & 0xFF : 0,
+          index >= bytesPerPixel && previousOffset >= 0 ? source[previousOffset + index - bytesPerPixel] & 0xFF : 0
+          );
+      default:
+        throw new UnsupportedOperationException("Prediction method " + type + " unknown.");
+    }
+  }
+
+  /**
+    Sets the value of a packed component of a row.
+
+    @param index Component index within the row.
+  */
+  private void setComponent(
+    byte[] data,
+    int offset,
+    int length,
+    int index,
+    int value
+    )
+  {
+    int bitIndex = index * bitsPerComponent;
+    int byteIndex = bitIndex >> 3;
+    int shift = 24 - bitsPerComponent - (bitIndex & 7);
+    int mask = ((1 << bitsPerComponent) - 1) << shift;
+    value <<= shift;
+    for(int windowIndex = 0; windowIndex < 3 && byteIndex + windowIndex < length; windowIndex++)
+    {
+      int byteShift = 16 - windowIndex * 8;
+      int byteMask = (mask >> byteShift) & 0xFF;
+      if(byteMask != 0)
+      {
+        int dataIndex = offset + byteIndex + windowIndex;
+        data[dataIndex] = (byte)((data[dataIndex] & ~byteMask) | ((value >> byteShift) & byteMask));
+      }
+    }
+  }
+  // </private>
+  // </interface>
+  // </dynamic>
+  // </class>
+}
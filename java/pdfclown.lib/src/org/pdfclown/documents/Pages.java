@@ -33,9 +33,17 @@ import java.util.List;
 import java.util.ListIterator;
 import java.util.NoSuchElementException;
 import java.util.Stack;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.pdfclown.PDF;
 import org.pdfclown.VersionEnum;
+import org.pdfclown.documents.contents.ContentScanner;
+import org.pdfclown.files.File;
+import org.pdfclown.files.IndirectObjects;
 import org.pdfclown.objects.PdfArray;
 import org.pdfclown.objects.PdfDictionary;
 import org.pdfclown.objects.PdfDirectObject;
@@ -63,6 +71,113 @@ public final class Pages
     be necessary to keep track of the modified tree nodes for incremental update.
   */
   // <class>
+  // <classes>
+  /**
+    Page processor (see {@link Pages#process(Executor, int, IPageProcessor)}).
+  */
+  public interface IPageProcessor
+  {
+    /**
+      Processes the specified page.
+      <p>NOTE: This method is called concurrently by multiple worker threads.</p>
+
+      @param index Page index.
+      @param page Page to process.
+      @param scanner Content scanner of the page, reserved to the calling worker.
+    */
+    void process(
+      int index,
+      Page page,
+      ContentScanner scanner
+      );
+  }
+  // </classes>
+
+  // <static>
+  // <fields>
+  /**
+    Number of page-tree partitions per page processed at once (balances the load across workers
+    whose partitions turn out to be lighter).
+  */
+  private static final int PartitionsPerPage = 4;
+  // </fields>
+
+  // <interface>
+  // <private>
+  /**
+    Gets the number of pages under the specified page tree node.
+  */
+  private static int getPageCount(
+    PdfDictionary node
+    )
+  {return node.get(PdfName.Type).equals(PdfName.Page) ? 1 : ((PdfInteger)node.get(PdfName.Count)).getRawValue();}
+
+  /**
+    Processes the pages under the specified page tree nodes.
+
+    @param nodes Page tree nodes (in page order).
+    @param pageIndex Index of the first page under the nodes.
+    @param processor Page processor.
+    @param pagePermits Permits bounding the number of pages processed at once.
+    @param aborted Whether processing has been aborted.
+  */
+  private static void processPartition(
+    List<PdfReference> nodes,
+    int pageIndex,
+    IPageProcessor processor,
+    Semaphore pagePermits,
+    AtomicBoolean aborted
+    )
+  {
+    /*
+      NOTE: The subtrees are walked depth-first, stacking the iterators over the kids of each level.
+    */
+    Stack<Iterator<? extends PdfDirectObject>> levels = new Stack<Iterator<? extends PdfDirectObject>>();
+    levels.push(nodes.iterator());
+    while(!levels.isEmpty())
+    {
+      Iterator<? extends PdfDirectObject> level = levels.peek();
+      if(!level.hasNext()) // Level complete.
+      {
+        // Go upward one level!
+        levels.pop();
+        continue;
+      }
+
+      PdfReference kidReference = (PdfReference)level.next();
+      PdfDictionary kid = (PdfDictionary)kidReference.getDataObject();
+      // Is current kid a page object?
+      if(kid.get(PdfName.Type).equals(PdfName.Page)) // Page object.
+      {
+        if(aborted.get())
+          return;
+
+        try
+        {pagePermits.acquire();}
+        catch(InterruptedException e)
+        {
+          Thread.currentThread().interrupt();
+          throw new RuntimeException(e);
+        }
+        try
+        {
+          Page page = Page.wrap(kidReference);
+          processor.process(pageIndex++, page, new ContentScanner(page));
+        }
+        finally
+        {pagePermits.release();}
+      }
+      else // Page tree node.
+      {
+        // Go downward one level!
+        levels.push(((PdfArray)kid.resolve(PdfName.Kids)).iterator());
+      }
+    }
+  }
+  // </private>
+  // </interface>
+  // </static>
+
   // <dynamic>
   // <constructors>
   Pages(
@@ -102,6 +217,109 @@ public final class Pages
     )
   {return (Pages)super.clone(context);}
 
+  /**
+    Processes the pages concurrently.
+    <p>The page tree is partitioned into subtrees, each walked by a worker task through the
+    specified executor; each page is handed to the processor along with its own content scanner.
+    Pages are processed in no particular order. This method returns when all the pages have been
+    processed, rethrowing the first exception thrown by the processor (in which case the remaining
+    pages are skipped).</p>
+    <p>As workers share the same file, its {@link
+    org.pdfclown.files.FileConfiguration#isConcurrentReadEnabled() concurrent reading} MUST be
+    enabled; pages MUST NOT be modified while processed.</p>
+
+    @param executor Executor running the worker tasks.
+    @param maxPageCount Maximum number of pages processed at once (it bounds the memory held by
+      page contents, irrespective of the executor threads).
+    @param processor Page processor.
+  */
+  public void process(
+    Executor executor,
+    int maxPageCount,
+    final IPageProcessor processor
+    )
+  {
+    if(maxPageCount < 1)
+      throw new IllegalArgumentException("maxPageCount MUST be positive.");
+    File file = getFile();
+    if(file == null || !file.getConfiguration().isConcurrentReadEnabled())
+      throw new IllegalStateException("Concurrent reading MUST be enabled (see FileConfiguration.setConcurrentReadEnabled(boolean)).");
+
+    final Semaphore pagePermits = new Semaphore(maxPageCount);
+    final AtomicBoolean aborted = new AtomicBoolean();
+    List<FutureTask<Void>> tasks = new ArrayList<FutureTask<Void>>();
+    {
+      // 1. Partitioning the page tree...
+      List<PdfReference> nodes = getPartitionNodes(maxPageCount * PartitionsPerPage);
+      int partitionPageCount = Math.max(size() / (maxPageCount * PartitionsPerPage), 1);
+      // 2. Distributing the partitions...
+      for(
+        int nodeIndex = 0, nodeCount = nodes.size(), pageIndex = 0;
+        nodeIndex < nodeCount;
+        )
+      {
+        final int firstPageIndex = pageIndex;
+        final List<PdfReference> partitionNodes = new ArrayList<PdfReference>();
+        do
+        {
+          PdfReference node = nodes.get(nodeIndex++);
+          partitionNodes.add(node);
+          pageIndex += getPageCount((PdfDictionary)node.getDataObject());
+        } while(nodeIndex < nodeCount && pageIndex - firstPageIndex < partitionPageCount);
+
+        FutureTask<Void> task = new FutureTask<Void>(
+          new Runnable()
+          {
+            @Override
+            public void run(
+              )
+            {
+              try
+              {processPartition(partitionNodes, firstPageIndex, processor, pagePermits, aborted);}
+              catch(RuntimeException e)
+              {aborted.set(true); throw e;}
+              catch(Error e)
+              {aborted.set(true); throw e;}
+            }
+          },
+          null
+          );
+        tasks.add(task);
+        executor.execute(task);
+      }
+    }
+
+    // 3. Waiting for the partitions...
+    RuntimeException exception = null;
+    for(FutureTask<Void> task : tasks)
+    {
+      try
+      {task.get();}
+      catch(InterruptedException e)
+      {
+        aborted.set(true);
+        for(FutureTask<Void> pendingTask : tasks)
+        {pendingTask.cancel(false);}
+        Thread.currentThread().interrupt();
+        throw new RuntimeException(e);
+      }
+      catch(ExecutionException e)
+      {
+        aborted.set(true);
+        if(exception == null)
+        {
+          Throwable cause = e.getCause();
+          if(cause instanceof Error)
+            throw (Error)cause;
+
+          exception = (cause instanceof RuntimeException ? (RuntimeException)cause : new RuntimeException(cause));
+        }
+      }
+    }
+    if(exception != null)
+      throw exception;
+  }
+
   // <List>
   @Override
   public void add(
@@ -550,6 +768,46 @@ public final class Pages
 
     return true;
   }
+
+  /**
+    Gets the page tree nodes (in page order) which partition the page tree into at least the
+    specified number of subtrees, as far as its depth allows.
+  */
+  private List<PdfReference> getPartitionNodes(
+    int minCount
+    )
+  {
+    List<PdfReference> nodes = new ArrayList<PdfReference>();
+    for(PdfDirectObject kid : (PdfArray)getBaseDataObject().resolve(PdfName.Kids))
+    {nodes.add((PdfReference)kid);}
+    IndirectObjects indirectObjects = getFile().getIndirectObjects();
+    // Go downward one level at a time, till the subtrees are enough!
+    while(nodes.size() < minCount)
+    {
+      // Load the nodes of the level to split in file order!
+      indirectObjects.prefetch(nodes);
+
+      List<PdfReference> levelNodes = new ArrayList<PdfReference>();
+      boolean split = false;
+      for(PdfReference node : nodes)
+      {
+        PdfDictionary nodeData = (PdfDictionary)node.getDataObject();
+        if(nodeData.get(PdfName.Type).equals(PdfName.Page)) // Page object.
+        {levelNodes.add(node);}
+        else // Page tree node.
+        {
+          for(PdfDirectObject kid : (PdfArray)nodeData.resolve(PdfName.Kids))
+          {levelNodes.add((PdfReference)kid);}
+          split = true;
+        }
+      }
+      if(!split) // Leaf level.
+        break;
+
+      nodes = levelNodes;
+    }
+    return nodes;
+  }
   // </private>
   // </interface>
   // </dynamic>
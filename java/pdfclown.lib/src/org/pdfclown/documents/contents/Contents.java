@@ -36,6 +36,7 @@ import java.util.ListIterator;
 import org.pdfclown.PDF;
 import org.pdfclown.VersionEnum;
 import org.pdfclown.bytes.IBuffer;
+import org.pdfclown.bytes.IConcurrentInputStream;
 import org.pdfclown.bytes.IInputStream;
 import org.pdfclown.documents.Document;
 import org.pdfclown.documents.contents.objects.ContentObject;
@@ -248,6 +249,21 @@ public final class Contents
       )
     {throw new NotImplementedException();}
 
+    /**
+      Gets the reader of the specified stream body.
+      <p>Bodies are read through their duplicates, if available, as they may be shared by concurrent
+      readers (see {@link org.pdfclown.files.FileConfiguration#isConcurrentReadEnabled()}).</p>
+    */
+    private IInputStream getBody(
+      PdfStream stream
+      )
+    {
+      IBuffer body = stream.getBody();
+      return body instanceof IConcurrentInputStream
+        ? ((IConcurrentInputStream)body).duplicate()
+        : body;
+    }
+
     /**
       Ensures stream availability, moving to the next stream in case the current one has run out of 
       data.
@@ -279,7 +295,7 @@ public final class Contents
             : basePosition + stream.getLength());
 
           stream = (streamIndex < 1
-            ? ((PdfStream)baseDataObject).getBody()
+            ? getBody((PdfStream)baseDataObject)
             : null);
         }
       }
@@ -295,7 +311,7 @@ public final class Contents
             : basePosition + stream.getLength());
 
           stream = (streamIndex < streams.size()
-            ? ((PdfStream)streams.resolve(streamIndex)).getBody()
+            ? getBody((PdfStream)streams.resolve(streamIndex))
             : null);
         }
       }
@@ -325,14 +341,14 @@ public final class Contents
       // Is the content stream just a single stream?
       if(baseDataObject instanceof PdfStream) // Single stream.
       {
-        stream = ((PdfStream)baseDataObject).getBody();
+        stream = getBody((PdfStream)baseDataObject);
         basePosition = 0;
       }
       else // Array of streams.
       {
         PdfArray streams = (PdfArray)baseDataObject;
 
-        stream = ((PdfStream)((PdfReference)streams.get(streamIndex)).getDataObject()).getBody();
+        stream = getBody((PdfStream)((PdfReference)streams.get(streamIndex)).getDataObject());
         basePosition -= stream.getLength();
       }
 
@@ -152,6 +152,21 @@ public abstract class Font
       )
     {return code;}
   }
+
+  /**
+    Font loading placeholder.
+  */
+  private static final class Loading
+  {
+    /**
+      Font being loaded (available as soon as its instantiation starts).
+    */
+    Font font;
+    /**
+      Thread loading the font.
+    */
+    final Thread loader = Thread.currentThread();
+  }
   // </classes>
 
   // <static>
@@ -228,17 +243,68 @@ public abstract class Font
       return null;
 
     PdfReference reference = (PdfReference)baseObject;
+    Hashtable<PdfReference,Object> cache = reference.getIndirectObject().getFile().getDocument().cache;
+    /*
+      NOTE: Font structures are reified as complex objects, both IO- and CPU-intensive to load.
+      So, it's convenient to retrieve them from a common cache whenever possible.
+    */
+    /*
+      NOTE: Loading is tracked per reference, so that concurrent readers (see
+      FileConfiguration#isConcurrentReadEnabled()) never get a font which is still being loaded,
+      while distinct fonts are loaded in parallel. The cache lock is held just to check or publish
+      entries, never during loading.
+    */
+    Loading loading;
+    synchronized(cache)
     {
-      // Has the font been already instantiated?
-      /*
-        NOTE: Font structures are reified as complex objects, both IO- and CPU-intensive to load.
-        So, it's convenient to retrieve them from a common cache whenever possible.
-      */
-      Hashtable<PdfReference,Object> cache = reference.getIndirectObject().getFile().getDocument().cache;
-      if(cache.containsKey(reference))
-        return (Font)cache.get(reference);
+      while(true)
+      {
+        Object cached = cache.get(reference);
+        if(cached == null) // Font not instantiated yet.
+        {
+          cache.put(reference,loading = new Loading());
+          break;
+        }
+        else if(cached instanceof Font) // Font already instantiated.
+          return (Font)cached;
+
+        loading = (Loading)cached;
+        if(loading.loader == Thread.currentThread()) // Reentrant loading.
+          return loading.font;
+
+        // Wait for the font to be loaded by another thread!
+        try
+        {cache.wait();}
+        catch(InterruptedException e)
+        {
+          Thread.currentThread().interrupt();
+          throw new RuntimeException(e);
+        }
+      }
     }
 
+    Font font = null;
+    try
+    {return font = load(reference);}
+    finally
+    {
+      synchronized(cache)
+      {
+        if(font != null)
+        {cache.put(reference,font);}
+        else
+        {cache.remove(reference);}
+        cache.notifyAll();
+      }
+    }
+  }
+  // </public>
+
+  // <private>
+  private static Font load(
+    PdfReference reference
+    )
+  {
     PdfDictionary fontDictionary = (PdfDictionary)reference.getDataObject();
     PdfName fontType = (PdfName)fontDictionary.get(PdfName.Subtype);
     if(fontType == null)
@@ -278,7 +344,7 @@ public abstract class Font
     else // Unknown.
       throw new UnsupportedOperationException("Unknown font type: " + fontType + " (reference: " + reference + ")");
   }
-  // </public>
+  // </private>
   // </interface>
   // </static>
 
@@ -827,8 +893,12 @@ public abstract class Font
   protected int getAverageWidth(
     )
   {
+    int averageWidth = this.averageWidth;
     if(averageWidth == UndefinedWidth)
     {
+      /*
+        NOTE: The value is computed locally, not to expose partial sums to concurrent readers.
+      */
       if(glyphWidths.isEmpty())
       {averageWidth = 1000;}
       else
@@ -838,6 +908,7 @@ public abstract class Font
         {averageWidth += glyphWidth;}
         averageWidth /= glyphWidths.size();
       }
+      this.averageWidth = averageWidth;
     }
     return averageWidth;
   }
@@ -930,7 +1001,20 @@ public abstract class Font
       NOTE: Font structures are reified as complex objects, both IO- and CPU-intensive to load.
       So, it's convenient to put them into a common cache for later reuse.
     */
-    getDocument().cache.put((PdfReference)getBaseObject(),this);
+    Hashtable<PdfReference,Object> cache = getDocument().cache;
+    PdfReference reference = (PdfReference)getBaseObject();
+    synchronized(cache)
+    {
+      /*
+        NOTE: While it's being loaded, the font is exposed to its own loading thread only (see
+        wrap(PdfDirectObject)).
+      */
+      Object cached = cache.get(reference);
+      if(cached instanceof Loading)
+      {((Loading)cached).font = this;}
+      else
+      {cache.put(reference,this);}
+    }
   }
   // </private>
   // </interface>
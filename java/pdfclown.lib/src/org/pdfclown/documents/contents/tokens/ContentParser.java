@@ -61,6 +61,7 @@ import org.pdfclown.objects.PdfByteString;
 import org.pdfclown.objects.PdfDirectObject;
 import org.pdfclown.tokens.BaseParser;
 import org.pdfclown.tokens.Encoding;
+import org.pdfclown.tokens.Keyword;
 import org.pdfclown.util.parsers.PostScriptParseException;
 
 /**
@@ -175,7 +176,9 @@ public final class ContentParser
     switch(getTokenType())
     {
       case Literal:
-        if(getToken() instanceof String)
+        if(!tokenStartsWith(Keyword.DatePrefix))
+          return new PdfByteString(getTokenBytes());
+        else if(getToken() instanceof String)
           return new PdfByteString(Encoding.Pdf.encode((String)getToken()));
         break;
       case Hex:
@@ -26,6 +26,7 @@
 package org.pdfclown.documents.files;
 
 import java.io.FileNotFoundException;
+import java.io.InputStream;
 import java.util.Date;
 
 import org.pdfclown.PDF;
@@ -169,6 +170,15 @@ public final class EmbeddedFile
     )
   {return getBaseDataObject().getBody();}
 
+  /**
+    Gets a stream reading the data contained within this file incrementally.
+
+    @see #getData()
+  */
+  public InputStream getDataStream(
+    )
+  {return getBaseDataObject().getBodyStream();}
+
   /**
     Gets the MIME media type name of this file [RFC 2046].
   */
@@ -0,0 +1,154 @@
+/*
+  Copyright 2015 Stefano Chizzolini. http://www.pdfclown.org
+
+  Contributors:
+    * Stefano Chizzolini (original code developer, http://www.stefanochizzolini.it)
+
+  This file should be part of the source code distribution of "PDF Clown library"
+  (the Program): see the accompanying README files for more info.
+
+  This Program is free software; you can redistribute it and/or modify it under the terms
+  of the GNU Lesser General Public License as published by the Free Software Foundation;
+  either version 3 of the License, or (at your option) any later version.
+
+  This Program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY,
+  either expressed or implied; without even the implied warranty of MERCHANTABILITY or
+  FITNESS FOR A PARTICULAR PURPOSE. See the License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this
+  Program (see README files); if not, go to the GNU website (http://www.gnu.org/licenses/).
+
+  Redistribution and use, with or without modification, are permitted provided that such
+  redistributions retain the above copyright notice, license and disclaimer, along with
+  this list of conditions.
+*/
+
+package org.pdfclown.files;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.pdfclown.bytes.IBuffer;
+import org.pdfclown.objects.PdfStream;
+
+/**
+  Size-bounded cache of decoded stream bodies.
+  <p>It retains the decoded views of the most recently read streams (see {@link
+  PdfStream#getBody(boolean)}), so that repeated reads don't decode them again; least recently read
+  views are evicted as soon as the total size exceeds {@link FileConfiguration#getStreamCacheSize()
+  the configured limit}.</p>
+  <span style="color:red">For internal use only.</span>
+
+  @author Stefano Chizzolini (http://www.stefanochizzolini.it)
+  @since 0.2.0
+  @version 0.2.0, 06/15/15
+*/
+public final class DecodedStreamCache
+{
+  // <class>
+  // <classes>
+  private static final class Entry
+  {
+    final IBuffer body;
+    /**
+      Body size when cached (views may change once they are adopted by their stream).
+    */
+    final long size;
+
+    Entry(
+      IBuffer body
+      )
+    {
+      this.body = body;
+      this.size = body.getLength();
+    }
+  }
+  // </classes>
+
+  // <dynamic>
+  // <fields>
+  private final FileConfiguration configuration;
+  /**
+    Cached entries, in access order (least recently read first).
+  */
+  private final Map<PdfStream,Entry> entries = new LinkedHashMap<PdfStream,Entry>(16, .75f, true);
+  private long size;
+  // </fields>
+
+  // <constructors>
+  DecodedStreamCache(
+    FileConfiguration configuration
+    )
+  {this.configuration = configuration;}
+  // </constructors>
+
+  // <interface>
+  // <public>
+  /**
+    Removes all the cached bodies.
+  */
+  public synchronized void clear(
+    )
+  {
+    entries.clear();
+    size = 0;
+  }
+
+  /**
+    Gets the decoded body cached for the specified stream.
+
+    @return <code>null</code>, if not cached.
+  */
+  public synchronized IBuffer get(
+    PdfStream stream
+    )
+  {
+    Entry entry = entries.get(stream);
+    return entry != null ? entry.body : null;
+  }
+
+  /**
+    Caches the decoded body of the specified stream, evicting the least recently read ones in case
+    of overflow.
+  */
+  public synchronized void put(
+    PdfStream stream,
+    IBuffer body
+    )
+  {
+    remove(stream);
+
+    Entry entry = new Entry(body);
+    long capacity = configuration.getStreamCacheSize();
+    if(entry.size > capacity)
+      return;
+
+    entries.put(stream, entry);
+    size += entry.size;
+    for(
+      Iterator<Entry> entryIterator = entries.values().iterator();
+      size > capacity;
+      )
+    {
+      size -= entryIterator.next().size;
+      entryIterator.remove();
+    }
+  }
+
+  /**
+    Removes the decoded body cached for the specified stream.
+  */
+  public synchronized void remove(
+    PdfStream stream
+    )
+  {
+    Entry entry = entries.remove(stream);
+    if(entry != null)
+    {size -= entry.size;}
+  }
+  // </public>
+  // </interface>
+  // </dynamic>
+  // </class>
+}
@@ -29,15 +29,17 @@ import java.io.Closeable;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.Random;
 
 import org.pdfclown.Version;
 import org.pdfclown.VersionEnum;
 import org.pdfclown.bytes.Buffer;
-import org.pdfclown.bytes.FileInputStream;
+import org.pdfclown.bytes.BufferedFileInputStream;
 import org.pdfclown.bytes.IInputStream;
 import org.pdfclown.bytes.IOutputStream;
+import org.pdfclown.bytes.MappedFileInputStream;
 import org.pdfclown.bytes.OutputStream;
 import org.pdfclown.documents.Document;
 import org.pdfclown.documents.interchange.metadata.Information;
@@ -80,12 +82,62 @@ public final class File
   // <static>
   // <fields>
   private static Random hashCodeGenerator = new Random();
+
+  /**
+    Length of the trailing chunk checked before appending in place (see {@link
+    #saveInPlace(SerializationModeEnum)}); it covers the last trailer and its xref offset.
+  */
+  private static final int InPlaceTailLength = 1024;
   // </fields>
+
+  // <interface>
+  // <private>
+  /**
+    Opens the specified file-system file according to the specified configuration.
+  */
+  private static IInputStream open(
+    String path,
+    FileConfiguration configuration
+    ) throws java.io.FileNotFoundException
+  {
+    // NOTE: The configuration is validated before the file handle is acquired, so it can't leak.
+    configuration.checkUnbound();
+
+    java.io.RandomAccessFile file = new java.io.RandomAccessFile(path, "r");
+    if(configuration.isMemoryMapped())
+    {
+      try
+      {return new MappedFileInputStream(file);}
+      catch(IOException e)
+      {/* NOOP: Fall back to block-cached access (memory mapping may be restricted by the host). */}
+    }
+    return new BufferedFileInputStream(
+      file,
+      configuration.getBlockSize(),
+      configuration.getBlockCacheCapacity()
+      );
+  }
+
+  /**
+    Reads the trailing chunk of the specified file-system file.
+  */
+  private static byte[] readTail(
+    java.io.RandomAccessFile file
+    ) throws IOException
+  {
+    long length = file.length();
+    byte[] tail = new byte[(int)Math.min(length, InPlaceTailLength)];
+    file.seek(length - tail.length);
+    file.readFully(tail);
+    return tail;
+  }
+  // </private>
+  // </interface>
   // </static>
 
   // <dynamic>
   // <fields>
-  private final FileConfiguration configuration = new FileConfiguration(this);
+  private final FileConfiguration configuration;
   private final Document document;
   private final int hashCode = hashCodeGenerator.nextInt();
   private final IndirectObjects indirectObjects;
@@ -95,12 +147,30 @@ public final class File
   private final Version version;
 
   private Cloner cloner;
+  private DecodedStreamCache decodedStreamCache;
+  private ObjectCache objectCache;
+  private ObjectStreamCache objectStreamCache;
+  /**
+    Expected length of the file-system file, as of the last update appended in place.
+    <p><code>-1</code>, until the first update is appended.</p>
+  */
+  private long inPlaceLength = -1;
+  /**
+    Expected trailing chunk of the file-system file, as of the last update appended in place.
+  */
+  private byte[] inPlaceTail;
+  /**
+    Byte offset of the cross-reference section of the last update appended in place.
+    <p><code>-1</code>, until the first update is appended.</p>
+  */
+  private long inPlaceXRefOffset = -1;
   // </fields>
 
   // <constructors>
   public File(
     )
   {
+    (configuration = new FileConfiguration()).bind(this);
     version = VersionEnum.PDF14.getVersion();
     trailer = prepareTrailer(new PdfDictionary());
     indirectObjects = new IndirectObjects(this, null);
@@ -110,12 +180,18 @@ public final class File
   public File(
     String path
     ) throws java.io.FileNotFoundException
+  {this(path, new FileConfiguration());}
+
+  /**
+    @param path File-system path of the file to open.
+    @param configuration Configuration to apply to the file.
+  */
+  public File(
+    String path,
+    FileConfiguration configuration
+    ) throws java.io.FileNotFoundException
   {
-    this(
-      new FileInputStream(
-        new java.io.RandomAccessFile(path,"r")
-        )
-      );
+    this(open(path, configuration), configuration);
     this.path = path;
   }
 
@@ -123,6 +199,16 @@ public final class File
     java.io.File file
     ) throws java.io.FileNotFoundException
   {this(file.getAbsolutePath());}
+
+  /**
+    @param file File to open.
+    @param configuration Configuration to apply to the file.
+  */
+  public File(
+    java.io.File file,
+    FileConfiguration configuration
+    ) throws java.io.FileNotFoundException
+  {this(file.getAbsolutePath(), configuration);}
   
   public File(
     byte[] data
@@ -137,18 +223,38 @@ public final class File
   public File(
     IInputStream stream
     )
+  {this(stream, new FileConfiguration());}
+
+  /**
+    @param stream Source data to open.
+    @param configuration Configuration to apply to the file.
+  */
+  public File(
+    IInputStream stream,
+    FileConfiguration configuration
+    )
   {
-    reader = new Reader(stream, this);
+    (this.configuration = configuration).bind(this);
+    try
+    {
+      reader = new Reader(stream, this);
 
-    FileInfo info = reader.readInfo();
-    version = info.getVersion();
-    trailer = prepareTrailer(info.getTrailer());
-    if(trailer.containsKey(PdfName.Encrypt)) // Encrypted file.
-      throw new NotImplementedException("Encrypted files are currently not supported.");
+      FileInfo info = reader.readInfo();
+      version = info.getVersion();
+      trailer = prepareTrailer(info.getTrailer());
+      if(trailer.containsKey(PdfName.Encrypt)) // Encrypted file.
+        throw new NotImplementedException("Encrypted files are currently not supported.");
 
-    indirectObjects = new IndirectObjects(this, info.getXrefEntries());
-    document = new Document(trailer.get(PdfName.Root));
-    getConfiguration().setXRefMode(PdfName.XRef.equals(trailer.get(PdfName.Type)) ? XRefModeEnum.Compressed : XRefModeEnum.Plain);
+      indirectObjects = new IndirectObjects(this, info.getXrefIndex());
+      document = new Document(trailer.get(PdfName.Root));
+      getConfiguration().setXRefMode(PdfName.XRef.equals(trailer.get(PdfName.Type)) ? XRefModeEnum.Compressed : XRefModeEnum.Plain);
+    }
+    catch(RuntimeException e)
+    {
+      // Release the source, as the file is unusable!
+      IOUtils.closeQuietly(stream);
+      throw e;
+    }
   }
   // </constructors>
 
@@ -173,6 +279,19 @@ public final class File
     )
   {return configuration;}
 
+  /**
+    Gets the cache of decoded stream bodies.
+    <span style="color:red">For internal use only.</span>
+  */
+  public synchronized DecodedStreamCache getDecodedStreamCache(
+    )
+  {
+    if(decodedStreamCache == null)
+    {decodedStreamCache = new DecodedStreamCache(configuration);}
+
+    return decodedStreamCache;
+  }
+
   /**
     Gets the high-level representation of the file content.
   */
@@ -187,6 +306,17 @@ public final class File
     )
   {return FileIdentifier.wrap(getTrailer().get(PdfName.ID));}
 
+  /**
+    Gets the byte offset of the cross-reference section of the last update appended in place to the
+    file-system file (see {@link #save(SerializationModeEnum)}).
+    <span style="color:red">For internal use only.</span>
+
+    @return <code>-1</code>, if no update has been appended in place.
+  */
+  public long getInPlaceXRefOffset(
+    )
+  {return inPlaceXRefOffset;}
+
   /**
     Gets the indirect objects collection.
   */
@@ -194,6 +324,32 @@ public final class File
     )
   {return indirectObjects;}
 
+  /**
+    Gets the cache of original data objects.
+    <span style="color:red">For internal use only.</span>
+  */
+  public synchronized ObjectCache getObjectCache(
+    )
+  {
+    if(objectCache == null)
+    {objectCache = new ObjectCache(configuration);}
+
+    return objectCache;
+  }
+
+  /**
+    Gets the cache of decoded object streams.
+    <span style="color:red">For internal use only.</span>
+  */
+  public synchronized ObjectStreamCache getObjectStreamCache(
+    )
+  {
+    if(objectStreamCache == null)
+    {objectStreamCache = new ObjectStreamCache(configuration);}
+
+    return objectStreamCache;
+  }
+
   /**
     Gets the file path.
   */
@@ -258,6 +414,9 @@ public final class File
 
   /**
     Serializes the file to the current file-system path.
+    <p>In case of {@link SerializationModeEnum#Incremental incremental} serialization, the update
+    is directly appended to the file, so that its cost depends on the size of the changes only;
+    otherwise, the file is replaced on {@link #close() closing}.</p>
 
     @param mode
       Serialization mode.
@@ -269,6 +428,11 @@ public final class File
     if(!new java.io.File(path).exists())
       throw new FileNotFoundException("No valid source path available.");
 
+    if(mode == SerializationModeEnum.Incremental
+      && reader != null
+      && saveInPlace(mode))
+      return;
+
     /*
       NOTE: The document file cannot be directly overwritten as it's locked for reading by the open
       stream; its update is therefore delayed to its disposal, when the temporary file will overwrite
@@ -308,7 +472,8 @@ public final class File
     try
     {
       file.createNewFile();
-      outputStream = new OutputStream(new java.io.BufferedOutputStream(new java.io.FileOutputStream(file)));
+      java.io.FileOutputStream fileStream = new java.io.FileOutputStream(file);
+      outputStream = new OutputStream(new java.io.BufferedOutputStream(fileStream), fileStream.getChannel());
     }
     catch(Exception e)
     {throw new IOException(file.getPath() + " file creation failed.", e);}
@@ -348,25 +513,7 @@ public final class File
     IOutputStream stream,
     SerializationModeEnum mode
     )
-  {
-    Information information = getDocument().getInformation();
-    if(getReader() == null)
-    {
-      information.setCreationDate(new Date());
-      try
-      {
-        Package package_ = getClass().getPackage();
-        information.setProducer(package_.getSpecificationTitle() + " " + package_.getSpecificationVersion());
-      }
-      catch(Exception e)
-      {/* NOOP */}
-    }
-    else
-    {information.setModificationDate(new Date());}
-
-    Writer writer = Writer.get(this, stream);
-    writer.write(mode);
-  }
+  {write(stream, mode);}
 
   /**
     @see #getCloner()
@@ -399,6 +546,13 @@ public final class File
   public void close(
     ) throws IOException
   {
+    if(decodedStreamCache != null)
+    {decodedStreamCache.clear();}
+    if(objectCache != null)
+    {objectCache.clear();}
+    if(objectStreamCache != null)
+    {objectStreamCache.clear();}
+
     if(reader != null)
     {
       reader.close();
@@ -436,10 +590,123 @@ public final class File
     )
   {return (path == null ? null : path + ".tmp");}
 
+  /**
+    Serializes the file appending it to the current file-system path.
+    <p>Each update is appended after the previous ones, as long as the file-system file still
+    matches its state after the last update (or the original content, at the first one): it
+    comprises just the objects modified since the last update, and links back to its
+    cross-reference section.</p>
+
+    @return Whether the file was serialized; <code>false</code> if the file-system file doesn't
+      match the expected content anymore.
+  */
+  private boolean saveInPlace(
+    SerializationModeEnum mode
+    ) throws IOException
+  {
+    if(inPlaceLength < 0) // First update.
+    {
+      IInputStream source = reader.getParser().getStream();
+      long position = source.getPosition();
+      inPlaceLength = source.getLength();
+      inPlaceTail = new byte[(int)Math.min(inPlaceLength, InPlaceTailLength)];
+      source.seek(inPlaceLength - inPlaceTail.length);
+      source.read(inPlaceTail);
+      source.seek(position);
+    }
+    {
+      java.io.RandomAccessFile file = new java.io.RandomAccessFile(path, "r");
+      try
+      {
+        if(file.length() != inPlaceLength
+          || !Arrays.equals(readTail(file), inPlaceTail))
+          return false;
+      }
+      finally
+      {file.close();}
+    }
+
+    /*
+      NOTE: Appending doesn't affect the original content, so the reader keeps working on it (its
+      length is fixed on opening).
+    */
+    java.io.FileOutputStream fileStream = new java.io.FileOutputStream(path, true);
+    long originalLength = fileStream.getChannel().size();
+
+    OutputStream outputStream = new OutputStream(new java.io.BufferedOutputStream(fileStream), fileStream.getChannel());
+    Writer writer;
+    try
+    {
+      writer = write(outputStream, mode);
+      outputStream.close();
+    }
+    catch(Exception e)
+    {
+      // Restore the original content!
+      IOUtils.closeQuietly(outputStream);
+      java.io.RandomAccessFile file = new java.io.RandomAccessFile(path, "rw");
+      try
+      {file.setLength(originalLength);}
+      finally
+      {file.close();}
+      throw new IOException(path + " file serialization failed.", e);
+    }
+    {
+      java.io.RandomAccessFile file = new java.io.RandomAccessFile(path, "r");
+      try
+      {
+        inPlaceLength = file.length();
+        inPlaceTail = readTail(file);
+      }
+      finally
+      {file.close();}
+    }
+    /*
+      NOTE: The next update appended in place links back to this one and comprises just the objects
+      modified since then.
+    */
+    inPlaceXRefOffset = writer.getXRefOffset();
+    indirectObjects.clearUpdatedObjects();
+
+    // Discard any pending replacement (this update supersedes it)!
+    new java.io.File(getTempPath()).delete();
+    return true;
+  }
+
   private PdfDictionary prepareTrailer(
     PdfDictionary trailer
     )
   {return (PdfDictionary)new ImplicitContainer(this, trailer).getDataObject();}
+
+  /**
+    Serializes the file to the specified stream.
+
+    @return Writer used for the serialization.
+  */
+  private Writer write(
+    IOutputStream stream,
+    SerializationModeEnum mode
+    )
+  {
+    Information information = getDocument().getInformation();
+    if(getReader() == null)
+    {
+      information.setCreationDate(new Date());
+      try
+      {
+        Package package_ = getClass().getPackage();
+        information.setProducer(package_.getSpecificationTitle() + " " + package_.getSpecificationVersion());
+      }
+      catch(Exception e)
+      {/* NOOP */}
+    }
+    else
+    {information.setModificationDate(new Date());}
+
+    Writer writer = Writer.get(this, stream);
+    writer.write(mode);
+    return writer;
+  }
   // </private>
   // </interface>
   // </dynamic>
@@ -27,7 +27,9 @@ package org.pdfclown.files;
 
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
+import java.util.zip.Deflater;
 
+import org.pdfclown.bytes.BufferedFileInputStream;
 import org.pdfclown.util.StringUtils;
 
 /**
@@ -39,29 +41,118 @@ import org.pdfclown.util.StringUtils;
 */
 public final class FileConfiguration
 {
+  // <static>
+  // <fields>
+  /**
+    Default maximum total size (in bytes) of the cached decoded object streams.
+  */
+  public static final int DefaultObjectStreamCacheSize = 4 << 20;
+  /**
+    Default maximum total size (in bytes) of the cached decoded stream bodies.
+  */
+  public static final int DefaultStreamCacheSize = 8 << 20;
+  /**
+    Object cache size retaining all the parsed data objects for the whole session.
+  */
+  public static final int UnboundedObjectCacheSize = -1;
+  // </fields>
+  // </static>
+
   // <dynamic>
   // <fields>
+  private int blockCacheCapacity;
+  private int blockSize;
+  private int compressionLevel;
+  private int compressionPoolSize;
+  private int compressionStrategy;
+  private boolean concurrentReadEnabled;
+  private boolean memoryMapped;
+  private int objectCacheSize;
+  private int objectStreamCacheSize;
   private DecimalFormat realFormat;
+  private int streamCacheSize;
   private boolean streamFilterEnabled;
   private XRefModeEnum xrefMode = XRefModeEnum.Plain;
+  private boolean xrefRecoveryEnabled;
 
-  private final File file;
+  private File file;
   // </fields>
 
   // <constructors>
-  FileConfiguration(
-    File file
+  /**
+    Creates a configuration to be passed to a file constructor, in order to define how the file
+    has to be opened.
+  */
+  public FileConfiguration(
     )
   {
-    this.file = file;
-
+    setBlockCacheCapacity(BufferedFileInputStream.DefaultCacheCapacity);
+    setBlockSize(BufferedFileInputStream.DefaultBlockSize);
+    setCompressionLevel(Deflater.DEFAULT_COMPRESSION);
+    setCompressionPoolSize(1);
+    setCompressionStrategy(Deflater.DEFAULT_STRATEGY);
+    setConcurrentReadEnabled(false);
+    setMemoryMapped(true);
+    setObjectCacheSize(UnboundedObjectCacheSize);
+    setObjectStreamCacheSize(DefaultObjectStreamCacheSize);
     setRealPrecision(0);
+    setStreamCacheSize(DefaultStreamCacheSize);
     setStreamFilterEnabled(true);
+    setXRefRecoveryEnabled(true);
   }
   // </constructors>
 
   // <interface>
   // <public>
+  /**
+    Gets the maximum number of blocks cached while reading the file, in case it is not {@link
+    #isMemoryMapped() memory-mapped}.
+    <p>NOTE: This setting is effective only before the file is opened.</p>
+  */
+  public int getBlockCacheCapacity(
+    )
+  {return blockCacheCapacity;}
+
+  /**
+    Gets the size of the blocks cached while reading the file, in case it is not {@link
+    #isMemoryMapped() memory-mapped}.
+    <p>NOTE: This setting is effective only before the file is opened.</p>
+  */
+  public int getBlockSize(
+    )
+  {return blockSize;}
+
+  /**
+    Gets the compression level applied to PDF stream objects filtered for {@link
+    #isStreamFilterEnabled() compression}.
+
+    @return Either {@link Deflater#DEFAULT_COMPRESSION} or a value between {@link
+      Deflater#NO_COMPRESSION} and {@link Deflater#BEST_COMPRESSION}.
+  */
+  public int getCompressionLevel(
+    )
+  {return compressionLevel;}
+
+  /**
+    Gets the number of threads compressing PDF stream objects while the file is serialized.
+    <p>Stream bodies are compressed ahead of the serialization cursor, which writes them in object
+    order: the output is the same as the serial compression's ({@code 1}, default).</p>
+  */
+  public int getCompressionPoolSize(
+    )
+  {return compressionPoolSize;}
+
+  /**
+    Gets the compression strategy applied to PDF stream objects filtered for {@link
+    #isStreamFilterEnabled() compression}.
+
+    @return Either {@link Deflater#DEFAULT_STRATEGY}, {@link Deflater#FILTERED} or {@link
+      Deflater#HUFFMAN_ONLY}.
+  */
+  public int getCompressionStrategy(
+    )
+  {return compressionStrategy;}
+
   /**
     Gets the file associated with this configuration.
   */
@@ -69,6 +160,30 @@ public final class FileConfiguration
     )
   {return file;}
 
+  /**
+    Gets the maximum total size (in bytes) of the original data objects retained after being
+    parsed.
+    <p>By default ({@link #UnboundedObjectCacheSize}), each data object parsed from the file is
+    retained for the whole session. Otherwise, the data objects which have not been updated are
+    released as soon as they are neither referenced nor among the most recently accessed ones within
+    this size (estimated on their serialization), and parsed again on their next access: this bounds
+    memory usage while streaming through large documents.</p>
+  */
+  public int getObjectCacheSize(
+    )
+  {return objectCacheSize;}
+
+  /**
+    Gets the maximum total size (in bytes) of the decoded object streams [PDF:1.6:3.4.6] cached for
+    reading their compressed objects.
+    <p>Object streams keep just the offsets of their compressed objects, so that evicting their
+    decoded data doesn't lose their index: evicted object streams are decoded again on their next
+    read. Set to {@code 0} to disable caching.</p>
+  */
+  public int getObjectStreamCacheSize(
+    )
+  {return objectStreamCacheSize;}
+
   public DecimalFormat getRealFormat(
     )
   {return realFormat;}
@@ -80,6 +195,16 @@ public final class FileConfiguration
     )
   {return realFormat.getMaximumFractionDigits();}
 
+  /**
+    Gets the maximum total size (in bytes) of the decoded stream bodies cached for repeated reads
+    (see {@link org.pdfclown.objects.PdfStream#getBody(boolean) PdfStream.getBody}).
+    <p>Set to {@code 0} to disable caching: decoded bodies are then retained only as long as they
+    are referenced.</p>
+  */
+  public int getStreamCacheSize(
+    )
+  {return streamCacheSize;}
+
   /**
     Gets the document's cross-reference mode.
   */
@@ -87,6 +212,33 @@ public final class FileConfiguration
     )
   {return xrefMode;}
 
+  /**
+    Gets whether the file can be read by multiple threads concurrently.
+    <p>When enabled, each thread parses the file through its own parser over an independent pointer
+    of the source data, and the resolution of indirect objects is synchronized, so that read-only
+    workloads (such as text extraction or rendering) can be distributed across threads. Data objects
+    are published safely once resolved, but they aren't synchronized themselves: modifying the file
+    while it is read concurrently is not supported.</p>
+    <p>The source data MUST support concurrent reads (see {@link
+    org.pdfclown.bytes.IConcurrentInputStream}), as both memory-mapped and block-cached files and
+    in-memory buffers do.</p>
+    <p>NOTE: This setting is effective only before the file is opened.</p>
+  */
+  public boolean isConcurrentReadEnabled(
+    )
+  {return concurrentReadEnabled;}
+
+  /**
+    Gets whether the file is accessed through memory mapping when opened from a file-system path.
+    <p>Memory mapping avoids a native read call for each byte parsed from the file; it can be
+    disabled in case the host restricts it, so that the file is read through a cache of {@link
+    #getBlockSize() fixed-size blocks} instead.</p>
+    <p>NOTE: This setting is effective only before the file is opened.</p>
+  */
+  public boolean isMemoryMapped(
+    )
+  {return memoryMapped;}
+
   /**
     Gets whether PDF stream objects have to be filtered for compression.
   */
@@ -94,6 +246,126 @@ public final class FileConfiguration
     )
   {return streamFilterEnabled;}
 
+  /**
+    Gets whether the cross-reference information of damaged files is rebuilt scanning the whole
+    file, in case it is missing or corrupted (for example, when the {@code startxref} offset is
+    wrong); otherwise, opening such files fails.
+    <p>NOTE: This setting is effective only before the file is opened.</p>
+  */
+  public boolean isXRefRecoveryEnabled(
+    )
+  {return xrefRecoveryEnabled;}
+
+  /**
+    @see #getBlockCacheCapacity()
+  */
+  public void setBlockCacheCapacity(
+    int value
+    )
+  {
+    if(value < 1)
+      throw new IllegalArgumentException("Block cache capacity MUST be positive.");
+
+    blockCacheCapacity = value;
+  }
+
+  /**
+    @see #getBlockSize()
+  */
+  public void setBlockSize(
+    int value
+    )
+  {
+    if(value < 1)
+      throw new IllegalArgumentException("Block size MUST be positive.");
+
+    blockSize = value;
+  }
+
+  /**
+    @see #getCompressionLevel()
+  */
+  public void setCompressionLevel(
+    int value
+    )
+  {
+    if(value != Deflater.DEFAULT_COMPRESSION
+      && (value < Deflater.NO_COMPRESSION || value > Deflater.BEST_COMPRESSION))
+      throw new IllegalArgumentException("Compression level MUST be between " + Deflater.NO_COMPRESSION + " and " + Deflater.BEST_COMPRESSION + " (or " + Deflater.DEFAULT_COMPRESSION + " for default).");
+
+    compressionLevel = value;
+  }
+
+  /**
+    @see #getCompressionPoolSize()
+  */
+  public void setCompressionPoolSize(
+    int value
+    )
+  {
+    if(value < 1)
+      throw new IllegalArgumentException("Compression pool size MUST be positive.");
+
+    compressionPoolSize = value;
+  }
+
+  /**
+    @see #getCompressionStrategy()
+  */
+  public void setCompressionStrategy(
+    int value
+    )
+  {
+    if(value != Deflater.DEFAULT_STRATEGY
+      && value != Deflater.FILTERED
+      && value != Deflater.HUFFMAN_ONLY)
+      throw new IllegalArgumentException("Compression strategy unknown.");
+
+    compressionStrategy = value;
+  }
+
+  /**
+    @see #isConcurrentReadEnabled()
+  */
+  public void setConcurrentReadEnabled(
+    boolean value
+    )
+  {concurrentReadEnabled = value;}
+
+  /**
+    @see #isMemoryMapped()
+  */
+  public void setMemoryMapped(
+    boolean value
+    )
+  {memoryMapped = value;}
+
+  /**
+    @see #getObjectCacheSize()
+  */
+  public void setObjectCacheSize(
+    int value
+    )
+  {
+    if(value < UnboundedObjectCacheSize)
+      throw new IllegalArgumentException("Object cache size MUST be either non-negative or UnboundedObjectCacheSize.");
+
+    objectCacheSize = value;
+  }
+
+  /**
+    @see #getObjectStreamCacheSize()
+  */
+  public void setObjectStreamCacheSize(
+    int value
+    )
+  {
+    if(value < 0)
+      throw new IllegalArgumentException("Object stream cache size MUST NOT be negative.");
+
+    objectStreamCacheSize = value;
+  }
+
   /**
     @see #getRealPrecision()
   */
@@ -106,6 +378,19 @@ public final class FileConfiguration
     realFormat = new DecimalFormat("0." + StringUtils.repeat("#", value <= 0 ? 5 : value), symbols);
   }
 
+  /**
+    @see #getStreamCacheSize()
+  */
+  public void setStreamCacheSize(
+    int value
+    )
+  {
+    if(value < 0)
+      throw new IllegalArgumentException("Stream cache size MUST NOT be negative.");
+
+    streamCacheSize = value;
+  }
+
   /**
     @see #isStreamFilterEnabled()
   */
@@ -120,7 +405,118 @@ public final class FileConfiguration
   public void setXRefMode(
     XRefModeEnum value
     )
-  {file.getDocument().checkCompatibility(xrefMode = value);}
+  {
+    xrefMode = value;
+    if(file != null)
+    {file.getDocument().checkCompatibility(xrefMode);}
+  }
+
+  /**
+    @see #isXRefRecoveryEnabled()
+  */
+  public void setXRefRecoveryEnabled(
+    boolean value
+    )
+  {xrefRecoveryEnabled = value;}
+
+  /**
+    @see #setBlockCacheCapacity(int)
+  */
+  public FileConfiguration withBlockCacheCapacity(
+    int value
+    )
+  {
+    setBlockCacheCapacity(value);
+    return this;
+  }
+
+  /**
+    @see #setBlockSize(int)
+  */
+  public FileConfiguration withBlockSize(
+    int value
+    )
+  {
+    setBlockSize(value);
+    return this;
+  }
+
+  /**
+    @see #setCompressionLevel(int)
+  */
+  public FileConfiguration withCompressionLevel(
+    int value
+    )
+  {
+    setCompressionLevel(value);
+    return this;
+  }
+
+  /**
+    @see #setCompressionPoolSize(int)
+  */
+  public FileConfiguration withCompressionPoolSize(
+    int value
+    )
+  {
+    setCompressionPoolSize(value);
+    return this;
+  }
+
+  /**
+    @see #setCompressionStrategy(int)
+  */
+  public FileConfiguration withCompressionStrategy(
+    int value
+    )
+  {
+    setCompressionStrategy(value);
+    return this;
+  }
+
+  /**
+    @see #setConcurrentReadEnabled(boolean)
+  */
+  public FileConfiguration withConcurrentReadEnabled(
+    boolean value
+    )
+  {
+    setConcurrentReadEnabled(value);
+    return this;
+  }
+
+  /**
+    @see #setMemoryMapped(boolean)
+  */
+  public FileConfiguration withMemoryMapped(
+    boolean value
+    )
+  {
+    setMemoryMapped(value);
+    return this;
+  }
+
+  /**
+    @see #setObjectCacheSize(int)
+  */
+  public FileConfiguration withObjectCacheSize(
+    int value
+    )
+  {
+    setObjectCacheSize(value);
+    return this;
+  }
+
+  /**
+    @see #setObjectStreamCacheSize(int)
+  */
+  public FileConfiguration withObjectStreamCacheSize(
+    int value
+    )
+  {
+    setObjectStreamCacheSize(value);
+    return this;
+  }
 
   /**
     @see #setRealPrecision(int)
@@ -133,6 +529,17 @@ public final class FileConfiguration
     return this;
   }
 
+  /**
+    @see #setStreamCacheSize(int)
+  */
+  public FileConfiguration withStreamCacheSize(
+    int value
+    )
+  {
+    setStreamCacheSize(value);
+    return this;
+  }
+
   /**
     @see #setStreamFilterEnabled(boolean)
   */
@@ -154,7 +561,43 @@ public final class FileConfiguration
     setXRefMode(value);
     return this;
   }
+
+  /**
+    @see #setXRefRecoveryEnabled(boolean)
+  */
+  public FileConfiguration withXRefRecoveryEnabled(
+    boolean value
+    )
+  {
+    setXRefRecoveryEnabled(value);
+    return this;
+  }
   // </public>
+
+  // <internal>
+  /**
+    Binds this configuration to the specified file.
+  */
+  void bind(
+    File file
+    )
+  {
+    checkUnbound();
+    this.file = file;
+  }
+
+  /**
+    Ensures this configuration isn't bound to any file yet.
+
+    @throws IllegalStateException If this configuration is already bound to a file.
+  */
+  void checkUnbound(
+    )
+  {
+    if(this.file != null)
+      throw new IllegalStateException("Configuration already bound to another file.");
+  }
+  // </internal>
   // </interface>
   // </dynamic>
 }
\ No newline at end of file
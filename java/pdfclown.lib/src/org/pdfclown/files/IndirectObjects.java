@@ -27,18 +27,21 @@ package org.pdfclown.files;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Hashtable;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.NoSuchElementException;
-import java.util.SortedMap;
-import java.util.TreeMap;
 
 import org.pdfclown.objects.Cloner;
 import org.pdfclown.objects.PdfDataObject;
 import org.pdfclown.objects.PdfIndirectObject;
+import org.pdfclown.objects.PdfReference;
 import org.pdfclown.tokens.XRefEntry;
+import org.pdfclown.tokens.XRefIndex;
+import org.pdfclown.util.IntArrayMap;
+import org.pdfclown.util.IntHashMap;
 import org.pdfclown.util.NotImplementedException;
 
 /**
@@ -67,6 +70,11 @@ public final class IndirectObjects
   // <class>
   // <dynamic>
   // <fields>
+  /**
+    Whether the resolution of original indirect objects is synchronized (see {@link
+    FileConfiguration#isConcurrentReadEnabled()}).
+  */
+  private final boolean concurrent;
   /**
     Associated file.
   */
@@ -79,16 +87,21 @@ public final class IndirectObjects
     <p><code>Key</code> is the external indirect object hashcode, <code>Value</code> is the
     matching internal indirect object.</p>
   */
-  private final Hashtable<Integer,PdfIndirectObject> importedObjects = new Hashtable<Integer,PdfIndirectObject>();
+  private final IntHashMap<PdfIndirectObject> importedObjects = new IntHashMap<PdfIndirectObject>();
   /**
     Collection of newly-registered indirect objects.
   */
-  private final TreeMap<Integer,PdfIndirectObject> modifiedObjects = new TreeMap<Integer,PdfIndirectObject>();
+  private final IntArrayMap<PdfIndirectObject> modifiedObjects = new IntArrayMap<PdfIndirectObject>();
+  /**
+    Collection of newly-registered indirect objects modified since the last update appended in
+    place to the file-system file (see {@link File#save(SerializationModeEnum)}).
+  */
+  private final IntArrayMap<PdfIndirectObject> updatedObjects = new IntArrayMap<PdfIndirectObject>();
   /**
     Collection of instantiated original indirect objects.
     <p>This collection is used as a cache to avoid unconsistent parsing duplications.</p>
   */
-  private final TreeMap<Integer,PdfIndirectObject> wokenObjects = new TreeMap<Integer,PdfIndirectObject>();
+  private final IntArrayMap<PdfIndirectObject> wokenObjects = new IntArrayMap<PdfIndirectObject>();
 
   /**
     Object counter.
@@ -100,18 +113,19 @@ public final class IndirectObjects
     <p>This information is vital to randomly retrieve the indirect-object persistent
     representation inside the associated file.</p>
   */
-  private final SortedMap<Integer,XRefEntry> xrefEntries;
+  private final XRefIndex xrefIndex;
   // </fields>
 
   // <constructors>
   IndirectObjects(
     File file,
-    SortedMap<Integer,XRefEntry> xrefEntries
+    XRefIndex xrefIndex
     )
   {
     this.file = file;
-    this.xrefEntries = xrefEntries;
-    if(this.xrefEntries == null) // No original indirect objects.
+    this.xrefIndex = xrefIndex;
+    this.concurrent = file.getConfiguration().isConcurrentReadEnabled();
+    if(this.xrefIndex == null) // No original indirect objects.
     {
       // Register the leading free-object!
       /*
@@ -119,7 +133,7 @@ public final class IndirectObjects
         at object number 0 [PDF:1.6:3.4.3].
       */
       lastObjectNumber = 0;
-      modifiedObjects.put(
+      putModified(
         lastObjectNumber,
         new PdfIndirectObject(
           this.file,
@@ -136,7 +150,7 @@ public final class IndirectObjects
     else
     {
       // Adjust the object counter!
-      lastObjectNumber = xrefEntries.lastKey();
+      lastObjectNumber = xrefIndex.getLastNumber();
     }
   }
   // </constructors>
@@ -160,7 +174,7 @@ public final class IndirectObjects
       new XRefEntry(++lastObjectNumber, 0)
       );
     // Register the object!
-    modifiedObjects.put(lastObjectNumber,indirectObject);
+    putModified(lastObjectNumber, indirectObject);
     return indirectObject;
   }
 
@@ -236,6 +250,119 @@ public final class IndirectObjects
     )
   {return file;}
 
+  /**
+    Resolves the original data objects of the specified references in a single forward pass through
+    the file.
+    <p>Resolving references one at a time follows their access order, which jumps back and forth
+    through the file; when many objects are known to be needed (such as the nodes of the page tree
+    or the resources of a page), they can be prefetched ordered by position instead: compressed
+    objects are loaded along with their object stream.</p>
+    <p>References which belong to other files, or whose data objects are already available, are
+    ignored.</p>
+    <p>Prefetching is effective in unbounded mode only (see {@link
+    FileConfiguration#getObjectCacheSize()}): in case the object cache is bounded, original data
+    objects are held just weakly, so a prefetched batch could be released before its use; this
+    method does nothing then.</p>
+
+    @param references References to resolve.
+  */
+  public void prefetch(
+    Collection<? extends PdfReference> references
+    )
+  {
+    if(xrefIndex == null // No original indirect objects.
+      || file.getConfiguration().getObjectCacheSize() != FileConfiguration.UnboundedObjectCacheSize) // Releasable original data objects.
+      return;
+
+    // 1. Collecting the targets...
+    /*
+      NOTE: Compressed objects are grouped by object stream, which is targeted in their place.
+    */
+    List<XRefEntry> xrefEntries = new ArrayList<XRefEntry>(references.size());
+    IntHashMap<List<XRefEntry>> streamsXrefEntries = new IntHashMap<List<XRefEntry>>();
+    for(PdfReference reference : references)
+    {
+      if(reference.getFile() != file)
+        continue;
+
+      PdfIndirectObject object = reference.getIndirectObject();
+      if(object == null
+        || !object.isOriginal()
+        || object.isResident())
+        continue;
+
+      XRefEntry xrefEntry = getOriginalXrefEntry(object.getReference().getObjectNumber());
+      if(xrefEntry == null)
+        continue;
+
+      switch(xrefEntry.getUsage())
+      {
+        case InUse:
+          xrefEntries.add(xrefEntry);
+          break;
+        case InUseCompressed:
+        {
+          List<XRefEntry> streamXrefEntries = streamsXrefEntries.get(xrefEntry.getStreamNumber());
+          if(streamXrefEntries == null)
+          {
+            XRefEntry streamXrefEntry = getOriginalXrefEntry(xrefEntry.getStreamNumber());
+            if(streamXrefEntry == null
+              || streamXrefEntry.getUsage() != XRefEntry.UsageEnum.InUse)
+              break;
+
+            streamsXrefEntries.put(xrefEntry.getStreamNumber(), streamXrefEntries = new ArrayList<XRefEntry>());
+            xrefEntries.add(streamXrefEntry);
+          }
+          streamXrefEntries.add(xrefEntry);
+          break;
+        }
+        default:
+          break;
+      }
+    }
+
+    // 2. Loading the targets in file order...
+    /*
+      NOTE: Within an object stream, the offset of a compressed entry is its object index.
+    */
+    Comparator<XRefEntry> offsetComparator = new Comparator<XRefEntry>()
+    {
+      @Override
+      public int compare(
+        XRefEntry entry1,
+        XRefEntry entry2
+        )
+      {
+        long offset1 = entry1.getOffset(), offset2 = entry2.getOffset();
+        return offset1 < offset2 ? -1 : (offset1 == offset2 ? 0 : 1);
+      }
+    };
+    Collections.sort(xrefEntries, offsetComparator);
+    int lastNumber = -1;
+    for(XRefEntry xrefEntry : xrefEntries)
+    {
+      if(xrefEntry.getNumber() == lastNumber) // Duplicate target.
+        continue;
+
+      get(lastNumber = xrefEntry.getNumber()).getDataObject();
+
+      // Object stream?
+      List<XRefEntry> streamXrefEntries = streamsXrefEntries.get(lastNumber);
+      if(streamXrefEntries != null)
+      {
+        Collections.sort(streamXrefEntries, offsetComparator);
+        int lastEntryNumber = -1;
+        for(XRefEntry streamXrefEntry : streamXrefEntries)
+        {
+          if(streamXrefEntry.getNumber() == lastEntryNumber) // Duplicate target.
+            continue;
+
+          get(lastEntryNumber = streamXrefEntry.getNumber()).getDataObject();
+        }
+      }
+    }
+  }
+
   // <List>
   @Override
   public void add(
@@ -256,49 +383,12 @@ public final class IndirectObjects
     int index
     )
   {
-    if(index < 0 || index >= size())
-      /*
-        NOTE: An indirect reference to an undefined object is not an error; it is simply treated as 
-        a reference to the null object [PDF:1.7:3.2.9] [FIX:59].
-      */
-      return null;
-
-    PdfIndirectObject object = modifiedObjects.get(index);
-    if(object == null)
+    if(concurrent)
     {
-      object = wokenObjects.get(index);
-      if(object == null)
-      {
-        XRefEntry xrefEntry = xrefEntries.get(index);
-        if(xrefEntry == null)
-        {
-          /*
-            NOTE: The cross-reference table (comprising the original cross-reference section and all
-            update sections) MUST contain one entry for each object number from 0 to the maximum
-            object number used in the file, even if one or more of the object numbers in this range
-            do not actually occur in the file. However, for resilience purposes missing entries are
-            treated as free ones.
-          */
-          xrefEntries.put(
-            index,
-            xrefEntry = new XRefEntry(
-              index,
-              XRefEntry.GenerationUnreusable,
-              0,
-              XRefEntry.UsageEnum.Free
-              )
-            );
-        }
-
-        // Awake the object!
-        /*
-          NOTE: This operation allows to keep a consistent state across the whole session, avoiding
-          multiple incoherent instantiations of the same original indirect object.
-        */
-        wokenObjects.put(index, object = new PdfIndirectObject(file, null, xrefEntry));
-      }
+      synchronized(this)
+      {return getObject(index);}
     }
-    return object;
+    return getObject(index);
   }
 
   @Override
@@ -571,17 +661,76 @@ public final class IndirectObjects
     xref.setNumber(++lastObjectNumber);
     xref.setGeneration(0);
     // Register the object!
-    modifiedObjects.put(lastObjectNumber, object);
+    putModified(lastObjectNumber, object);
     return object;
   }
 
+  /**
+    Marks the indirect objects modified so far as persisted, once their update has been appended in
+    place to the file-system file, so that the next one comprises just the indirect objects modified
+    since then.
+    <span style="color:red">For internal use only.</span>
+  */
+  public void clearUpdatedObjects(
+    )
+  {
+    for(PdfIndirectObject object : updatedObjects.values())
+    {object.resetUpdated();}
+    updatedObjects.clear();
+  }
+
   /**
     <span style="color:red">For internal use only.</span>
   */
-  public TreeMap<Integer,PdfIndirectObject> getModifiedObjects(
+  public IntArrayMap<PdfIndirectObject> getModifiedObjects(
     )
   {return modifiedObjects;}
 
+  /**
+    Gets a new cross-reference entry of the specified object, as originally read from the file
+    (that is, unaffected by any later serialization).
+    <span style="color:red">For internal use only.</span>
+
+    @return <code>null</code>, if undefined.
+  */
+  public XRefEntry getOriginalXrefEntry(
+    int number
+    )
+  {
+    if(xrefIndex == null)
+      return null;
+
+    if(concurrent)
+    {
+      synchronized(this)
+      {return xrefIndex.get(number);}
+    }
+    return xrefIndex.get(number);
+  }
+
+  /**
+    Gets the newly-registered indirect objects modified since the last update appended in place to
+    the file-system file (all of them, if none).
+    <span style="color:red">For internal use only.</span>
+  */
+  public IntArrayMap<PdfIndirectObject> getUpdatedObjects(
+    )
+  {return updatedObjects;}
+
+  /**
+    Marks the specified newly-registered indirect object as modified since the last update appended
+    in place to the file-system file.
+    <span style="color:red">For internal use only.</span>
+  */
+  public void markUpdated(
+    PdfIndirectObject object
+    )
+  {
+    int index = object.getXrefEntry().getNumber();
+    if(index >= 0 && modifiedObjects.get(index) == object) // Registered object.
+    {updatedObjects.put(index, object);}
+  }
+
   /**
     <span style="color:red">For internal use only.</span>
   */
@@ -597,7 +746,7 @@ public final class IndirectObjects
     {old.dropFile();} // Disconnects the old indirect object.
 
     // Insert the new indirect object into the modified objects collection!
-    modifiedObjects.put(index,object);
+    putModified(index, object);
     // Remove old indirect object from cache!
     wokenObjects.remove(index);
     // Mark the new indirect object as modified!
@@ -606,6 +755,67 @@ public final class IndirectObjects
     return old;
   }
   // </internal>
+
+  // <private>
+  private PdfIndirectObject getObject(
+    int index
+    )
+  {
+    if(index < 0 || index >= size())
+      /*
+        NOTE: An indirect reference to an undefined object is not an error; it is simply treated as 
+        a reference to the null object [PDF:1.7:3.2.9] [FIX:59].
+      */
+      return null;
+
+    PdfIndirectObject object = modifiedObjects.get(index);
+    if(object == null)
+    {
+      object = wokenObjects.get(index);
+      if(object == null)
+      {
+        XRefEntry xrefEntry = xrefIndex.get(index); // NOTE: Entry objects are instantiated on demand.
+        if(xrefEntry == null)
+        {
+          /*
+            NOTE: The cross-reference table (comprising the original cross-reference section and all
+            update sections) MUST contain one entry for each object number from 0 to the maximum
+            object number used in the file, even if one or more of the object numbers in this range
+            do not actually occur in the file. However, for resilience purposes missing entries are
+            treated as free ones.
+          */
+          xrefIndex.put(
+            index,
+            XRefEntry.GenerationUnreusable,
+            0,
+            XRefEntry.UsageEnum.Free
+            );
+          xrefEntry = xrefIndex.get(index);
+        }
+
+        // Awake the object!
+        /*
+          NOTE: This operation allows to keep a consistent state across the whole session, avoiding
+          multiple incoherent instantiations of the same original indirect object.
+        */
+        wokenObjects.put(index, object = new PdfIndirectObject(file, null, xrefEntry));
+      }
+    }
+    return object;
+  }
+
+  /**
+    Registers the specified indirect object as modified.
+  */
+  private void putModified(
+    int index,
+    PdfIndirectObject object
+    )
+  {
+    modifiedObjects.put(index, object);
+    updatedObjects.put(index, object);
+  }
+  // </private>
   // </interface>
   // </dynamic>
   // </class>
@@ -0,0 +1,151 @@
+/*
+  Copyright 2015 Stefano Chizzolini. http://www.pdfclown.org
+
+  Contributors:
+    * Stefano Chizzolini (original code developer, http://www.stefanochizzolini.it)
+
+  This file should be part of the source code distribution of "PDF Clown library"
+  (the Program): see the accompanying README files for more info.
+
+  This Program is free software; you can redistribute it and/or modify it under the terms
+  of the GNU Lesser General Public License as published by the Free Software Foundation;
+  either version 3 of the License, or (at your option) any later version.
+
+  This Program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY,
+  either expressed or implied; without even the implied warranty of MERCHANTABILITY or
+  FITNESS FOR A PARTICULAR PURPOSE. See the License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this
+  Program (see README files); if not, go to the GNU website (http://www.gnu.org/licenses/).
+
+  Redistribution and use, with or without modification, are permitted provided that such
+  redistributions retain the above copyright notice, license and disclaimer, along with
+  this list of conditions.
+*/
+
+package org.pdfclown.files;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.pdfclown.objects.PdfDataObject;
+import org.pdfclown.objects.PdfIndirectObject;
+
+/**
+  Size-bounded cache of original data objects.
+  <p>In case the {@link FileConfiguration#getObjectCacheSize() object cache size} is bounded,
+  original indirect objects keep their parsed data objects just weakly, so that they can be released
+  and parsed again on their next access; this cache retains the most recently accessed ones, evicting
+  the least recently accessed as soon as their total estimated size exceeds the configured limit.</p>
+  <span style="color:red">For internal use only.</span>
+
+  @author Stefano Chizzolini (http://www.stefanochizzolini.it)
+  @since 0.2.0
+  @version 0.2.0, 06/15/15
+*/
+public final class ObjectCache
+{
+  // <class>
+  // <classes>
+  private static final class Entry
+  {
+    final PdfDataObject dataObject;
+    /**
+      Estimated size (serialized length of the data object).
+    */
+    final long size;
+
+    Entry(
+      PdfDataObject dataObject,
+      long size
+      )
+    {
+      this.dataObject = dataObject;
+      this.size = size;
+    }
+  }
+  // </classes>
+
+  // <dynamic>
+  // <fields>
+  private final FileConfiguration configuration;
+  /**
+    Cached entries, in access order (least recently accessed first).
+  */
+  private final Map<PdfIndirectObject,Entry> entries = new LinkedHashMap<PdfIndirectObject,Entry>(16, .75f, true);
+  private long size;
+  // </fields>
+
+  // <constructors>
+  ObjectCache(
+    FileConfiguration configuration
+    )
+  {this.configuration = configuration;}
+  // </constructors>
+
+  // <interface>
+  // <public>
+  /**
+    Removes all the cached data objects.
+  */
+  public synchronized void clear(
+    )
+  {
+    entries.clear();
+    size = 0;
+  }
+
+  /**
+    Caches the data object of the specified indirect object, evicting the least recently accessed
+    ones in case of overflow; if already cached, it is just marked as the most recently accessed.
+
+    @param size Estimated size of the data object.
+  */
+  public synchronized void put(
+    PdfIndirectObject object,
+    PdfDataObject dataObject,
+    long size
+    )
+  {
+    Entry entry = entries.get(object); // NOTE: Lookups update the access order.
+    if(entry != null)
+    {
+      if(entry.dataObject == dataObject)
+        return;
+
+      remove(object);
+    }
+
+    long capacity = configuration.getObjectCacheSize();
+    if(size > capacity)
+      return;
+
+    entries.put(object, new Entry(dataObject, size));
+    this.size += size;
+    for(
+      Iterator<Entry> entryIterator = entries.values().iterator();
+      this.size > capacity;
+      )
+    {
+      this.size -= entryIterator.next().size;
+      entryIterator.remove();
+    }
+  }
+
+  /**
+    Removes the data object cached for the specified indirect object.
+  */
+  public synchronized void remove(
+    PdfIndirectObject object
+    )
+  {
+    Entry entry = entries.remove(object);
+    if(entry != null)
+    {size -= entry.size;}
+  }
+  // </public>
+  // </interface>
+  // </dynamic>
+  // </class>
+}
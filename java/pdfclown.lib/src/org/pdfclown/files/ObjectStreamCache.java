@@ -0,0 +1,171 @@
+/*
+  Copyright 2015 Stefano Chizzolini. http://www.pdfclown.org
+
+  Contributors:
+    * Stefano Chizzolini (original code developer, http://www.stefanochizzolini.it)
+
+  This file should be part of the source code distribution of "PDF Clown library"
+  (the Program): see the accompanying README files for more info.
+
+  This Program is free software; you can redistribute it and/or modify it under the terms
+  of the GNU Lesser General Public License as published by the Free Software Foundation;
+  either version 3 of the License, or (at your option) any later version.
+
+  This Program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY,
+  either expressed or implied; without even the implied warranty of MERCHANTABILITY or
+  FITNESS FOR A PARTICULAR PURPOSE. See the License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this
+  Program (see README files); if not, go to the GNU website (http://www.gnu.org/licenses/).
+
+  Redistribution and use, with or without modification, are permitted provided that such
+  redistributions retain the above copyright notice, license and disclaimer, along with
+  this list of conditions.
+*/
+
+package org.pdfclown.files;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.pdfclown.objects.PdfReference;
+import org.pdfclown.tokens.FileParser;
+import org.pdfclown.tokens.ObjectStream;
+
+/**
+  Size-bounded cache of decoded object streams.
+  <p>Object streams keep just the offsets of their compressed objects, whilst their decoded data
+  (along with the parser reading them) are retained here, keyed by stream object number: the most
+  recently read ones are kept, evicting the least recently read as soon as the total decoded size
+  exceeds {@link FileConfiguration#getObjectStreamCacheSize() the configured limit}; evicted object
+  streams are decoded again on their next read.</p>
+  <span style="color:red">For internal use only.</span>
+
+  @author Stefano Chizzolini (http://www.stefanochizzolini.it)
+  @since 0.2.0
+  @version 0.2.0, 06/15/15
+*/
+public final class ObjectStreamCache
+{
+  // <class>
+  // <classes>
+  private static final class Entry
+  {
+    final FileParser parser;
+    /**
+      Decoded data size.
+    */
+    final long size;
+    final ObjectStream stream;
+
+    Entry(
+      ObjectStream stream,
+      FileParser parser
+      )
+    {
+      this.stream = stream;
+      this.parser = parser;
+      this.size = parser.getLength();
+    }
+  }
+  // </classes>
+
+  // <dynamic>
+  // <fields>
+  private final FileConfiguration configuration;
+  /**
+    Cached entries by stream object number, in access order (least recently read first).
+  */
+  private final Map<Integer,Entry> entries = new LinkedHashMap<Integer,Entry>(16, .75f, true);
+  private long size;
+  // </fields>
+
+  // <constructors>
+  ObjectStreamCache(
+    FileConfiguration configuration
+    )
+  {this.configuration = configuration;}
+  // </constructors>
+
+  // <interface>
+  // <public>
+  /**
+    Removes all the cached object streams.
+  */
+  public synchronized void clear(
+    )
+  {
+    entries.clear();
+    size = 0;
+  }
+
+  /**
+    Gets the parser cached for the decoded data of the specified object stream.
+
+    @return <code>null</code>, if not cached.
+  */
+  public synchronized FileParser get(
+    ObjectStream stream
+    )
+  {
+    PdfReference reference = stream.getReference();
+    if(reference == null)
+      return null;
+
+    Entry entry = entries.get(reference.getObjectNumber());
+    return entry != null && entry.stream == stream ? entry.parser : null;
+  }
+
+  /**
+    Caches the parser of the decoded data of the specified object stream, evicting the least
+    recently read ones in case of overflow.
+  */
+  public synchronized void put(
+    ObjectStream stream,
+    FileParser parser
+    )
+  {
+    remove(stream);
+
+    PdfReference reference = stream.getReference();
+    if(reference == null)
+      return;
+
+    Entry entry = new Entry(stream, parser);
+    long capacity = configuration.getObjectStreamCacheSize();
+    if(entry.size > capacity)
+      return;
+
+    entries.put(reference.getObjectNumber(), entry);
+    size += entry.size;
+    for(
+      Iterator<Entry> entryIterator = entries.values().iterator();
+      size > capacity;
+      )
+    {
+      size -= entryIterator.next().size;
+      entryIterator.remove();
+    }
+  }
+
+  /**
+    Removes the decoded data cached for the specified object stream.
+  */
+  public synchronized void remove(
+    ObjectStream stream
+    )
+  {
+    PdfReference reference = stream.getReference();
+    if(reference == null)
+      return;
+
+    Entry entry = entries.remove(reference.getObjectNumber());
+    if(entry != null)
+    {size -= entry.size;}
+  }
+  // </public>
+  // </interface>
+  // </dynamic>
+  // </class>
+}
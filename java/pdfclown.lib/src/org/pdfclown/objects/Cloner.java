@@ -448,6 +448,7 @@ public class Cloner
     {
       clone.header = (PdfDictionary)visit(object.header, data);
       clone.body = object.body.clone();
+      clone.decodedBodyReference = null;
     }
     return clone;
   }
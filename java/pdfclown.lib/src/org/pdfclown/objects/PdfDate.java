@@ -43,6 +43,9 @@ public final class PdfDate
   // <class>
   // <static>
   // <fields>
+  /**
+    NOTE: Date formats aren't thread-safe, so any access to this instance is synchronized.
+  */
   private static final SimpleDateFormat formatter;
   // </fields>
 
@@ -99,7 +102,10 @@ public final class PdfDate
 
     // 2. Parsing.
     try
-    {return formatter.parse(dateBuilder.toString());}
+    {
+      synchronized(formatter)
+      {return formatter.parse(dateBuilder.toString());}
+    }
     catch(Exception exception)
     {throw new ParseException("Failed to parse the date string.", exception);}
   }
@@ -144,7 +150,10 @@ public final class PdfDate
   {
     byte[] buffer = new byte[23];
     {
-      byte[] valueBytes = PdfDocEncoding.get().encode(formatter.format(value));
+      String valueString;
+      synchronized(formatter)
+      {valueString = formatter.format(value);}
+      byte[] valueBytes = PdfDocEncoding.get().encode(valueString);
       buffer[0] = 68; buffer[1] = 58;
       System.arraycopy(valueBytes, 0, buffer, 2, 17);
       buffer[19] = 39;
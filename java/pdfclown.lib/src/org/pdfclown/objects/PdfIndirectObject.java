@@ -25,9 +25,13 @@
 
 package org.pdfclown.objects;
 
+import java.lang.ref.WeakReference;
+
 import org.pdfclown.bytes.IOutputStream;
 import org.pdfclown.files.File;
+import org.pdfclown.files.FileConfiguration;
 import org.pdfclown.tokens.Encoding;
+import org.pdfclown.tokens.FileParser;
 import org.pdfclown.tokens.Keyword;
 import org.pdfclown.tokens.ObjectStream;
 import org.pdfclown.tokens.Symbol;
@@ -45,6 +49,62 @@ public class PdfIndirectObject
   implements IPdfIndirectObject
 {
   // <class>
+  // <classes>
+  /**
+    Visitor marking the visited objects as not updated (references aren't followed).
+  */
+  private static final class UpdateResetter
+    extends Visitor
+  {
+    @Override
+    public PdfObject visit(
+      ObjectStream object,
+      Object data
+      )
+    {return visit((PdfStream)object, data);} // NOTE: Compressed objects are reset on their own.
+
+    @Override
+    public PdfObject visit(
+      PdfArray object,
+      Object data
+      )
+    {
+      object.setUpdated(false);
+      return super.visit(object, data);
+    }
+
+    @Override
+    public PdfObject visit(
+      PdfDictionary object,
+      Object data
+      )
+    {
+      object.setUpdated(false);
+      return super.visit(object, data);
+    }
+
+    @Override
+    public PdfObject visit(
+      PdfReference object,
+      Object data
+      )
+    {
+      object.setUpdated(false);
+      return object;
+    }
+
+    @Override
+    public PdfObject visit(
+      PdfStream object,
+      Object data
+      )
+    {
+      object.setUpdated(false);
+      return super.visit(object, data);
+    }
+  }
+  // </classes>
+
   // <static>
   // <fields>
   private static final byte[] BeginIndirectObjectChunk = Encoding.Pdf.encode(Symbol.Space + Keyword.BeginIndirectObject + Symbol.LineFeed);
@@ -54,7 +114,16 @@ public class PdfIndirectObject
 
   // <dynamic>
   // <fields>
-  private PdfDataObject dataObject;
+  private volatile PdfDataObject dataObject;
+  /**
+    Original data object held weakly, as it can be released (see {@link
+    FileConfiguration#getObjectCacheSize()}).
+  */
+  private WeakReference<PdfDataObject> dataObjectReference;
+  /**
+    Estimated size of the weakly-held data object.
+  */
+  private long dataObjectSize;
   private File file;
   private boolean original;
   private final PdfReference reference;
@@ -163,9 +232,12 @@ public class PdfIndirectObject
   public boolean isCompressible(
     )
   {
-    return !isCompressed()
-      && isInUse()
-      && !(getDataObject() instanceof PdfStream
+    if(isCompressed()
+      || !isInUse())
+      return false;
+
+    PdfDataObject dataObject = getDataObject();
+    return !(dataObject instanceof PdfStream
         || dataObject instanceof PdfInteger)
       && getReference().getGenerationNumber() == 0;
   }
@@ -215,6 +287,7 @@ public class PdfIndirectObject
     )
   {
     PdfIndirectObject otherObject = (PdfIndirectObject)other;
+    retainDataObject(); otherObject.retainDataObject();
     PdfDataObject otherDataObject = otherObject.dataObject;
     // Update the other!
     otherObject.setDataObject(dataObject);
@@ -282,27 +355,18 @@ public class PdfIndirectObject
   public PdfDataObject getDataObject(
     )
   {
+    PdfDataObject dataObject = this.dataObject;
     if(dataObject == null)
     {
-      switch (xrefEntry.getUsage())
+      File file = this.file;
+      if(file != null
+        && file.getConfiguration().isConcurrentReadEnabled())
       {
-        case Free: // Free entry (no data object at all).
-          break;
-        case InUse: // In-use entry (late-bound data object).
-        {
-          // Get the indirect data object!
-          dataObject = include(file.getReader().getParser().parsePdfObject(xrefEntry));
-          break;
-        }
-        case InUseCompressed:
-        {
-          // Get the object stream where its data object is stored!
-          ObjectStream objectStream = (ObjectStream)file.getIndirectObjects().get(xrefEntry.getStreamNumber()).getDataObject();
-          // Get the indirect data object!
-          dataObject = include(objectStream.get(xrefEntry.getNumber()));
-          break;
-        }
+        synchronized(this)
+        {dataObject = resolveDataObject();}
       }
+      else
+      {dataObject = resolveDataObject();}
     }
     return dataObject;
   }
@@ -330,6 +394,7 @@ public class PdfIndirectObject
     if(xrefEntry.getGeneration() == XRefEntry.GenerationUnreusable)
       throw new RuntimeException("Unreusable entry.");
 
+    retainDataObject();
     exclude(dataObject);
     dataObject = include(value);
     xrefEntry.setUsage(UsageEnum.InUse);
@@ -349,6 +414,8 @@ public class PdfIndirectObject
     boolean value
     )
   {
+    if(value)
+    {retainDataObject();}
     if(value && original)
     {
       /*
@@ -358,6 +425,8 @@ public class PdfIndirectObject
       */
       file.getIndirectObjects().update(this);
     }
+    else if(value && file != null) // Newly-registered object (tracked for the next update appended in place).
+    {file.getIndirectObjects().markUpdated(this);}
     updated = value;
   }
 
@@ -388,6 +457,7 @@ public class PdfIndirectObject
   public void dropFile(
     )
   {
+    retainDataObject();
     uncompress();
     file = null;
   }
@@ -399,12 +469,139 @@ public class PdfIndirectObject
     )
   {original = false;}
 
+  /**
+    Gets whether the data object is available without parsing (that is, it has been either resolved
+    or assigned, and it hasn't been released since).
+    <span style="color:red">For internal use only.</span>
+  */
+  public boolean isResident(
+    )
+  {
+    if(dataObject != null)
+      return true;
+
+    WeakReference<PdfDataObject> dataObjectReference = this.dataObjectReference;
+    return dataObjectReference != null && dataObjectReference.get() != null;
+  }
+
+  /**
+    Marks this object, along with its data object, as not updated, so that its further modifications
+    are tracked again.
+    <span style="color:red">For internal use only.</span>
+  */
+  public void resetUpdated(
+    )
+  {
+    if(dataObject != null)
+    {dataObject.accept(new UpdateResetter(), null);}
+    updated = false;
+  }
+
   @Override
   void setParent(
     PdfObject value
     )
   {/* NOOP: As indirect objects are root objects, no parent can be associated. */}
   // </internal>
+
+  // <private>
+  /**
+    Gets whether the data object can be released once it is no longer referenced, to be parsed again
+    on its next access.
+  */
+  private boolean isReleasable(
+    )
+  {
+    return original
+      && !updated
+      && file.getConfiguration().getObjectCacheSize() != FileConfiguration.UnboundedObjectCacheSize;
+  }
+
+  /**
+    Resolves the data object, parsing it in case it isn't available.
+  */
+  private PdfDataObject resolveDataObject(
+    )
+  {
+    PdfDataObject dataObject = this.dataObject;
+    if(dataObject == null)
+    {
+      // Still available (released data object)?
+      if(dataObjectReference != null)
+      {
+        dataObject = dataObjectReference.get();
+        if(dataObject != null)
+        {
+          if(dataObjectSize > 0)
+          {file.getObjectCache().put(this, dataObject, dataObjectSize);}
+          return dataObject;
+        }
+      }
+
+      boolean releasable = isReleasable();
+      XRefEntry xrefEntry = this.xrefEntry;
+      if(releasable)
+      {
+        /*
+          NOTE: Releasable data objects are parsed from their original location, as serialization
+          updates their entry.
+        */
+        XRefEntry originalXrefEntry = file.getIndirectObjects().getOriginalXrefEntry(xrefEntry.getNumber());
+        if(originalXrefEntry != null)
+        {xrefEntry = originalXrefEntry;}
+      }
+      long dataObjectSize = 0;
+      switch (xrefEntry.getUsage())
+      {
+        case Free: // Free entry (no data object at all).
+          break;
+        case InUse: // In-use entry (late-bound data object).
+        {
+          // Get the indirect data object!
+          FileParser parser = file.getReader().getParser();
+          dataObject = include(parser.parsePdfObject(xrefEntry));
+          dataObjectSize = parser.getPosition() - xrefEntry.getOffset();
+          break;
+        }
+        case InUseCompressed:
+        {
+          // Get the object stream where its data object is stored!
+          ObjectStream objectStream = (ObjectStream)file.getIndirectObjects().get(xrefEntry.getStreamNumber()).getDataObject();
+          // Get the indirect data object!
+          dataObject = include(objectStream.parse(xrefEntry.getNumber()));
+          dataObjectSize = objectStream.getEntryLength(xrefEntry.getNumber());
+          break;
+        }
+      }
+      if(dataObject != null)
+      {
+        if(releasable)
+        {
+          dataObjectReference = new WeakReference<PdfDataObject>(dataObject);
+          if((this.dataObjectSize = dataObjectSize) > 0)
+          {file.getObjectCache().put(this, dataObject, dataObjectSize);}
+        }
+        else
+        {this.dataObject = dataObject;}
+      }
+    }
+    return dataObject;
+  }
+
+  /**
+    Ensures that the data object, in case it is held weakly, is retained for the whole session.
+  */
+  private void retainDataObject(
+    )
+  {
+    if(dataObjectReference == null)
+      return;
+
+    dataObject = dataObjectReference.get();
+    dataObjectReference = null;
+    file.getObjectCache().remove(this);
+  }
+  // </private>
   // </interface>
   // </dynamic>
   // </class>
@@ -25,6 +25,8 @@
 
 package org.pdfclown.objects;
 
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
 import org.pdfclown.bytes.IOutputStream;
 import org.pdfclown.files.File;
 
@@ -41,17 +43,59 @@ public final class PdfInteger
   // <static>
   // <fields>
   public static final PdfInteger Default = new PdfInteger(0);
+
+  private static final int CacheMaxValue = 65535;
+  private static final int CacheMinValue = -1024;
+
+  /**
+    Shared instances of the most common values (such as content stream operands, array indexes
+    and object numbers), lazily populated.
+  */
+  private static final AtomicReferenceArray<PdfInteger> cache = new AtomicReferenceArray<PdfInteger>(CacheMaxValue - CacheMinValue + 1);
   // </fields>
 
+  // <constructors>
+  static
+  {cache.set(-CacheMinValue, Default);}
+  // </constructors>
+
   // <interface>
   // <public>
   /**
     Gets the object equivalent to the given value.
+    <p>Values within the cached range are shared across invocations, as simple objects are
+    immutable.</p>
   */
   public static PdfInteger get(
     Integer value
     )
-  {return value == null ? null : new PdfInteger(value);}
+  {return value == null ? null : get(value.intValue());}
+
+  /**
+    Gets the object equivalent to the given value.
+    <p>Values within the cached range are shared across invocations, as simple objects are
+    immutable.</p>
+  */
+  public static PdfInteger get(
+    int value
+    )
+  {
+    if(value < CacheMinValue || value > CacheMaxValue)
+      return new PdfInteger(value);
+
+    int index = value - CacheMinValue;
+    PdfInteger object = cache.get(index);
+    if(object == null)
+    {
+      /*
+        NOTE: Concurrent callers may race to populate the same slot; the first one wins, so that
+        the instance is unique.
+      */
+      cache.compareAndSet(index, null, new PdfInteger(value));
+      object = cache.get(index);
+    }
+    return object;
+  }
   // </public>
   // </interface>
   // </static>
@@ -88,6 +132,11 @@ public final class PdfInteger
     )
   {return getRawValue();}
 
+  @Override
+  public long getLongValue(
+    )
+  {return getRawValue();}
+
   @Override
   public Integer getValue(
     )
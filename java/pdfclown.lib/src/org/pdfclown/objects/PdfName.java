@@ -25,6 +25,11 @@
 
 package org.pdfclown.objects;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -182,6 +187,7 @@ public final class PdfName
   public static final PdfName Direction = new PdfName("Direction");
   public static final PdfName DisplayDocTitle = new PdfName("DisplayDocTitle");
   public static final PdfName Dissolve = new PdfName("Dissolve");
+  public static final PdfName DL = new PdfName("DL");
   public static final PdfName Dm = new PdfName("Dm");
   public static final PdfName Domain = new PdfName("Domain");
   public static final PdfName DOS = new PdfName("DOS");
@@ -598,9 +604,44 @@ public final class PdfName
   public static final PdfName ZapfDingbats = new PdfName("ZapfDingbats");
   public static final PdfName Zoom = new PdfName("Zoom");
 
+  /**
+    Maximum number of canonical names besides the constants.
+  */
+  private static final int CanonicalCapacity = 16384;
   private static final byte[] NamePrefixChunk = org.pdfclown.tokens.Encoding.Pdf.encode(Keyword.NamePrefix);
+
+  /**
+    Canonical names, by raw value.
+  */
+  private static final ConcurrentMap<String,PdfName> canonicalNames = new ConcurrentHashMap<String,PdfName>(1024);
+  /**
+    Number of canonical names besides the constants.
+  */
+  private static final AtomicInteger canonicalCount = new AtomicInteger();
   // </fields>
 
+  // <constructors>
+  static
+  {
+    // Seed the canonical names with the constants!
+    try
+    {
+      for(Field field : PdfName.class.getFields())
+      {
+        if(field.getType() == PdfName.class
+          && Modifier.isStatic(field.getModifiers()))
+        {
+          PdfName name = (PdfName)field.get(null);
+          name.canonical = true;
+          canonicalNames.put(name.getRawValue(), name);
+        }
+      }
+    }
+    catch(IllegalAccessException e)
+    {throw new RuntimeException(e);}
+  }
+  // </constructors>
+
   // <interface>
   // <public>
   /**
@@ -617,12 +658,94 @@ public final class PdfName
   public static PdfName get(
     String value
     )
-  {return value == null ? null : new PdfName(value);}
+  {return get(value, false);}
+
+  /**
+    Gets the canonical object equivalent to the given value.
+    <p>Canonical names are unique per value, so that they can be compared by identity; once the
+    canonical name table is full, new values (unless constants) get non-canonical objects.</p>
+    <span style="color:red">For internal use only.</span>
+
+    @param value Name value.
+    @param escaped Whether the value has already been escaped (see {@link #PdfName(String,
+      boolean)}).
+  */
+  public static PdfName get(
+    String value,
+    boolean escaped
+    )
+  {
+    if(value == null)
+      return null;
+
+    String rawValue = (escaped ? value : escape(value));
+    PdfName name = canonicalNames.get(rawValue);
+    if(name == null)
+    {
+      name = new PdfName(rawValue, true);
+      if(canonicalCount.get() < CanonicalCapacity)
+      {
+        PdfName canonicalName = canonicalNames.putIfAbsent(rawValue, name);
+        if(canonicalName != null)
+        {name = canonicalName;}
+        else
+        {
+          /*
+            NOTE: The flag is set only once the name has been made canonical, so that there can be no
+            competing canonical names with the same value.
+          */
+          name.canonical = true;
+          canonicalCount.incrementAndGet();
+        }
+      }
+    }
+    return name;
+  }
   // </public>
+
+  // <private>
+  /**
+    Normalizes the specified value escaping reserved characters.
+  */
+  private static String escape(
+    String value
+    )
+  {
+    StringBuilder buffer = new StringBuilder();
+    int index = 0;
+    Matcher unescapedMatcher = UnescapedPattern.matcher(value);
+    while(unescapedMatcher.find())
+    {
+      int start = unescapedMatcher.start();
+      if(start > index)
+      {buffer.append(value.substring(index,start));}
+
+      buffer.append(
+        '#' + Integer.toHexString(
+          unescapedMatcher.group(0).charAt(0)
+          )
+        );
+
+      index = unescapedMatcher.end();
+    }
+    if(index < value.length())
+    {buffer.append(value.substring(index));}
+
+    return buffer.toString();
+  }
+  // </private>
   // </interface>
   // </static>
 
   // <dynamic>
+  // <fields>
+  /**
+    Whether this object is the unique canonical instance of its value (see {@link #get(String,
+    boolean)}).
+  */
+  private boolean canonical;
+  // </fields>
+
   // <constructors>
   public PdfName(
     String value
@@ -669,11 +792,30 @@ public final class PdfName
     return getRawValue().compareTo(((PdfName)obj).getRawValue());
   }
 
+  @Override
+  public boolean equals(
+    Object object
+    )
+  {
+    if(object == this)
+      return true;
+    else if(!(object instanceof PdfName))
+      return false;
+
+    PdfName name = (PdfName)object;
+    if(canonical && name.canonical) // NOTE: Canonical names are unique per value.
+      return false;
+
+    return name.getRawValue().equals(getRawValue());
+  }
+
   @Override
   public String getValue(
     )
   {return (String)super.getValue();}
 
+  /* int hashCode() uses inherited implementation. */
+
   @Override
   public String toString(
     )
@@ -724,29 +866,7 @@ public final class PdfName
       NOTE: Before being accepted, any character sequence identifying a name MUST be normalized
       escaping reserved characters.
     */
-    StringBuilder buffer = new StringBuilder();
-    {
-      String stringValue = (String)value;
-      int index = 0;
-      Matcher unescapedMatcher = UnescapedPattern.matcher(stringValue);
-      while(unescapedMatcher.find())
-      {
-        int start = unescapedMatcher.start();
-        if(start > index)
-        {buffer.append(stringValue.substring(index,start));}
-
-        buffer.append(
-          '#' + Integer.toHexString(
-            unescapedMatcher.group(0).charAt(0)
-            )
-          );
-
-        index = unescapedMatcher.end();
-      }
-      if(index < stringValue.length())
-      {buffer.append(stringValue.substring(index));}
-    }
-    setRawValue(buffer.toString());
+    setRawValue(escape((String)value));
   }
   // </protected>
   // </interface>
@@ -35,6 +35,27 @@ public abstract class PdfNumber<TValue extends Number>
   extends PdfSimpleObject<TValue>
 {
   // <class>
+  // <static>
+  // <interface>
+  // <public>
+  /**
+    Gets the object equivalent to the given integer value.
+    <p>As {@link PdfInteger} is 32-bit, integers beyond its range (such as byte offsets within files
+    larger than 2 GB) are represented as {@link PdfReal reals}, which are exact up to 2^53 and are
+    serialized without fractional part.</p>
+  */
+  public static PdfNumber<?> getInteger(
+    long value
+    )
+  {
+    return value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE
+      ? PdfInteger.get((int)value)
+      : PdfReal.get((double)value);
+  }
+  // </public>
+  // </interface>
+  // </static>
+
   // <dynamic>
   // <interface>
   // <public>
@@ -72,6 +93,12 @@ public abstract class PdfNumber<TValue extends Number>
   public abstract int getIntValue(
     );
 
+  /**
+    Gets the long integer representation of the value.
+  */
+  public abstract long getLongValue(
+    );
+
   @Override
   public Number getValue(
     )
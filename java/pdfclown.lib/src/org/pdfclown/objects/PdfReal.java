@@ -25,6 +25,8 @@
 
 package org.pdfclown.objects;
 
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
 import org.pdfclown.bytes.IOutputStream;
 import org.pdfclown.files.File;
 
@@ -39,6 +41,18 @@ public final class PdfReal
 {
   // <class>
   // <static>
+  // <fields>
+  private static final int CacheSize = 1024; // NOTE: Power of 2.
+
+  /**
+    Shared instances of recently requested values.
+    <p>Content streams typically repeat the same coordinates and widths over and over: this
+    direct-mapped cache keeps the last instance hashed to each slot, so that repeated values share
+    the same object while new ones simply overwrite their slot.</p>
+  */
+  private static final AtomicReferenceArray<PdfReal> cache = new AtomicReferenceArray<PdfReal>(CacheSize);
+  // </fields>
+
   // <interface>
   // <public>
   /**
@@ -47,15 +61,30 @@ public final class PdfReal
   public static PdfReal get(
     Number value
     )
-  {
-    if(value == null)
-      return null;
+  {return value == null ? null : get(value.doubleValue());}
 
-    double doubleValue = value.doubleValue();
-    if(Double.isNaN(doubleValue))
+  /**
+    Gets the object equivalent to the given value.
+  */
+  public static PdfReal get(
+    double value
+    )
+  {
+    if(Double.isNaN(value))
       return null;
 
-    return new PdfReal(doubleValue);
+    /*
+      NOTE: Values are matched by their bit pattern, so that distinct representations (such as
+      negative zero) are preserved.
+    */
+    long bits = Double.doubleToLongBits(value);
+    int hash = (int)(bits ^ (bits >>> 32));
+    int index = (hash ^ (hash >>> 16)) & (CacheSize - 1);
+    PdfReal object = cache.get(index);
+    if(object == null
+      || Double.doubleToLongBits(object.getRawValue()) != bits)
+    {cache.set(index, object = new PdfReal(value));}
+    return object;
   }
   // </public>
   // </interface>
@@ -93,6 +122,11 @@ public final class PdfReal
     )
   {return (int)Math.round(getRawValue());}
 
+  @Override
+  public long getLongValue(
+    )
+  {return Math.round(getRawValue());}
+
   @Override
   public Double getValue(
     )
@@ -115,8 +115,9 @@ public final class PdfReference
       return false;
     
     PdfReference otherReference = (PdfReference)other;
-    return otherReference.getFile() == getFile()
-        && otherReference.getId().equals(getId());
+    return otherReference.getObjectNumber() == getObjectNumber()
+        && otherReference.getGenerationNumber() == getGenerationNumber()
+        && otherReference.getFile() == getFile();
   }
 
   @Override
@@ -165,9 +166,9 @@ public final class PdfReference
   {
     /*
       NOTE: Uniqueness should be achieved XORring the (local) reference hash-code with the (global)
-      file hash-code.
+      file hash-code. The generation number is left out as it's almost always zero.
     */
-    return getId().hashCode() ^ getFile().hashCode();
+    return getObjectNumber() ^ getFile().hashCode();
   }
 
   @Override
@@ -26,17 +26,28 @@
 package org.pdfclown.objects;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
 import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import org.pdfclown.PDF;
 import org.pdfclown.VersionEnum;
 import org.pdfclown.bytes.Buffer;
 import org.pdfclown.bytes.IBuffer;
 import org.pdfclown.bytes.IOutputStream;
+import org.pdfclown.bytes.InputStreamAdapter;
+import org.pdfclown.bytes.LazyBuffer;
 import org.pdfclown.bytes.filters.Filter;
+import org.pdfclown.bytes.filters.FlateFilter;
 import org.pdfclown.documents.files.FileSpecification;
 import org.pdfclown.documents.files.IFileResource;
 import org.pdfclown.files.File;
+import org.pdfclown.files.FileConfiguration;
 import org.pdfclown.tokens.Encoding;
 import org.pdfclown.tokens.Keyword;
 import org.pdfclown.tokens.Symbol;
@@ -62,6 +73,10 @@ public class PdfStream
   // <dynamic>
   // <fields>
   IBuffer body;
+  /**
+    Decoded view of the body (see {@link #getBody(boolean)}).
+  */
+  volatile WeakReference<IBuffer> decodedBodyReference;
   PdfDictionary header;
 
   private PdfObject parent;
@@ -69,6 +84,10 @@ public class PdfStream
   private boolean updated;
   private boolean virtual;
 
+  /**
+    Body encoding started ahead of serialization (see {@link #scheduleBodyEncoding(File, Executor)}).
+  */
+  private Future<byte[]> bodyEncoding;
   /**
     Indicates whether {@link #body} has already been resolved and therefore contains the actual
     stream data.
@@ -121,7 +140,11 @@ public class PdfStream
       public void onChange(
         IBuffer buffer
         )
-      {update();}
+      {
+        discardDecodedBody();
+        cancelBodyEncoding();
+        update();
+      }
     });
   }
   // </constructors>
@@ -157,10 +180,19 @@ public class PdfStream
 
   /**
     Gets the stream body.
+    <p>The decoded body is a view over the encoded data, which are left untouched: as long as the
+    view isn't modified, the stream is serialized with its original encoded data; on its first
+    modification, the view replaces the encoded data, dismissing the encoding filters. Decoded views
+    are {@link org.pdfclown.files.FileConfiguration#getStreamCacheSize() cached} for repeated
+    reads.</p>
+    <p>The body is resolved atomically, so that {@link
+    org.pdfclown.files.FileConfiguration#isConcurrentReadEnabled() concurrent readers} get the same
+    view; as views keep their own pointer, such readers should access them through absolute reads
+    or {@link org.pdfclown.bytes.IConcurrentInputStream#duplicate() duplicates}.</p>
 
     @param decode Defines whether the body has to be decoded.
   */
-  public IBuffer getBody(
+  public synchronized IBuffer getBody(
     boolean decode
     )
   {
@@ -180,39 +212,55 @@ public class PdfStream
       }
       bodyResolved = true;
     }
-    if(decode)
+    if(decode && getFilter() != null) // Stream encoded.
+      return getDecodedBody();
+
+    return body;
+  }
+
+  /**
+    Gets a stream reading the decoded stream body incrementally.
+    <p>Differently from {@link #getBody()}, this stream object is left untouched: its encoding
+    filters are lazily chained over the encoded data, so that large bodies (such as images) can be
+    consumed without holding their whole decoded data in memory.</p>
+  */
+  public InputStream getBodyStream(
+    )
+  {
+    IBuffer body = getBody(false); // Ensures external data are resolved.
+    IBuffer decodedBody = (decodedBodyReference != null ? decodedBodyReference.get() : null);
+    if(decodedBody != null)
+      return new InputStreamAdapter(decodedBody, 0, decodedBody.getLength());
+
+    InputStream stream = (body instanceof LazyBuffer
+      ? ((LazyBuffer)body).getInputStream()
+      : new InputStreamAdapter(body, 0, body.getLength()));
+
+    PdfDataObject filter = getFilter();
+    if(filter != null) // Stream encoded.
     {
-      PdfDataObject filter = getFilter();
-      if(filter != null) // Stream encoded.
+      PdfDataObject parameters = getParameters();
+      if(filter instanceof PdfName) // Single filter.
+      {
+        stream = Filter.get((PdfName)filter).decode(
+          stream,
+          (PdfDictionary)parameters
+          );
+      }
+      else // Multiple filters.
       {
-        header.setUpdateable(false);
-        PdfDataObject parameters = getParameters();
-        if(filter instanceof PdfName) // Single filter.
+        Iterator<PdfDirectObject> filterIterator = ((PdfArray)filter).iterator();
+        Iterator<PdfDirectObject> parametersIterator = (parameters != null ? ((PdfArray)parameters).iterator() : null);
+        while(filterIterator.hasNext())
         {
-          body.decode(
-            Filter.get((PdfName)filter),
-            (PdfDictionary)parameters
+          stream = Filter.get((PdfName)resolve(filterIterator.next())).decode(
+            stream,
+            (PdfDictionary)(parametersIterator != null ? resolve(parametersIterator.next()) : null)
             );
         }
-        else // Multiple filters.
-        {
-          Iterator<PdfDirectObject> filterIterator = ((PdfArray)filter).iterator();
-          Iterator<PdfDirectObject> parametersIterator = (parameters != null ? ((PdfArray)parameters).iterator() : null);
-          while(filterIterator.hasNext())
-          {
-            body.decode(
-              Filter.get((PdfName)resolve(filterIterator.next())),
-              (PdfDictionary)(parametersIterator != null ? resolve(parametersIterator.next()) : null)
-              );
-          }
-        }
-        // The stream is free from encodings.
-        setFilter(null);
-        setParameters(null);
-        header.setUpdateable(true);
       }
     }
-    return body;
+    return stream;
   }
 
   public PdfDirectObject getFilter(
@@ -279,6 +327,7 @@ public class PdfStream
       external        | null            | true      | G. Import old file to local.
       ----------------------------------------------------------------------------------------------
     */
+    discardDecodedBody();
     FileSpecification<?> oldDataFile = getDataFile();
     PdfDirectObject dataFileObject = (value != null ? value.getBaseObject() : null);
     if(value != null)
@@ -356,6 +405,10 @@ public class PdfStream
     )
   {
     PdfStream otherStream = (PdfStream)other;
+    otherStream.discardDecodedBody();
+    otherStream.cancelBodyEncoding();
+    this.discardDecodedBody();
+    this.cancelBodyEncoding();
     PdfDictionary otherHeader = otherStream.header;
     IBuffer otherBody = otherStream.body;
     // Update the other!
@@ -391,21 +444,18 @@ public class PdfStream
         FileSpecification<?> dataFile = getDataFile();
         if(dataFile == null || (bodyResolved && body.isDirty()))
         {
-          /*
-            NOTE: In order to keep the contents of metadata streams visible as plain text to tools
-            that are not PDF-aware, no filter is applied to them [PDF:1.7:10.2.2].
-          */
-          if(getFilter() == null
-            && context.getConfiguration().isStreamFilterEnabled()
-            && !PdfName.Metadata.equals(header.get(PdfName.Type))) // Filter needed.
+          if(isFilterNeeded(context)) // Filter needed.
           {
             // Apply the filter to the stream!
+            bodyData = encodeBody(context);
             setFilter(PdfName.FlateDecode);
-            bodyData = body.encode(Filter.get((PdfName)getFilter()), null);
             filterApplied = true;
           }
           else // No filter needed.
-          {bodyData = body.toByteArray();}
+          {
+            cancelBodyEncoding();
+            bodyData = body.toByteArray();
+          }
 
           if(dataFile != null)
           {
@@ -510,12 +560,250 @@ public class PdfStream
   // </protected>
 
   // <internal>
+  /**
+    Cancels the body encoding started ahead of serialization, if any.
+    <span style="color:red">For internal use only.</span>
+  */
+  public void cancelBodyEncoding(
+    )
+  {
+    if(bodyEncoding != null)
+    {
+      bodyEncoding.cancel(false);
+      bodyEncoding = null;
+    }
+  }
+
+  /**
+    Starts encoding the body ahead of serialization, in case it has to be filtered.
+    <p>The next {@link #writeTo(IOutputStream, File) serialization} collects the encoded body
+    instead of encoding it by itself.</p>
+    <span style="color:red">For internal use only.</span>
+
+    @param context File this stream is going to be serialized into.
+    @param executor Encoding executor.
+    @return Whether the encoding has been started.
+  */
+  public boolean scheduleBodyEncoding(
+    File context,
+    Executor executor
+    )
+  {
+    cancelBodyEncoding();
+    FileSpecification<?> dataFile = getDataFile();
+    if(!(dataFile == null || (bodyResolved && body.isDirty()))
+      || !isFilterNeeded(context))
+      return false;
+
+    /*
+      NOTE: Decode parameters may refer to indirect objects, whose resolution involves the parser,
+      which is confined to the calling thread: such bodies are left to serial encoding.
+    */
+    if(getEncodingParameters() != null)
+      return false;
+
+    /*
+      NOTE: Lazy bodies have to be loaded here, as their source stream is shared with the parser.
+    */
+    if(body instanceof LazyBuffer)
+    {((LazyBuffer)body).load();}
+    final IBuffer body = this.body;
+    final Filter filter = getEncodingFilter(context);
+    FutureTask<byte[]> bodyEncoding = new FutureTask<byte[]>(
+      new Callable<byte[]>()
+      {
+        @Override
+        public byte[] call(
+          )
+        {return body.encode(filter, null);}
+      }
+      );
+    executor.execute(bodyEncoding);
+    this.bodyEncoding = bodyEncoding;
+    return true;
+  }
+
   @Override
   void setParent(
     PdfObject value
     )
   {parent = value;}
   // </internal>
+
+  // <private>
+  /**
+    Decodes the body into a new buffer, leaving the encoded data untouched.
+  */
+  private IBuffer decodeBody(
+    )
+  {
+    IBuffer decodedBody = (body instanceof LazyBuffer
+      ? new Buffer(((LazyBuffer)body).getInputStream())
+      : new Buffer(body.toByteArray()));
+    PdfDataObject filter = getFilter();
+    PdfDataObject parameters = getParameters();
+    if(filter instanceof PdfName) // Single filter.
+    {
+      decodedBody.decode(
+        Filter.get((PdfName)filter),
+        getDecodeParameters((PdfDictionary)parameters, true)
+        );
+    }
+    else // Multiple filters.
+    {
+      Iterator<PdfDirectObject> filterIterator = ((PdfArray)filter).iterator();
+      Iterator<PdfDirectObject> parametersIterator = (parameters != null ? ((PdfArray)parameters).iterator() : null);
+      while(filterIterator.hasNext())
+      {
+        Filter bodyFilter = Filter.get((PdfName)resolve(filterIterator.next()));
+        decodedBody.decode(
+          bodyFilter,
+          getDecodeParameters(
+            (PdfDictionary)(parametersIterator != null ? resolve(parametersIterator.next()) : null),
+            !filterIterator.hasNext()
+            )
+          );
+      }
+    }
+    decodedBody.addListener(new IBuffer.IListener()
+    {
+      @Override
+      public void onChange(
+        IBuffer buffer
+        )
+      {
+        if(buffer != body)
+        {
+          // The modified view replaces the encoded data!
+          discardDecodedBody();
+          body = buffer;
+          header.setUpdateable(false);
+          setFilter(null);
+          setParameters(null);
+          header.setUpdateable(true);
+        }
+        cancelBodyEncoding();
+        update();
+      }
+    });
+    return decodedBody;
+  }
+
+  /**
+    Discards the decoded view of the body.
+  */
+  private void discardDecodedBody(
+    )
+  {
+    if(decodedBodyReference == null)
+      return;
+
+    decodedBodyReference = null;
+    File file = getFile();
+    if(file != null)
+    {file.getDecodedStreamCache().remove(this);}
+  }
+
+  /**
+    Gets the encoded body for serialization.
+  */
+  private byte[] encodeBody(
+    File context
+    )
+  {
+    if(bodyEncoding == null)
+      return body.encode(getEncodingFilter(context), getEncodingParameters());
+
+    try
+    {return bodyEncoding.get();}
+    catch(InterruptedException e)
+    {throw new RuntimeException(e);}
+    catch(ExecutionException e)
+    {
+      Throwable cause = e.getCause();
+      throw cause instanceof RuntimeException ? (RuntimeException)cause : new RuntimeException(cause);
+    }
+    finally
+    {bodyEncoding = null;}
+  }
+
+  /**
+    Gets the parameters to decode the body through a filter.
+    <p>The decoded length hint ({@link PdfName#DL}) describes the output of the last filter of the
+    chain, so it's passed to it along with its own parameters.</p>
+
+    @param parameters Filter parameters.
+    @param last Whether the filter is the last of the chain.
+  */
+  private PdfDictionary getDecodeParameters(
+    PdfDictionary parameters,
+    boolean last
+    )
+  {
+    if(!last)
+      return parameters;
+
+    PdfDataObject decodedLength = header.resolve(PdfName.DL);
+    if(!(decodedLength instanceof PdfInteger))
+      return parameters;
+
+    PdfDictionary decodeParameters = (parameters != null
+      ? new PdfDictionary(parameters)
+      : new PdfDictionary());
+    decodeParameters.put(PdfName.DL, (PdfInteger)decodedLength);
+    return decodeParameters;
+  }
+
+  /**
+    Gets the decoded view of the body.
+    <p>The view is retained as long as it is either referenced or cached.</p>
+  */
+  private IBuffer getDecodedBody(
+    )
+  {
+    IBuffer decodedBody = (decodedBodyReference != null ? decodedBodyReference.get() : null);
+    if(decodedBody == null)
+    {decodedBodyReference = new WeakReference<IBuffer>(decodedBody = decodeBody());}
+
+    File file = getFile();
+    if(file != null)
+    {file.getDecodedStreamCache().put(this, decodedBody);}
+
+    return decodedBody;
+  }
+
+  private Filter getEncodingFilter(
+    File context
+    )
+  {
+    FileConfiguration configuration = context.getConfiguration();
+    return FlateFilter.get(configuration.getCompressionLevel(), configuration.getCompressionStrategy());
+  }
+
+  private PdfDictionary getEncodingParameters(
+    )
+  {
+    /*
+      NOTE: Decode parameters preset on an unfiltered stream define the prediction to apply along
+      with the filter (see XRefStream).
+    */
+    PdfDirectObject parameters = getParameters();
+    return parameters instanceof PdfDictionary ? (PdfDictionary)parameters : null;
+  }
+
+  private boolean isFilterNeeded(
+    File context
+    )
+  {
+    /*
+      NOTE: In order to keep the contents of metadata streams visible as plain text to tools that
+      are not PDF-aware, no filter is applied to them [PDF:1.7:10.2.2].
+    */
+    return getFilter() == null
+      && context.getConfiguration().isStreamFilterEnabled()
+      && !PdfName.Metadata.equals(header.get(PdfName.Type));
+  }
+  // </private>
   // </interface>
   // </dynamic>
   // </class>
@@ -34,8 +34,8 @@ import org.pdfclown.objects.PdfDataObject;
 import org.pdfclown.objects.PdfDate;
 import org.pdfclown.objects.PdfDictionary;
 import org.pdfclown.objects.PdfDirectObject;
-import org.pdfclown.objects.PdfInteger;
 import org.pdfclown.objects.PdfName;
+import org.pdfclown.objects.PdfNumber;
 import org.pdfclown.objects.PdfReal;
 import org.pdfclown.objects.PdfString;
 import org.pdfclown.objects.PdfTextString;
@@ -80,19 +80,16 @@ public class BaseParser
       if(tokenType == TokenTypeEnum.Comment)
         continue; // Comments are ignored.
 
-      if(tokenType == TokenTypeEnum.Literal)
+      if(tokenType == TokenTypeEnum.Literal
+        && tokenStartsWith(Keyword.DatePrefix)) // Date.
       {
-        String literalToken = (String)getToken();
-        if(literalToken.startsWith(Keyword.DatePrefix)) // Date.
-        {
-          /*
-            NOTE: Dates are a weak extension to the PostScript language.
-          */
-          try
-          {setToken(PdfDate.toDate(literalToken));}
-          catch(ParseException e)
-          {/* NOOP: gently degrade to a common literal. */}
-        }
+        /*
+          NOTE: Dates are a weak extension to the PostScript language.
+        */
+        try
+        {setToken(PdfDate.toDate((String)getToken()));}
+        catch(ParseException e)
+        {/* NOOP: gently degrade to a common literal. */}
       }
       break;
     }
@@ -108,9 +105,9 @@ public class BaseParser
     switch(getTokenType())
     {
       case Integer:
-        return PdfInteger.get((Integer)getToken());
+        return PdfNumber.getInteger(getIntegerValue());
       case Name:
-        return new PdfName((String)getToken(),true);
+        return PdfName.get((String)getToken(), true);
       case DictionaryBegin:
       {
         PdfDictionary dictionary = new PdfDictionary();
@@ -144,7 +141,9 @@ public class BaseParser
         return array;
       }
       case Literal:
-        if(getToken() instanceof Date)
+        if(!tokenStartsWith(Keyword.DatePrefix))
+          return new PdfTextString(getTokenBytes());
+        else if(getToken() instanceof Date)
           return PdfDate.get((Date)getToken());
         else
           return new PdfTextString(
@@ -156,7 +155,7 @@ public class BaseParser
           PdfString.SerializationModeEnum.Hex
           );
       case Real:
-        return PdfReal.get((Double)getToken());
+        return PdfReal.get(getRealValue());
       case Boolean:
         return PdfBoolean.get((Boolean)getToken());
       case Null:
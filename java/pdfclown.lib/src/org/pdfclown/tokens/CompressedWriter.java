@@ -27,14 +27,16 @@ package org.pdfclown.tokens;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.pdfclown.bytes.IOutputStream;
 import org.pdfclown.files.File;
 import org.pdfclown.files.IndirectObjects;
 import org.pdfclown.objects.PdfIndirectObject;
-import org.pdfclown.objects.PdfInteger;
 import org.pdfclown.objects.PdfName;
+import org.pdfclown.objects.PdfNumber;
+import org.pdfclown.util.IntArrayMap;
 import org.pdfclown.util.NotImplementedException;
 
 /**
@@ -72,8 +74,7 @@ final class CompressedWriter
     )
   {
     // 1. Original content (header, body and previous trailer).
-    FileParser parser = file.getReader().getParser();
-    stream.write(parser.getStream());
+    writeOriginal();
 
     // 2. Body update (modified indirect objects insertion).
     XRefEntry xrefStreamEntry;
@@ -100,8 +101,24 @@ final class CompressedWriter
       */
       Map<Integer,ObjectStream> extensionObjectStreams = new HashMap<Integer,ObjectStream>();
       int indirectObjectsPrecompressCount = indirectObjects.size();
-      for(PdfIndirectObject indirectObject : new ArrayList<PdfIndirectObject>(indirectObjects.getModifiedObjects().values()))
+      IntArrayMap<PdfIndirectObject> updatedObjects = getUpdatedObjects();
+      List<PdfIndirectObject> modifiedObjects = new ArrayList<PdfIndirectObject>(updatedObjects.values());
+      beginObjects(modifiedObjects.iterator());
+      for(PdfIndirectObject indirectObject : modifiedObjects)
       {
+        if(indirectObject.isCompressed())
+        {
+          int streamNumber = indirectObject.getXrefEntry().getStreamNumber();
+          if(!updatedObjects.containsKey(streamNumber)
+            && !indirectObjects.get(streamNumber).isOriginal())
+          {
+            /*
+              NOTE: Its object stream, registered by a previous update, isn't part of this one, so
+              it has to be compressed again along with the other modified objects.
+            */
+            indirectObject.uncompress();
+          }
+        }
         if(indirectObject.isCompressible())
         {
           if(objectStream == null
@@ -135,7 +152,7 @@ final class CompressedWriter
 
       // 2.2. XRef stream.
       updateTrailer(xrefStream.getHeader(), stream);
-      xrefStream.getHeader().put(PdfName.Prev, PdfInteger.get((int)parser.retrieveXRefOffset()));
+      xrefStream.getHeader().put(PdfName.Prev, PdfNumber.getInteger(getPrevXRefOffset()));
       addXRefEntry(
         /*
           NOTE: This xref stream indirect object is purposely temporary (i.e. not registered into the
@@ -144,7 +161,7 @@ final class CompressedWriter
         new PdfIndirectObject(
           file,
           xrefStream,
-          xrefStreamEntry = new XRefEntry(indirectObjects.size(), 0, (int)stream.getLength(), XRefEntry.UsageEnum.InUse)
+          xrefStreamEntry = new XRefEntry(indirectObjects.size(), 0, stream.getLength(), XRefEntry.UsageEnum.InUse)
           ),
         xrefStream,
         null,
@@ -184,6 +201,7 @@ final class CompressedWriter
       // Indirect objects serialization.
       XRefEntry prevFreeEntry = null;
       ObjectStream objectStream = null;
+      beginObjects(indirectObjects.iterator());
       for(PdfIndirectObject indirectObject : indirectObjects)
       {
         if(indirectObject.isCompressible())
@@ -214,7 +232,7 @@ final class CompressedWriter
         new PdfIndirectObject(
           file,
           xrefStream,
-          xrefStreamEntry = new XRefEntry(indirectObjects.size(), 0, (int)stream.getLength(), XRefEntry.UsageEnum.InUse)
+          xrefStreamEntry = new XRefEntry(indirectObjects.size(), 0, stream.getLength(), XRefEntry.UsageEnum.InUse)
           ),
         xrefStream,
         null,
@@ -259,9 +277,9 @@ final class CompressedWriter
     {
       case InUse:
       {
-        int offset = (int)stream.getLength();
+        long offset = stream.getLength();
         // Add entry content!
-        indirectObject.writeTo(stream, file);
+        writeObject(indirectObject);
         // Set entry content's offset!
         xrefEntry.setOffset(offset);
       }
@@ -27,8 +27,9 @@ package org.pdfclown.tokens;
 
 import java.io.EOFException;
 
-import org.pdfclown.bytes.Buffer;
+import org.pdfclown.bytes.IBuffer;
 import org.pdfclown.bytes.IInputStream;
+import org.pdfclown.bytes.LazyBuffer;
 import org.pdfclown.files.File;
 import org.pdfclown.objects.PdfDataObject;
 import org.pdfclown.objects.PdfDictionary;
@@ -77,12 +78,38 @@ public final class FileParser
   // <static>
   // <fields>
   private static final int EOFMarkerChunkSize = 1024; // [PDF:1.6:H.3.18].
+  /**
+    Number of tokens which may follow the current one to match an indirect reference.
+  */
+  private static final int LookaheadCapacity = 2;
   // </fields>
+
+  // <interface>
+  // <private>
+  private static boolean isIntValue(
+    long value
+    )
+  {return value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE;}
+  // </private>
+  // </interface>
   // </static>
 
   // <dynamic>
   // <fields>
   private final File file;
+
+  private final TokenState currentToken = new TokenState();
+  /**
+    Ring buffer of the tokens already scanned past the current one.
+  */
+  private final TokenState[] lookahead = new TokenState[LookaheadCapacity];
+  private int lookaheadCount;
+  /**
+    Stream position the lookahead tokens follow (they are valid only as long as the stream is
+    still there).
+  */
+  private long lookaheadPosition;
+  private int lookaheadStart;
   // </fields>
 
   // <constructors>
@@ -93,6 +120,8 @@ public final class FileParser
   {
     super(stream);
     this.file = file;
+    for(int index = 0; index < LookaheadCapacity; index++)
+    {lookahead[index] = new TokenState();}
   }
   // </constructors>
 
@@ -106,51 +135,41 @@ public final class FileParser
   public boolean moveNext(
     )
   {
-    boolean moved = super.moveNext();
-    if(moved)
+    if(!fetchToken())
+      return false;
+
+    if(getTokenType() == TokenTypeEnum.Integer
+      && isIntValue(getIntegerValue())) // NOTE: Long integers (beyond 32-bit range) can't be object numbers.
     {
-      switch(getTokenType())
+      /*
+        NOTE: We need to verify whether indirect reference pattern is applicable:
+        ref :=  { int int 'R' }
+        The tokens following the current one are buffered as lookahead, so that, in case the pattern
+        doesn't match, they are later restored without being scanned again.
+      */
+      saveToken(currentToken);
+      fillLookahead();
+      if(lookaheadCount == LookaheadCapacity)
       {
-        case Integer:
-        {
-          /*
-            NOTE: We need to verify whether indirect reference pattern is applicable:
-            ref :=  { int int 'R' }
-          */
-          IInputStream stream = getStream();
-          long baseOffset = stream.getPosition(); // Backs up the recovery position.
-
-          // 1. Object number.
-          int objectNumber = (Integer)getToken();
-          // 2. Generation number.
-          super.moveNext();
-          if(getTokenType() == TokenTypeEnum.Integer)
-          {
-            int generationNumber = (Integer)getToken();
-            // 3. Reference keyword.
-            super.moveNext();
-            if(getTokenType() == TokenTypeEnum.Keyword
-              && getToken().equals(Keyword.Reference))
-            {setToken(new Reference(objectNumber,generationNumber));}
-          }
-          if(!(getToken() instanceof Reference))
-          {
-            // Rollback!
-            try
-            {stream.seek(baseOffset);}
-            catch(EOFException e)
-            {throw new RuntimeException(e);}
-            setToken(objectNumber);
-            setTokenType(TokenTypeEnum.Integer);
-          }
-        } break;
-        default:
+        TokenState generationToken = lookahead[lookaheadStart];
+        TokenState referenceToken = lookahead[(lookaheadStart + 1) % LookaheadCapacity];
+        if(generationToken.getTokenType() == TokenTypeEnum.Integer
+          && isIntValue(generationToken.getIntegerValue())
+          && referenceToken.getTokenType() == TokenTypeEnum.Keyword
+          && referenceToken.tokenEquals(Keyword.Reference))
         {
-          /* NOOP */
+          int objectNumber = (int)currentToken.getIntegerValue();
+          lookaheadCount = 0;
+          restoreToken(referenceToken);
+          setToken(new Reference(objectNumber, (int)generationToken.getIntegerValue()));
+          return true;
         }
       }
+      // Rollback!
+      restoreToken(currentToken);
+      lookaheadPosition = currentToken.getPosition();
     }
-    return moved;
+    return true;
   }
 
   @Override
@@ -163,6 +182,14 @@ public final class FileParser
         if(getToken() instanceof Reference)
         {
           Reference reference = (Reference)getToken();
+          /*
+            NOTE: Each occurrence gets its own reference instance, as references are bound to the
+            object containing them (see PdfObject.include(..)): such binding is relied upon to
+            navigate from a reference to its container (e.g. Tree node removal, LayerConfiguration
+            and PdfObjectWrapper.getContainer()) and to propagate updates. Sharing a canonical
+            instance per object would therefore require containers to bind their references on
+            access, which is not supported.
+          */
           return new PdfReference(reference.getObjectNumber(), reference.getGenerationNumber(), file);
         }
         break;
@@ -182,7 +209,7 @@ public final class FileParser
         moveNext();
         // Is this dictionary the header of a stream object [PDF:1.6:3.2.7]?
         if(getTokenType() == TokenTypeEnum.Keyword
-          && getToken().equals(Keyword.BeginStream)) // Stream.
+          && tokenEquals(Keyword.BeginStream)) // Stream.
         {
           PdfDictionary streamHeader = (PdfDictionary)pdfObject;
   
@@ -193,32 +220,60 @@ public final class FileParser
           */
           long position = stream.getPosition();
           // Get the stream length!
-          int length = ((PdfInteger)streamHeader.resolve(PdfName.Length)).getValue();
+          boolean recoveryEnabled = file.getConfiguration().isXRefRecoveryEnabled();
+          int length = (recoveryEnabled
+            ? getStreamLength(streamHeader)
+            : ((PdfInteger)streamHeader.resolve(PdfName.Length)).getValue());
           // Move to the stream data beginning!
           stream.seek(position);
           skipEOL();
-  
-          // Copy the stream data to the instance!
-          byte[] data = new byte[length];
-          stream.read(data);
-  
-          moveNext(); // Postcondition (last token should be 'endstream' keyword).
+          long dataPosition = stream.getPosition();
+          /*
+            NOTE: Damaged files may declare a wrong stream length (or refer to an object which
+            can't be resolved yet, while the file is being opened): the actual length is then
+            inferred from the position of the stream end (see
+            FileConfiguration#isXRefRecoveryEnabled()). The declared length is verified through the
+            token following the data, which has to be read anyway, so that intact streams cost no
+            additional probe.
+          */
+          if(recoveryEnabled
+            && (length < 0 || dataPosition + length > stream.getLength())) // Invalid stream length.
+          {length = findStreamLength(dataPosition);}
+          stream.seek(dataPosition + length);
+          if(recoveryEnabled)
+          {
+            if(!isStreamEnd()) // Unreliable stream length.
+            {
+              length = findStreamLength(dataPosition);
+              stream.seek(dataPosition + length);
+              moveNext(); // Postcondition (last token should be 'endstream' keyword).
+            }
+          }
+          else
+          {moveNext();} // Postcondition (last token should be 'endstream' keyword).
+
+          // Bind the stream data to the instance!
+          /*
+            NOTE: Stream data are loaded on demand, so that objects whose body is never accessed
+            don't waste memory.
+          */
+          IBuffer data = new LazyBuffer(stream, dataPosition, length);
   
           Object streamType = streamHeader.get(PdfName.Type);
           if(PdfName.ObjStm.equals(streamType)) // Object stream [PDF:1.6:3.4.6].
             return new ObjectStream(
               streamHeader,
-              new Buffer(data)
+              data
               );
           else if(PdfName.XRef.equals(streamType)) // Cross-reference stream [PDF:1.6:3.4.7].
             return new XRefStream(
               streamHeader,
-              new Buffer(data)
+              data
               );
           else // Generic stream.
             return new PdfStream(
               streamHeader,
-              new Buffer(data)
+              data
               );
         }
         else // Stand-alone dictionary.
@@ -247,7 +302,7 @@ public final class FileParser
     
     // Empty indirect object?
     if(getTokenType() == TokenTypeEnum.Keyword
-        && Keyword.EndIndirectObject.equals(getToken()))
+        && tokenEquals(Keyword.EndIndirectObject))
       return null; 
     
     // Get the indirect data object!
@@ -314,12 +369,126 @@ public final class FileParser
       if(getTokenType() != TokenTypeEnum.Integer)
         throw new PostScriptParseException("'" + Keyword.StartXRef + "' value invalid.", this);
   
-      return (Integer)getToken();
+      return getIntegerValue();
     }
     catch(EOFException e)
     {throw new RuntimeException(e);}
   }
   // </public>
+
+  // <private>
+  /**
+    Gets the length of the stream data starting at the specified position, searching for the
+    stream end.
+  */
+  private int findStreamLength(
+    long dataPosition
+    ) throws EOFException
+  {
+    IInputStream stream = getStream();
+    String endKeyword = Keyword.EndStream;
+    stream.seek(dataPosition);
+    int matchLength = 0;
+    while(matchLength < endKeyword.length())
+    {
+      int c = stream.readUnsignedByte(); // NOTE: EOF means there's no stream end.
+      if(c == endKeyword.charAt(matchLength))
+      {matchLength++;}
+      else
+      {matchLength = (c == endKeyword.charAt(0) ? 1 : 0);}
+    }
+    long endPosition = stream.getPosition() - endKeyword.length();
+    // Exclude the EOL marker preceding the stream end!
+    if(endPosition > dataPosition)
+    {
+      stream.seek(endPosition - 1);
+      if(stream.readUnsignedByte() == Symbol.LineFeed)
+      {endPosition--;}
+    }
+    if(endPosition > dataPosition)
+    {
+      stream.seek(endPosition - 1);
+      if(stream.readUnsignedByte() == Symbol.CarriageReturn)
+      {endPosition--;}
+    }
+    return (int)(endPosition - dataPosition);
+  }
+
+  /**
+    Gets the declared length of the stream data.
+
+    @return <code>-1</code>, if unavailable.
+  */
+  private int getStreamLength(
+    PdfDictionary streamHeader
+    )
+  {
+    if(file.getIndirectObjects() == null // NOTE: Indirect objects are undefined while the file is being opened.
+      && streamHeader.get(PdfName.Length) instanceof PdfReference)
+      return -1;
+
+    PdfDataObject length = streamHeader.resolve(PdfName.Length);
+    return length instanceof PdfInteger ? ((PdfInteger)length).getValue() : -1;
+  }
+
+  /**
+    Moves the pointer to the next token, checking whether it's the stream end.
+  */
+  private boolean isStreamEnd(
+    )
+  {
+    try
+    {
+      return moveNext()
+        && getTokenType() == TokenTypeEnum.Keyword
+        && tokenEquals(Keyword.EndStream);
+    }
+    catch(PostScriptParseException e)
+    {return false;}
+  }
+
+  /**
+    Moves the pointer to the next token, consuming the lookahead tokens first.
+  */
+  private boolean fetchToken(
+    )
+  {
+    if(lookaheadCount > 0)
+    {
+      if(getPosition() == lookaheadPosition)
+      {
+        TokenState token = lookahead[lookaheadStart];
+        lookaheadStart = (lookaheadStart + 1) % LookaheadCapacity;
+        lookaheadCount--;
+        restoreToken(token);
+        lookaheadPosition = token.getPosition();
+        return true;
+      }
+      else // Pointer moved away (lookahead tokens are stale).
+      {lookaheadCount = 0;}
+    }
+    return super.moveNext();
+  }
+
+  /**
+    Scans the tokens following the current one until the lookahead is full.
+  */
+  private void fillLookahead(
+    )
+  {
+    if(lookaheadCount > 0)
+    {seek(lookahead[(lookaheadStart + lookaheadCount - 1) % LookaheadCapacity].getPosition());}
+    else
+    {lookaheadStart = 0;}
+    while(lookaheadCount < LookaheadCapacity)
+    {
+      if(!super.moveNext())
+        break;
+
+      saveToken(lookahead[(lookaheadStart + lookaheadCount++) % LookaheadCapacity]);
+    }
+  }
+  // </private>
   // </interface>
   // </dynamic>
   // </class>
@@ -25,12 +25,16 @@
 
 package org.pdfclown.tokens;
 
+import java.io.InputStream;
+import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 import org.pdfclown.bytes.Buffer;
@@ -48,6 +52,7 @@ import org.pdfclown.objects.PdfName;
 import org.pdfclown.objects.PdfObject;
 import org.pdfclown.objects.PdfStream;
 import org.pdfclown.util.MapEntry;
+import org.pdfclown.util.io.IOUtils;
 
 /**
   Object stream containing a sequence of PDF objects [PDF:1.6:3.4.6].
@@ -64,50 +69,36 @@ public final class ObjectStream
   implements Map<Integer,PdfDataObject>
 {
   // <class>
-  // <classes>
-  private final class ObjectEntry
-  {
-    private PdfDataObject dataObject;
-    private int offset;
-
-    public ObjectEntry(
-      int offset
-      )
-    {
-      this.dataObject = null;
-      this.offset = offset;
-    }
-
-    public ObjectEntry(
-      PdfDataObject dataObject
-      )
-    {
-      this.dataObject = dataObject;
-      this.offset = -1; // Undefined -- to set on stream serialization.
-    }
-
-    public PdfDataObject getDataObject(
-      )
-    {
-      if(dataObject == null)
-      {
-        parser.seek(offset); parser.moveNext();
-        dataObject = parser.parsePdfObject();
-      }
-      return dataObject;
-    }
-  }
-  // </classes>
-
   // <dynamic>
   // <fields>
+  /*
+    NOTE: Compressed objects are indexed by parallel arrays sorted by object number, initially
+    populated with the offsets parsed from the stream header: when a compressed object is required,
+    its offset is used to retrieve it from the decoded data, which are read through the object
+    stream cache (see File#getObjectStreamCache()), which may evict them independently of this
+    index.
+  */
+  /**
+    Number of compressed objects (<code>-1</code>, if not indexed yet).
+  */
+  private int entryCount = -1;
+  /**
+    Data objects of the compressed objects (new entries only, as original ones are parsed on
+    demand).
+  */
+  private PdfDataObject[] entryDataObjects;
+  /**
+    Serialized lengths of the compressed objects, as estimated on their last parsing.
+  */
+  private int[] entryLengths;
   /**
-    Compressed objects map.
-    <p>This map is initially populated with offset values;
-    when a compressed object is required, its offset is used to retrieve it.
+    Object numbers of the compressed objects, in ascending order.
   */
-  private Map<Integer,ObjectEntry> entries;
-  private FileParser parser;
+  private int[] entryNumbers;
+  /**
+    Offsets of the compressed objects within the decoded data (<code>-1</code>, if undefined).
+  */
+  private int[] entryOffsets;
   // </fields>
 
   // <constructors>
@@ -154,7 +145,7 @@ public final class ObjectStream
     File context
     )
   {
-    if(entries != null)
+    if(entryCount >= 0)
     {flush(stream);}
 
     super.writeTo(stream, context);
@@ -170,7 +161,7 @@ public final class ObjectStream
   public boolean containsKey(
     Object key
     )
-  {return getEntries().containsKey(key);}
+  {return key instanceof Integer && indexOf((Integer)key) >= 0;}
 
   @Override
   public boolean containsValue(
@@ -183,43 +174,98 @@ public final class ObjectStream
     )
   {
     Set<Map.Entry<Integer,PdfDataObject>> entrySet = new HashSet<Map.Entry<Integer,PdfDataObject>>();
-    for(Integer key : getEntries().keySet())
-    {entrySet.add(new MapEntry<Integer,PdfDataObject>(key,get(key)));}
+    for(int index = 0, count = getEntryCount(); index < count; index++)
+    {entrySet.add(new MapEntry<Integer,PdfDataObject>(entryNumbers[index], getEntryDataObject(index)));}
     return entrySet;
   }
 
   @Override
-  public PdfDataObject get(Object key) {
-    ObjectEntry entry = getEntries().get(key);
-    return (entry != null ? entry.getDataObject() : null);
+  public PdfDataObject get(
+    Object key
+    )
+  {
+    int index = (key instanceof Integer ? indexOf((Integer)key) : -1);
+    return index >= 0 ? getEntryDataObject(index) : null;
   }
 
   @Override
   public boolean isEmpty(
     )
-  {return getEntries().isEmpty();}
+  {return getEntryCount() == 0;}
 
   @Override
   public Set<Integer> keySet(
     )
-  {return getEntries().keySet();}
+  {
+    return new AbstractSet<Integer>()
+    {
+      @Override
+      public boolean contains(
+        Object key
+        )
+      {return containsKey(key);}
+
+      @Override
+      public Iterator<Integer> iterator(
+        )
+      {
+        return new Iterator<Integer>()
+        {
+          private int index = 0;
+
+          @Override
+          public boolean hasNext(
+            )
+          {return index < getEntryCount();}
+
+          @Override
+          public Integer next(
+            )
+          {
+            if(!hasNext())
+              throw new NoSuchElementException();
+
+            return entryNumbers[index++];
+          }
+
+          @Override
+          public void remove(
+            )
+          {throw new UnsupportedOperationException();}
+        };
+      }
+
+      @Override
+      public int size(
+        )
+      {return getEntryCount();}
+    };
+  }
 
   /**
     <span style="color:red">For internal use only.</span> If you need to <i>add a data object
     into an object stream</i>, invoke {@link PdfIndirectObject#compress(ObjectStream)} instead.
   */
   @Override
-  public PdfDataObject put(
+  public synchronized PdfDataObject put(
     Integer key,
     PdfDataObject value
     )
   {
     PdfDataObject removedDataObject = null;
+    int index = indexOf(key);
+    if(index >= 0)
+    {removedDataObject = parseEntry(index);}
+    else
     {
-      ObjectEntry removedEntry = getEntries().put(key,new ObjectEntry(value));
-      if(removedEntry != null)
-      {removedDataObject = removedEntry.getDataObject();}
+      index = -(index + 1);
+      insertEntry(index, key);
     }
+    if(entryDataObjects == null)
+    {entryDataObjects = new PdfDataObject[entryNumbers.length];}
+    entryDataObjects[index] = value;
+    entryLengths[index] = 0;
+    entryOffsets[index] = -1; // Undefined -- to set on stream serialization.
     return removedDataObject;
   }
 
@@ -234,36 +280,68 @@ public final class ObjectStream
     object from its object stream</i>, invoke {@link PdfIndirectObject#uncompress()} instead.
   */
   @Override
-  public PdfDataObject remove(
+  public synchronized PdfDataObject remove(
     Object key
     )
   {
-    PdfDataObject removedDataObject = null;
-    {
-      ObjectEntry removedEntry = getEntries().remove(key);
-      if(removedEntry != null)
-      {removedDataObject = removedEntry.getDataObject();}
-    }
+    int index = (key instanceof Integer ? indexOf((Integer)key) : -1);
+    if(index < 0)
+      return null;
+
+    PdfDataObject removedDataObject = getEntryDataObject(index);
+    removeEntry(index);
     return removedDataObject;
   }
 
   @Override
   public int size(
     )
-  {return getEntries().size();}
+  {return getEntryCount();}
 
   @Override
   public Collection<PdfDataObject> values(
     )
   {
     List<PdfDataObject> values = new ArrayList<PdfDataObject>();
-    for(Integer key : getEntries().keySet())
-    {values.add(get(key));}
+    for(int index = 0, count = getEntryCount(); index < count; index++)
+    {values.add(getEntryDataObject(index));}
     return values;
   }
   // </Map>
   // </public>
 
+  // <internal>
+  /**
+    Gets the serialized length of the specified compressed object, as estimated on its last parsing.
+    <span style="color:red">For internal use only.</span>
+
+    @return <code>0</code>, if unknown.
+  */
+  public int getEntryLength(
+    int objectNumber
+    )
+  {
+    int index = indexOf(objectNumber);
+    return index >= 0 ? entryLengths[index] : 0;
+  }
+
+  /**
+    Parses the specified compressed object.
+    <p>Differently from {@link #get(Object)}, which gets the data object bound to its indirect
+    object, it gets a new instance from the decoded data.</p>
+    <span style="color:red">For internal use only.</span>
+
+    @return <code>null</code>, if missing.
+  */
+  public PdfDataObject parse(
+    int objectNumber
+    )
+  {
+    int index = indexOf(objectNumber);
+    return index >= 0 ? parseEntry(index) : null;
+  }
+  // </internal>
+
   // <private>
   /**
     Serializes the object stream entries into the stream body.
@@ -279,15 +357,14 @@ public final class ObjectStream
       IBuffer indexBuffer = new Buffer();
       IBuffer dataBuffer = new Buffer();
       IndirectObjects indirectObjects = getFile().getIndirectObjects();
-      int objectIndex = -1;
       File context = getFile();
-      for(Map.Entry<Integer,ObjectEntry> entry : getEntries().entrySet())
+      for(int index = 0; index < entryCount; index++)
       {
-        final int objectNumber = entry.getKey();
+        final int objectNumber = entryNumbers[index];
 
         // Update the xref entry!
         XRefEntry xrefEntry = indirectObjects.get(objectNumber).getXrefEntry();
-        xrefEntry.setOffset(++objectIndex);
+        xrefEntry.setOffset(index);
 
         /*
           NOTE: The entry offset MUST be updated only after its serialization, in order not to
@@ -301,8 +378,8 @@ public final class ObjectStream
           .append(Integer.toString(entryValueOffset)).append(Chunk.Space); // Byte offset (relative to the first one).
 
         // Data.
-        entry.getValue().getDataObject().writeTo(dataBuffer, context);
-        entry.getValue().offset = entryValueOffset;
+        getEntryDataObject(index).writeTo(dataBuffer, context);
+        entryOffsets[index] = entryValueOffset;
       }
 
       // Get the stream buffer!
@@ -315,6 +392,12 @@ public final class ObjectStream
       body.append(indexBuffer);
       dataByteOffset = (int)body.getLength();
       body.append(dataBuffer);
+
+      // Relocate the entries!
+      for(int index = 0; index < entryCount; index++)
+      {entryOffsets[index] += dataByteOffset;}
+      if(context != null)
+      {context.getObjectStreamCache().remove(this);}
     }
 
     // 2. Header.
@@ -322,7 +405,7 @@ public final class ObjectStream
       final PdfDictionary header = getHeader();
       header.put(
         PdfName.N,
-        PdfInteger.get(getEntries().size())
+        PdfInteger.get(entryCount)
         );
       header.put(
         PdfName.First,
@@ -331,32 +414,192 @@ public final class ObjectStream
     }
   }
 
-  private Map<Integer,ObjectEntry> getEntries(
+  /**
+    Gets the number of entries, indexing them on first access.
+  */
+  private synchronized int getEntryCount(
     )
   {
-    if(entries == null)
+    if(entryCount < 0)
     {
-      entries = new HashMap<Integer,ObjectEntry>();
-
-      final IBuffer body = getBody();
-      if(body.getLength() > 0)
+      int count = 0;
+      /*
+        NOTE: Each entry is packed as its object number (high-order bits) along with its offset
+        (low-order bits), so that sorting by object number doesn't need any boxing.
+      */
+      long[] entries = null;
+      PdfInteger countObject = (PdfInteger)getHeader().get(PdfName.N);
+      if(countObject != null && countObject.getValue() > 0)
       {
-        parser = new FileParser(body, getFile());
+        FileParser parser = getParser();
         int baseOffset = ((PdfInteger)getHeader().get(PdfName.First)).getValue();
-        for(
-          int index = 0,
-            length = ((PdfInteger)getHeader().get(PdfName.N)).getValue();
-          index < length;
-          index++
-          )
+        entries = new long[countObject.getValue()];
+        for(; count < entries.length; count++)
         {
           int objectNumber = ((PdfInteger)parser.parsePdfObject(1)).getValue();
           int objectOffset = baseOffset + ((PdfInteger)parser.parsePdfObject(1)).getValue();
-          entries.put(objectNumber, new ObjectEntry(objectOffset));
+          entries[count] = ((long)objectNumber << 32) | (objectOffset & 0xffffffffL);
         }
+        Arrays.sort(entries);
       }
+
+      entryNumbers = new int[count];
+      entryOffsets = new int[count];
+      entryLengths = new int[count];
+      for(int index = 0; index < count; index++)
+      {
+        entryNumbers[index] = (int)(entries[index] >>> 32);
+        entryOffsets[index] = (int)entries[index];
+      }
+      entryCount = count;
+    }
+    return entryCount;
+  }
+
+  /**
+    Gets the data object of the specified entry, bound to its indirect object.
+  */
+  private PdfDataObject getEntryDataObject(
+    int index
+    )
+  {
+    if(entryDataObjects != null && entryDataObjects[index] != null)
+      return entryDataObjects[index];
+
+    /*
+      NOTE: Original data objects aren't retained by their entries: they are bound to their
+      indirect objects, which keep their state across the session.
+    */
+    File file = getFile();
+    if(file != null)
+    {
+      PdfIndirectObject indirectObject = file.getIndirectObjects().get(entryNumbers[index]);
+      if(indirectObject != null
+        && indirectObject.isCompressed()
+        && indirectObject.getXrefEntry().getStreamNumber() == getReference().getObjectNumber())
+        return indirectObject.getDataObject();
+    }
+    return parseEntry(index);
+  }
+
+  /**
+    Gets the parser of the decoded data.
+  */
+  private FileParser getParser(
+    )
+  {
+    File file = getFile();
+    FileParser parser = (file != null ? file.getObjectStreamCache().get(this) : null);
+    if(parser == null)
+    {
+      parser = new FileParser(readData(), file);
+      if(file != null)
+      {file.getObjectStreamCache().put(this, parser);}
+    }
+    return parser;
+  }
+
+  /**
+    Gets the index of the specified entry.
+
+    @return Negative (<code>-(insertion index) - 1</code>), if missing.
+  */
+  private int indexOf(
+    int objectNumber
+    )
+  {
+    int count = getEntryCount(); // NOTE: Ensures the entries are indexed.
+    return Arrays.binarySearch(entryNumbers, 0, count, objectNumber);
+  }
+
+  /**
+    Inserts a blank entry at the specified index.
+  */
+  private void insertEntry(
+    int index,
+    int objectNumber
+    )
+  {
+    if(entryCount == entryNumbers.length)
+    {
+      int capacity = Math.max(entryCount << 1, 8);
+      entryNumbers = Arrays.copyOf(entryNumbers, capacity);
+      entryOffsets = Arrays.copyOf(entryOffsets, capacity);
+      entryLengths = Arrays.copyOf(entryLengths, capacity);
+      if(entryDataObjects != null)
+      {entryDataObjects = Arrays.copyOf(entryDataObjects, capacity);}
+    }
+    int tailLength = entryCount - index;
+    System.arraycopy(entryNumbers, index, entryNumbers, index + 1, tailLength);
+    System.arraycopy(entryOffsets, index, entryOffsets, index + 1, tailLength);
+    System.arraycopy(entryLengths, index, entryLengths, index + 1, tailLength);
+    if(entryDataObjects != null)
+    {System.arraycopy(entryDataObjects, index, entryDataObjects, index + 1, tailLength);}
+    entryNumbers[index] = objectNumber;
+    entryCount++;
+  }
+
+  /**
+    Parses a new instance of the data object of the specified entry.
+  */
+  private PdfDataObject parseEntry(
+    int index
+    )
+  {
+    if(entryDataObjects != null && entryDataObjects[index] != null)
+      return entryDataObjects[index];
+
+    /*
+      NOTE: The parser of the decoded data is shared by all the entries of this object stream,
+      possibly across threads (see FileConfiguration#isConcurrentReadEnabled()).
+    */
+    synchronized(this)
+    {
+      int offset = entryOffsets[index];
+      FileParser parser = getParser();
+      parser.seek(offset); parser.moveNext();
+      PdfDataObject dataObject = parser.parsePdfObject();
+      entryLengths[index] = (int)(parser.getPosition() - offset);
+      return dataObject;
+    }
+  }
+
+  /**
+    Reads the decoded data.
+    <p>Unless the stream is unfiltered, the decoded data are read into a buffer of their own (which
+    is retained by the object stream cache only) rather than through the {@link #getBody() decoded
+    view}, which would be retained by the decoded stream cache too.</p>
+  */
+  private IBuffer readData(
+    )
+  {
+    if(getFilter() == null)
+      return getBody();
+
+    InputStream bodyStream = getBodyStream();
+    try
+    {return new Buffer(bodyStream);}
+    finally
+    {IOUtils.closeQuietly(bodyStream);}
+  }
+
+  /**
+    Removes the entry at the specified index.
+  */
+  private void removeEntry(
+    int index
+    )
+  {
+    int tailLength = entryCount - index - 1;
+    System.arraycopy(entryNumbers, index + 1, entryNumbers, index, tailLength);
+    System.arraycopy(entryOffsets, index + 1, entryOffsets, index, tailLength);
+    System.arraycopy(entryLengths, index + 1, entryLengths, index, tailLength);
+    if(entryDataObjects != null)
+    {
+      System.arraycopy(entryDataObjects, index + 1, entryDataObjects, index, tailLength);
+      entryDataObjects[entryCount - 1] = null;
     }
-    return entries;
+    entryCount--;
   }
   // </private>
   // </interface>
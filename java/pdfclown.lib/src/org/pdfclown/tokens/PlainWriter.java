@@ -37,6 +37,7 @@ import org.pdfclown.objects.PdfDictionary;
 import org.pdfclown.objects.PdfIndirectObject;
 import org.pdfclown.objects.PdfInteger;
 import org.pdfclown.objects.PdfName;
+import org.pdfclown.objects.PdfNumber;
 import org.pdfclown.objects.PdfReference;
 import org.pdfclown.util.NotImplementedException;
 
@@ -77,8 +78,7 @@ final class PlainWriter
     )
   {
     // 1. Original content (head, body and previous trailer).
-    FileParser parser = file.getReader().getParser();
-    stream.write(parser.getStream());
+    writeOriginal();
 
     // 2. Body update (modified indirect objects insertion).
     int xrefSize = file.getIndirectObjects().size();
@@ -92,10 +92,9 @@ final class PlainWriter
       StringBuilder xrefSubBuilder = new StringBuilder(); // Xref-table subsection builder.
       int xrefSubCount = 0; // Xref-table subsection counter.
       int prevKey = 0; // Previous-entry object number.
-      for(
-        Map.Entry<Integer,PdfIndirectObject> indirectObjectEntry
-          : file.getIndirectObjects().getModifiedObjects().entrySet()
-        )
+      Map<Integer,PdfIndirectObject> modifiedObjects = getUpdatedObjects();
+      beginObjects(modifiedObjects.values().iterator());
+      for(Map.Entry<Integer,PdfIndirectObject> indirectObjectEntry : modifiedObjects.entrySet())
       {
         // Is the object in the current subsection?
         /*
@@ -132,7 +131,7 @@ final class PlainWriter
             stream.getLength()
             );
           // Add in-use entry content!
-          indirectObjectEntry.getValue().writeTo(stream, file);
+          writeObject(indirectObjectEntry.getValue());
         }
         else // Free entry.
         {
@@ -163,7 +162,7 @@ final class PlainWriter
     stream.write(xrefBuilder.toString());
 
     // 4. Trailer.
-    writeTrailer(startxref, xrefSize, parser);
+    writeTrailer(startxref, xrefSize, getPrevXRefOffset());
   }
 
   @Override
@@ -193,6 +192,7 @@ final class PlainWriter
       StringBuilder xrefInUseBlockBuilder = new StringBuilder();
       IndirectObjects indirectObjects = file.getIndirectObjects();
       PdfReference freeReference = indirectObjects.get(0).getReference(); // Initialized to the first free entry.
+      beginObjects(indirectObjects.iterator());
       for(
         int index = 1;
         index < xrefSize;
@@ -210,7 +210,7 @@ final class PlainWriter
             stream.getLength()
             );
           // Add in-use entry content!
-          indirectObject.writeTo(stream, file);
+          writeObject(indirectObject);
         }
         else // Free entry.
         {
@@ -245,7 +245,7 @@ final class PlainWriter
     stream.write(xrefBuilder.toString());
 
     // 4. Trailer [PDF:1.6:3.4.4].
-    writeTrailer(startxref, xrefSize, null);
+    writeTrailer(startxref, xrefSize, -1);
   }
   // </protected>
 
@@ -310,12 +310,13 @@ final class PlainWriter
       of the last cross-reference section.
     @param xrefSize Total number of entries in the file's cross-reference table,
       as defined by the combination of the original section and all update sections.
-    @param parser File parser.
+    @param prevXRefOffset Byte offset from the beginning of the file to the beginning of the
+      previous cross-reference section (<code>-1</code>, if none).
   */
   private void writeTrailer(
     long startxref,
     int xrefSize,
-    FileParser parser
+    long prevXRefOffset
     )
   {
     // 1. Header.
@@ -328,10 +329,10 @@ final class PlainWriter
     // * Size
     trailer.put(PdfName.Size, PdfInteger.get(xrefSize));
     // * Prev
-    if(parser == null)
+    if(prevXRefOffset < 0)
     {trailer.remove(PdfName.Prev);} // [FIX:0.0.4:5] It (wrongly) kept the 'Prev' entry of multiple-section xref tables.
     else
-    {trailer.put(PdfName.Prev, PdfInteger.get((int)parser.retrieveXRefOffset()));}
+    {trailer.put(PdfName.Prev, PdfNumber.getInteger(prevXRefOffset));}
     // Serialize its contents!
     trailer.writeTo(stream, file); stream.write(Chunk.LineFeed);
 
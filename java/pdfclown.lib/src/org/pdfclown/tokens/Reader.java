@@ -26,16 +26,20 @@
 package org.pdfclown.tokens;
 
 import java.io.Closeable;
+import java.io.EOFException;
 import java.io.IOException;
-import java.util.SortedMap;
-import java.util.TreeMap;
+import java.util.zip.ZipException;
 
 import org.pdfclown.Version;
+import org.pdfclown.VersionEnum;
+import org.pdfclown.bytes.IConcurrentInputStream;
 import org.pdfclown.bytes.IInputStream;
 import org.pdfclown.files.File;
+import org.pdfclown.objects.PdfDataObject;
 import org.pdfclown.objects.PdfDictionary;
-import org.pdfclown.objects.PdfInteger;
+import org.pdfclown.objects.PdfDirectObject;
 import org.pdfclown.objects.PdfName;
+import org.pdfclown.objects.PdfNumber;
 import org.pdfclown.util.parsers.PostScriptParseException;
 import org.pdfclown.util.parsers.PostScriptParser.TokenTypeEnum;
 
@@ -54,17 +58,17 @@ public final class Reader
   {
     private final PdfDictionary trailer;
     private final Version version;
-    private final SortedMap<Integer,XRefEntry> xrefEntries;
+    private final XRefIndex xrefIndex;
 
     FileInfo(
       Version version,
       PdfDictionary trailer,
-      SortedMap<Integer,XRefEntry> xrefEntries
+      XRefIndex xrefIndex
       )
     {
       this.version = version;
       this.trailer = trailer;
-      this.xrefEntries = xrefEntries;
+      this.xrefIndex = xrefIndex;
     }
 
     public PdfDictionary getTrailer(
@@ -75,15 +79,79 @@ public final class Reader
       )
     {return version;}
 
-    public SortedMap<Integer,XRefEntry> getXrefEntries(
+    public XRefIndex getXrefIndex(
       )
-    {return xrefEntries;}
+    {return xrefIndex;}
   }
   // </classes>
 
+  // <static>
+  // <fields>
+  /**
+    Number of xref-table entries read at once.
+  */
+  private static final int XRefEntryChunkCount = 512;
+  /**
+    Byte length of an xref-table entry [PDF:1.6:3.4.3].
+  */
+  private static final int XRefEntryLength = 20;
+  // </fields>
+
+  // <interface>
+  // <private>
+  /**
+    Gets whether the specified exception reveals damaged file data, which can be recovered scanning
+    the file (see {@link #readInfo()}).
+    <p>Other failures (such as library bugs) are NOT masked by recovery.</p>
+  */
+  private static boolean isDataCorruption(
+    RuntimeException exception
+    )
+  {
+    return exception instanceof PostScriptParseException
+      || exception.getCause() instanceof EOFException // Truncated data.
+      || exception.getCause() instanceof ZipException; // Corrupted compressed data (xref stream).
+  }
+
+  private static boolean isXRefEntryEOL(
+    byte c
+    )
+  {return c == Symbol.Space || c == Symbol.CarriageReturn || c == Symbol.LineFeed;}
+
+  /**
+    Parses the decimal value of the specified digits.
+
+    @return {@code -1}, if the digits are malformed.
+  */
+  private static long parseXRefEntryNumber(
+    byte[] data,
+    int offset,
+    int length
+    )
+  {
+    long value = 0;
+    for(int end = offset + length; offset < end; offset++)
+    {
+      int c = data[offset];
+      if(c < '0' || c > '9')
+        return -1;
+
+      value = value * 10 + (c - '0');
+    }
+    return value;
+  }
+  // </private>
+  // </interface>
+  // </static>
+
   // <dynamic>
   // <fields>
   private FileParser parser;
+  /**
+    Parsers confined to their respective threads (in case of {@link
+    org.pdfclown.files.FileConfiguration#isConcurrentReadEnabled() concurrent reading}).
+  */
+  private ThreadLocal<FileParser> threadParsers;
   // </fields>
 
   // <constructors>
@@ -91,10 +159,26 @@ public final class Reader
     <span style="color:red">For internal use only.</span>
   */
   public Reader(
-    IInputStream stream,
-    File file
+    final IInputStream stream,
+    final File file
     )
-  {this.parser = new FileParser(stream, file);}
+  {
+    this.parser = new FileParser(stream, file);
+    if(file.getConfiguration().isConcurrentReadEnabled())
+    {
+      if(!(stream instanceof IConcurrentInputStream))
+        throw new IllegalArgumentException("Concurrent reading requires a source stream supporting it (IConcurrentInputStream).");
+
+      threadParsers = new ThreadLocal<FileParser>()
+      {
+        @Override
+        protected FileParser initialValue(
+          )
+        {return new FileParser(((IConcurrentInputStream)stream).duplicate(), file);}
+      };
+      threadParsers.set(parser); // NOTE: The opening thread keeps on using the primary parser.
+    }
+  }
   // </constructors>
 
   // <interface>
@@ -104,29 +188,99 @@ public final class Reader
     )
   {return parser.hashCode();}
 
+  /**
+    Gets the parser of the file.
+    <p>In case of {@link org.pdfclown.files.FileConfiguration#isConcurrentReadEnabled() concurrent
+    reading}, each thread gets its own parser.</p>
+  */
   public FileParser getParser(
     )
-  {return parser;}
+  {return threadParsers != null ? threadParsers.get() : parser;}
 
   /**
     Retrieves the file information.
+    <p>In case its cross-reference information is missing or corrupted, it is rebuilt scanning the
+    whole file, unless {@link org.pdfclown.files.FileConfiguration#isXRefRecoveryEnabled() recovery}
+    is disabled.</p>
   */
   public FileInfo readInfo(
     )
   {
+    boolean recoveryEnabled = parser.getFile().getConfiguration().isXRefRecoveryEnabled();
+    Version version;
+    try
+    {version = Version.get(parser.retrieveVersion());}
+    catch(RuntimeException e)
+    {
+      if(!recoveryEnabled
+        || !isDataCorruption(e))
+        throw e;
+
+      version = VersionEnum.PDF14.getVersion(); // NOTE: Missing header falls back to the default version.
+    }
+    try
+    {return readInfo(version);}
+    catch(RuntimeException e)
+    {
+      if(!recoveryEnabled
+        || !isDataCorruption(e))
+        throw e;
+
+      return new XRefScanner(parser).scan(version);
+    }
+  }
+
+  // <Closeable>
+  @Override
+  public void close(
+    ) throws IOException
+  {
+    if(parser != null)
+    {
+      parser.close();
+      parser = null;
+      threadParsers = null; // NOTE: Duplicate streams don't own the file, so they needn't be closed.
+    }
+  }
+  // </Closeable>
+  // </public>
+
+  // <protected>
+  @Override
+  protected void finalize(
+    ) throws Throwable
+  {
+    try
+    {close();}
+    finally
+    {super.finalize();}
+  }
+  // </protected>
+
+  // <private>
+  /**
+    Reads the file information from its cross-reference sections.
+  */
+  private FileInfo readInfo(
+    Version version
+    )
+  {
 //TODO:hybrid xref table/stream
-    Version version = Version.get(parser.retrieveVersion());
     PdfDictionary trailer = null;
-    SortedMap<Integer,XRefEntry> xrefEntries = new TreeMap<Integer,XRefEntry>();
+    XRefIndex xrefIndex = new XRefIndex();
     {
+      byte[] entryChunk = new byte[XRefEntryLength * XRefEntryChunkCount];
       long sectionOffset = parser.retrieveXRefOffset();
       while(sectionOffset > -1)
       {
+        if(sectionOffset >= parser.getLength())
+          throw new PostScriptParseException("Cross-reference section offset (" + sectionOffset + ") out of the file.", parser);
+
         // Move to the start of the xref section!
         parser.seek(sectionOffset);
 
         PdfDictionary sectionTrailer;
-        if(parser.getToken(1).equals(Keyword.XRef)) // XRef-table section.
+        if(Keyword.XRef.equals(parser.getToken(1))) // XRef-table section.
         {
           // Looping sequentially across the subsections inside the current xref-table section...
           while(true)
@@ -145,7 +299,7 @@ public final class Reader
               throw new PostScriptParseException("Neither object number of the first object in this xref subsection nor end of xref section found.", parser);
 
             // Get the object number of the first object in this xref-table subsection!
-            int startObjectNumber = (Integer)parser.getToken();
+            long startObjectNumber = parser.getIntegerValue();
 
             // 2. Last object number.
             parser.moveNext();
@@ -153,16 +307,24 @@ public final class Reader
               throw new PostScriptParseException("Number of entries in this xref subsection not found.", parser);
 
             // Get the object number of the last object in this xref-table subsection!
-            int endObjectNumber = (Integer)parser.getToken() + startObjectNumber;
+            long endObjectNumber = parser.getIntegerValue() + startObjectNumber;
+            if(startObjectNumber < 0
+              || endObjectNumber < startObjectNumber
+              || endObjectNumber > Integer.MAX_VALUE)
+              throw new PostScriptParseException("Invalid xref subsection bounds.", parser);
 
             // 3. XRef-table subsection entries.
+            /*
+              NOTE: Entries are fixed-width records, so they are parsed straight from their bytes;
+              the tokenizer takes over only in case of malformed formatting.
+            */
             for(
-              int index = startObjectNumber;
+              int index = readXRefEntries((int)startObjectNumber, (int)endObjectNumber, xrefIndex, entryChunk);
               index < endObjectNumber;
               index++
               )
             {
-              if(xrefEntries.containsKey(index)) // Already-defined entry.
+              if(xrefIndex.contains(index)) // Already-defined entry.
               {
                 // Skip to the next entry!
                 parser.moveNext(3);
@@ -170,49 +332,49 @@ public final class Reader
               }
 
               // Get the indirect object offset!
-              int offset = (Integer)parser.getToken(1);
+              if(!parser.moveNext()
+                || parser.getTokenType() != TokenTypeEnum.Integer)
+                throw new PostScriptParseException("Invalid xref entry offset.", parser);
+              long offset = parser.getIntegerValue();
               // Get the object generation number!
-              int generation = (Integer)parser.getToken(1);
+              if(!parser.moveNext()
+                || parser.getTokenType() != TokenTypeEnum.Integer)
+                throw new PostScriptParseException("Invalid xref entry generation.", parser);
+              int generation = (int)parser.getIntegerValue();
               // Get the usage tag!
               XRefEntry.UsageEnum usage;
               {
-                String usageToken = (String)parser.getToken(1);
-                if(usageToken.equals(Keyword.InUseXrefEntry))
+                if(!parser.moveNext())
+                  throw new PostScriptParseException("Invalid xref entry.", parser);
+                else if(parser.tokenEquals(Keyword.InUseXrefEntry))
                   usage = XRefEntry.UsageEnum.InUse;
-                else if(usageToken.equals(Keyword.FreeXrefEntry))
+                else if(parser.tokenEquals(Keyword.FreeXrefEntry))
                   usage = XRefEntry.UsageEnum.Free;
                 else
                   throw new PostScriptParseException("Invalid xref entry.", parser);
               }
 
               // Define entry!
-              xrefEntries.put(
-                index,
-                new XRefEntry(
-                  index,
-                  generation,
-                  offset,
-                  usage
-                  )
-                );
+              xrefIndex.put(index, generation, offset, usage);
             }
           }
 
           // Get the previous trailer!
-          sectionTrailer = (PdfDictionary)parser.parsePdfObject(1);
+          PdfDataObject trailerObject = parser.parsePdfObject(1);
+          if(!(trailerObject instanceof PdfDictionary))
+            throw new PostScriptParseException("Trailer not found.", parser);
+
+          sectionTrailer = (PdfDictionary)trailerObject;
         }
         else // XRef-stream section.
         {
-          XRefStream stream = (XRefStream)parser.parsePdfObject(3); // Gets the xref stream skipping the indirect-object header.
-          // XRef-stream subsection entries.
-          for(XRefEntry xrefEntry : stream.values())
-          {
-            if(xrefEntries.containsKey(xrefEntry.getNumber())) // Already-defined entry.
-              continue;
+          PdfDataObject streamObject = parser.parsePdfObject(3); // Gets the xref stream skipping the indirect-object header.
+          if(!(streamObject instanceof XRefStream))
+            throw new PostScriptParseException("Cross-reference section not found at offset " + sectionOffset + ".", parser);
 
-            // Define entry!
-            xrefEntries.put(xrefEntry.getNumber(), xrefEntry);
-          }
+          XRefStream stream = (XRefStream)streamObject;
+          // XRef-stream subsection entries.
+          stream.readEntries(xrefIndex);
 
           // Get the previous trailer!
           sectionTrailer = stream.getHeader();
@@ -222,38 +384,101 @@ public final class Reader
         {trailer = sectionTrailer;}
 
         // Get the previous xref-table section's offset!
-        PdfInteger prevXRefOffset = (PdfInteger)sectionTrailer.get(PdfName.Prev);
-        sectionOffset = (prevXRefOffset != null ? prevXRefOffset.getValue() : -1);
+        PdfDirectObject prevXRefOffset = sectionTrailer.get(PdfName.Prev);
+        if(prevXRefOffset != null
+          && !(prevXRefOffset instanceof PdfNumber<?>))
+          throw new PostScriptParseException("Invalid previous cross-reference section offset.", parser);
+
+        sectionOffset = (prevXRefOffset != null ? ((PdfNumber<?>)prevXRefOffset).getLongValue() : -1);
       }
     }
-    return new FileInfo(version, trailer, xrefEntries);
+    if(trailer == null
+      || !trailer.containsKey(PdfName.Root))
+      throw new PostScriptParseException("Document catalog not found.", parser);
+
+    return new FileInfo(version, trailer, xrefIndex);
   }
 
-  // <Closeable>
-  @Override
-  public void close(
-    ) throws IOException
+  /**
+    Reads the entries of the current xref-table subsection as fixed-width records [PDF:1.6:3.4.3].
+    <p>The pointer MUST be just after the subsection header. When this method terminates, the
+    pointer is just after the last entry read.</p>
+
+    @param startObjectNumber Object number of the first entry of the subsection.
+    @param endObjectNumber Object number after the last entry of the subsection.
+    @param xrefIndex Entries to fill.
+    @param entryChunk Buffer to read the records into.
+    @return Object number of the first entry which couldn't be read (malformed record); {@code
+      endObjectNumber}, if the subsection was read entirely.
+  */
+  private int readXRefEntries(
+    int startObjectNumber,
+    int endObjectNumber,
+    XRefIndex xrefIndex,
+    byte[] entryChunk
+    )
   {
-    if(parser != null)
+    if(!parser.skipWhitespace())
+      return startObjectNumber;
+
+    IInputStream stream = parser.getStream();
+    int index = startObjectNumber;
+    while(index < endObjectNumber)
     {
-      parser.close();
-      parser = null;
-    }
-  }
-  // </Closeable>
-  // </public>
+      int entryCount = Math.min(endObjectNumber - index, XRefEntryChunkCount);
+      long chunkPosition = stream.getPosition();
+      try
+      {stream.read(entryChunk, 0, entryCount * XRefEntryLength);}
+      catch(EOFException e)
+      {parser.seek(chunkPosition); return index;}
+
+      for(
+        int entryOffset = 0,
+          chunkLength = entryCount * XRefEntryLength;
+        entryOffset < chunkLength;
+        entryOffset += XRefEntryLength, index++
+        )
+      {
+        // Get the indirect object offset!
+        long offset = parseXRefEntryNumber(entryChunk, entryOffset, 10);
+        // Get the object generation number!
+        long generation = parseXRefEntryNumber(entryChunk, entryOffset + 11, 5);
+        // Get the usage tag!
+        XRefEntry.UsageEnum usage;
+        switch(entryChunk[entryOffset + 17])
+        {
+          case 'n':
+            usage = XRefEntry.UsageEnum.InUse;
+            break;
+          case 'f':
+            usage = XRefEntry.UsageEnum.Free;
+            break;
+          default:
+            usage = null;
+            break;
+        }
+        if(offset < 0
+          || entryChunk[entryOffset + 10] != Symbol.Space
+          || generation < 0
+          || entryChunk[entryOffset + 16] != Symbol.Space
+          || usage == null
+          || !isXRefEntryEOL(entryChunk[entryOffset + 18])
+          || !isXRefEntryEOL(entryChunk[entryOffset + 19])) // Malformed entry.
+        {
+          parser.seek(chunkPosition + entryOffset); // Restores the entry start.
+          return index;
+        }
 
-  // <protected>
-  @Override
-  protected void finalize(
-    ) throws Throwable
-  {
-    try
-    {close();}
-    finally
-    {super.finalize();}
+        if(xrefIndex.contains(index)) // Already-defined entry.
+          continue;
+
+        // Define entry!
+        xrefIndex.put(index, (int)generation, offset, usage);
+      }
+    }
+    return index;
   }
-  // </protected>
+  // </private>
   // </interface>
   // </dynamic>
   // </class>
@@ -0,0 +1,157 @@
+/*
+  Copyright 2015 Stefano Chizzolini. http://www.pdfclown.org
+
+  Contributors:
+    * Stefano Chizzolini (original code developer, http://www.stefanochizzolini.it)
+
+  This file should be part of the source code distribution of "PDF Clown library"
+  (the Program): see the accompanying README files for more info.
+
+  This Program is free software; you can redistribute it and/or modify it under the terms
+  of the GNU Lesser General Public License as published by the Free Software Foundation;
+  either version 3 of the License, or (at your option) any later version.
+
+  This Program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY,
+  either expressed or implied; without even the implied warranty of MERCHANTABILITY or
+  FITNESS FOR A PARTICULAR PURPOSE. See the License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this
+  Program (see README files); if not, go to the GNU website (http://www.gnu.org/licenses/).
+
+  Redistribution and use, with or without modification, are permitted provided that such
+  redistributions retain the above copyright notice, license and disclaimer, along with
+  this list of conditions.
+*/
+
+package org.pdfclown.tokens;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.pdfclown.files.File;
+import org.pdfclown.objects.PdfDataObject;
+import org.pdfclown.objects.PdfIndirectObject;
+import org.pdfclown.objects.PdfStream;
+
+/**
+  Stream body encoder working ahead of the serialization cursor.
+  <p>It walks the same object sequence as the writer, keeping a bounded window of stream bodies
+  being encoded by a thread pool; each stream collects its own encoded body when the writer
+  serializes it, so the output is the same as the serial encoding's.</p>
+
+  @author Stefano Chizzolini (http://www.stefanochizzolini.it)
+  @since 0.2.0
+  @version 0.2.0, 06/15/15
+*/
+final class StreamEncoder
+{
+  // <class>
+  // <static>
+  // <fields>
+  /**
+    Maximum number of streams pending encoding per thread.
+  */
+  private static final int WindowFactor = 2;
+
+  private static final ThreadFactory DaemonThreadFactory = new ThreadFactory()
+  {
+    @Override
+    public Thread newThread(
+      Runnable runnable
+      )
+    {
+      Thread thread = new Thread(runnable, "pdfclown-stream-encoder");
+      thread.setDaemon(true);
+      return thread;
+    }
+  };
+  // </fields>
+  // </static>
+
+  // <dynamic>
+  // <fields>
+  private final ExecutorService executor;
+  private final File file;
+  private final Iterator<PdfIndirectObject> lookahead;
+  /**
+    Objects whose stream encoding has been scheduled, in serialization order.
+  */
+  private final Deque<PdfIndirectObject> scheduledObjects = new ArrayDeque<PdfIndirectObject>();
+  private final int windowSize;
+  // </fields>
+
+  // <constructors>
+  /**
+    @param file File to serialize.
+    @param lookahead Objects to serialize, in the same order as the writer.
+    @param poolSize Number of encoding threads.
+  */
+  StreamEncoder(
+    File file,
+    Iterator<PdfIndirectObject> lookahead,
+    int poolSize
+    )
+  {
+    this.file = file;
+    this.lookahead = lookahead;
+    executor = Executors.newFixedThreadPool(poolSize, DaemonThreadFactory);
+    windowSize = poolSize * WindowFactor;
+  }
+  // </constructors>
+
+  // <interface>
+  // <public>
+  /**
+    Moves the serialization cursor to the specified object, scheduling the encoding of the next
+    streams.
+
+    @param indirectObject Object about to be serialized.
+  */
+  public void advance(
+    PdfIndirectObject indirectObject
+    )
+  {
+    if(scheduledObjects.peekFirst() == indirectObject)
+    {scheduledObjects.removeFirst();}
+
+    while(scheduledObjects.size() < windowSize
+      && lookahead.hasNext())
+    {
+      PdfIndirectObject nextObject = lookahead.next();
+      if(!nextObject.isInUse())
+        continue;
+
+      PdfDataObject dataObject = nextObject.getDataObject();
+      /*
+        NOTE: Object streams and cross-reference streams build their bodies on serialization.
+      */
+      if(!(dataObject instanceof PdfStream)
+        || dataObject instanceof ObjectStream
+        || dataObject instanceof XRefStream)
+        continue;
+
+      if(((PdfStream)dataObject).scheduleBodyEncoding(file, executor))
+      {scheduledObjects.addLast(nextObject);}
+    }
+  }
+
+  /**
+    Discards the pending encodings, releasing the thread pool.
+  */
+  public void close(
+    )
+  {
+    for(PdfIndirectObject scheduledObject : scheduledObjects)
+    {((PdfStream)scheduledObject.getDataObject()).cancelBodyEncoding();}
+    scheduledObjects.clear();
+    executor.shutdownNow();
+  }
+  // </public>
+  // </interface>
+  // </dynamic>
+  // </class>
+}
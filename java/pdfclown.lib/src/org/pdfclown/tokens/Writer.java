@@ -25,12 +25,19 @@
 
 package org.pdfclown.tokens;
 
+import java.util.Iterator;
+
+import org.pdfclown.bytes.IInputStream;
 import org.pdfclown.bytes.IOutputStream;
 import org.pdfclown.files.File;
+import org.pdfclown.files.FileConfiguration;
 import org.pdfclown.files.FileIdentifier;
+import org.pdfclown.files.IndirectObjects;
 import org.pdfclown.files.SerializationModeEnum;
 import org.pdfclown.objects.PdfDictionary;
+import org.pdfclown.objects.PdfIndirectObject;
 import org.pdfclown.objects.PdfName;
+import org.pdfclown.util.IntArrayMap;
 
 /**
   PDF file writer.
@@ -81,6 +88,17 @@ public abstract class Writer
   // <fields>
   protected final File file;
   protected final IOutputStream stream;
+
+  /**
+    Whether the incremental update is appended after the previous ones (see {@link
+    #writeOriginal()}).
+  */
+  private boolean appending;
+  private StreamEncoder streamEncoder;
+  /**
+    Byte offset of the last cross-reference section written.
+  */
+  private long xrefOffset = -1;
   // </fields>
 
   // <constructors>
@@ -110,6 +128,16 @@ public abstract class Writer
     )
   {return stream;}
 
+  /**
+    Gets the byte offset of the last cross-reference section written to the {@link #getStream()
+    target stream}.
+
+    @return <code>-1</code>, if none.
+  */
+  public long getXRefOffset(
+    )
+  {return xrefOffset;}
+
   /**
     Serializes the {@link #getFile() file} to the {@link #getStream() target stream}.
 
@@ -119,26 +147,77 @@ public abstract class Writer
     SerializationModeEnum mode
     )
   {
-    switch(mode)
+    try
     {
-      case Incremental:
-        if(file.getReader() != null)
-        {
-          writeIncremental();
+      switch(mode)
+      {
+        case Incremental:
+          if(file.getReader() != null)
+          {
+            writeIncremental();
+            break;
+          }
+          // If the file is new (no reader), fall through to Standard!
+        case Standard:
+          writeStandard();
+          break;
+        case Linearized:
+          writeLinearized();
           break;
-        }
-        // If the file is new (no reader), fall through to Standard!
-      case Standard:
-        writeStandard();
-        break;
-      case Linearized:
-        writeLinearized();
-        break;
+      }
+    }
+    finally
+    {
+      if(streamEncoder != null)
+      {
+        streamEncoder.close();
+        streamEncoder = null;
+      }
     }
   }
   // </public>
 
   // <protected>
+  /**
+    Begins the serialization of the indirect objects.
+    <p>In case of {@link FileConfiguration#getCompressionPoolSize() parallel compression}, stream
+    bodies are encoded ahead of their {@link #writeObject(PdfIndirectObject) serialization}.</p>
+
+    @param indirectObjects Indirect objects to serialize, in serialization order.
+  */
+  protected final void beginObjects(
+    Iterator<PdfIndirectObject> indirectObjects
+    )
+  {
+    int compressionPoolSize = file.getConfiguration().getCompressionPoolSize();
+    if(compressionPoolSize > 1)
+    {streamEncoder = new StreamEncoder(file, indirectObjects, compressionPoolSize);}
+  }
+
+  /**
+    Gets the byte offset of the cross-reference section the incremental update links back to, that
+    is the one of the last update {@link File#save(SerializationModeEnum) appended in place} to the
+    file-system file, or the original one.
+  */
+  protected final long getPrevXRefOffset(
+    )
+  {
+    long prevXRefOffset = (appending ? file.getInPlaceXRefOffset() : -1);
+    return prevXRefOffset >= 0 ? prevXRefOffset : file.getReader().getParser().retrieveXRefOffset();
+  }
+
+  /**
+    Gets the indirect objects the incremental update comprises, that is those modified since the
+    last update {@link File#save(SerializationModeEnum) appended in place} to the file-system file,
+    or all the modified ones.
+  */
+  protected final IntArrayMap<PdfIndirectObject> getUpdatedObjects(
+    )
+  {
+    IndirectObjects indirectObjects = file.getIndirectObjects();
+    return appending ? indirectObjects.getUpdatedObjects() : indirectObjects.getModifiedObjects();
+  }
+
   /**
     Updates the specified trailer.
     NOTE: this method has to be called just before serializing the trailer object.
@@ -172,6 +251,28 @@ public abstract class Writer
   protected abstract void writeIncremental(
     );
 
+  /**
+    Serializes the original content of the PDF file (head, body and previous trailer) as the base of
+    an incremental update [PDF:1.6:3.4.5].
+    <p>In case the target stream already contains the original content, possibly followed by
+    previous updates (that is, the update is appended in place to the source file), nothing is
+    written.</p>
+  */
+  protected final void writeOriginal(
+    )
+  {
+    IInputStream source = file.getReader().getParser().getStream();
+    if(stream.getLength() == 0)
+    {
+      stream.write(source);
+      appending = false;
+    }
+    else if(stream.getLength() < source.getLength())
+      throw new IllegalStateException("Target stream contains neither nothing nor the original content.");
+    else
+    {appending = true;}
+  }
+
   /**
     Serializes the PDF file linearized [PDF:1.6:F].
   */
@@ -184,6 +285,19 @@ public abstract class Writer
   protected abstract void writeStandard(
     );
 
+  /**
+    Serializes the specified indirect object.
+  */
+  protected final void writeObject(
+    PdfIndirectObject indirectObject
+    )
+  {
+    if(streamEncoder != null)
+    {streamEncoder.advance(indirectObject);}
+
+    indirectObject.writeTo(stream, file);
+  }
+
   /**
     Serializes the end of the file [PDF:1.6:3.4.4].
 
@@ -194,6 +308,7 @@ public abstract class Writer
     long startxref
     )
   {
+    xrefOffset = startxref;
     stream.write(StartXRefChunk);
     stream.write(Long.toString(startxref));
     stream.write(EOFChunk);
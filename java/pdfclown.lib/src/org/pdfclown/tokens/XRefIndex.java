@@ -0,0 +1,394 @@
+/*
+  Copyright 2015 Stefano Chizzolini. http://www.pdfclown.org
+
+  Contributors:
+    * Stefano Chizzolini (original code developer, http://www.stefanochizzolini.it)
+
+  This file should be part of the source code distribution of "PDF Clown library"
+  (the Program): see the accompanying README files for more info.
+
+  This Program is free software; you can redistribute it and/or modify it under the terms
+  of the GNU Lesser General Public License as published by the Free Software Foundation;
+  either version 3 of the License, or (at your option) any later version.
+
+  This Program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY,
+  either expressed or implied; without even the implied warranty of MERCHANTABILITY or
+  FITNESS FOR A PARTICULAR PURPOSE. See the License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this
+  Program (see README files); if not, go to the GNU website (http://www.gnu.org/licenses/).
+
+  Redistribution and use, with or without modification, are permitted provided that such
+  redistributions retain the above copyright notice, license and disclaimer, along with
+  this list of conditions.
+*/
+
+package org.pdfclown.tokens;
+
+import java.util.Arrays;
+
+import org.pdfclown.util.IntHashMap;
+
+/**
+  Compact cross-reference index [PDF:1.6:3.4.3].
+  <p>Entries are stored into parallel primitive arrays indexed by object number, so that large
+  files don't need an object per entry; {@link XRefEntry} instances are created on demand. The
+  arrays cover object numbers up to a small multiple of the entry count: sparse numbers beyond
+  such range (as declared by damaged or hostile files) are stored into a hash map instead.</p>
+
+  @author Stefano Chizzolini (http://www.stefanochizzolini.it)
+  @since 0.2.0
+  @version 0.2.0, 06/15/15
+*/
+public final class XRefIndex
+{
+  // <class>
+  // <classes>
+  /**
+    Entry out of the dense range.
+  */
+  private static final class SparseEntry
+  {
+    int generation;
+    long offset;
+    byte type;
+  }
+  // </classes>
+
+  // <static>
+  // <fields>
+  private static final int DefaultCapacity = 16;
+  /**
+    Maximum ratio between the dense range and the entry count.
+  */
+  private static final int DenseRatio = 4;
+
+  private static final byte UndefinedType = 0;
+  private static final byte FreeType = 1;
+  private static final byte InUseType = 2;
+  private static final byte InUseCompressedType = 3;
+  // </fields>
+  // </static>
+
+  // <dynamic>
+  // <fields>
+  /**
+    Number of defined entries.
+  */
+  private int count;
+  /**
+    Entry generations (ordinary entries) or object indexes within their object stream (compressed
+    entries).
+  */
+  private int[] generations;
+  /**
+    Highest defined object number.
+  */
+  private int lastNumber = -1;
+  /**
+    Entry byte offsets (in-use entries), next free-object object numbers (free entries) or object
+    stream numbers (compressed entries).
+  */
+  private long[] offsets;
+  /**
+    Entries out of the dense range.
+  */
+  private final IntHashMap<SparseEntry> sparseEntries = new IntHashMap<SparseEntry>();
+  private byte[] types;
+  // </fields>
+
+  // <constructors>
+  public XRefIndex(
+    )
+  {this(DefaultCapacity);}
+
+  /**
+    @param capacity Initial number of entries.
+  */
+  public XRefIndex(
+    int capacity
+    )
+  {
+    generations = new int[capacity];
+    offsets = new long[capacity];
+    types = new byte[capacity];
+  }
+  // </constructors>
+
+  // <interface>
+  // <public>
+  /**
+    Gets whether the specified object number is defined.
+  */
+  public boolean contains(
+    int number
+    )
+  {return getType(number) != UndefinedType;}
+
+  /**
+    Gets a new entry corresponding to the specified object number.
+
+    @return <code>null</code>, if undefined.
+  */
+  public XRefEntry get(
+    int number
+    )
+  {
+    switch(getType(number))
+    {
+      case UndefinedType:
+        return null;
+      case FreeType:
+        return new XRefEntry(number, getRawGeneration(number), getRawOffset(number), XRefEntry.UsageEnum.Free);
+      case InUseType:
+        return new XRefEntry(number, getRawGeneration(number), getRawOffset(number), XRefEntry.UsageEnum.InUse);
+      default:
+        return new XRefEntry(number, getRawGeneration(number), (int)getRawOffset(number));
+    }
+  }
+
+  /**
+    Gets the generation number of the specified object (0, in case of compressed object).
+
+    @see XRefEntry#getGeneration()
+  */
+  public int getGeneration(
+    int number
+    )
+  {return getType(number) == InUseCompressedType ? 0 : getRawGeneration(number);}
+
+  /**
+    Gets the highest defined object number.
+
+    @return <code>-1</code>, if no entry is defined.
+  */
+  public int getLastNumber(
+    )
+  {return lastNumber;}
+
+  /**
+    Gets the defined object numbers, in ascending order.
+    <p>Differently from a scan up to the {@link #getLastNumber() last number}, its cost depends on
+    the entry count only.</p>
+  */
+  public int[] getNumbers(
+    )
+  {
+    int[] numbers = new int[count];
+    int index = 0;
+    for(int number = 0, length = Math.min(types.length, lastNumber + 1); number < length; number++)
+    {
+      if(types[number] != UndefinedType)
+      {numbers[index++] = number;}
+    }
+    if(index < count) // Sparse numbers.
+    {
+      int[] sparseNumbers = sparseEntries.getKeys();
+      System.arraycopy(sparseNumbers, 0, numbers, index, sparseNumbers.length);
+      Arrays.sort(numbers);
+    }
+    return numbers;
+  }
+
+  /**
+    Gets the indirect-object byte offset within the serialized file (in-use entry), the next
+    free-object object number (free entry) or the object index within its object stream (compressed
+    entry) of the specified object.
+
+    @see XRefEntry#getOffset()
+  */
+  public long getOffset(
+    int number
+    )
+  {return getType(number) == InUseCompressedType ? getRawGeneration(number) : getRawOffset(number);}
+
+  /**
+    Gets the object number of the object stream in which the specified object is stored.
+
+    @return {@link XRefEntry#UndefinedStreamNumber} in case it isn't a compressed object.
+    @see XRefEntry#getStreamNumber()
+  */
+  public int getStreamNumber(
+    int number
+    )
+  {return getType(number) == InUseCompressedType ? (int)getRawOffset(number) : XRefEntry.UndefinedStreamNumber;}
+
+  /**
+    Gets the usage state of the specified object.
+
+    @return <code>null</code>, if undefined.
+    @see XRefEntry#getUsage()
+  */
+  public XRefEntry.UsageEnum getUsage(
+    int number
+    )
+  {
+    switch(getType(number))
+    {
+      case UndefinedType:
+        return null;
+      case FreeType:
+        return XRefEntry.UsageEnum.Free;
+      case InUseType:
+        return XRefEntry.UsageEnum.InUse;
+      default:
+        return XRefEntry.UsageEnum.InUseCompressed;
+    }
+  }
+
+  /**
+    Defines an ordinary (uncompressed) object entry.
+
+    @param number Object number.
+    @param generation Generation number.
+    @param offset Indirect-object byte offset within the serialized file (in-use entry),
+      or the next free-object object number (free entry).
+    @param usage Usage state.
+  */
+  public void put(
+    int number,
+    int generation,
+    long offset,
+    XRefEntry.UsageEnum usage
+    )
+  {
+    switch(usage)
+    {
+      case Free:
+        put(number, FreeType, offset, generation);
+        break;
+      case InUse:
+        put(number, InUseType, offset, generation);
+        break;
+      default:
+        throw new IllegalArgumentException("Compressed entries MUST be defined through putCompressed(..).");
+    }
+  }
+
+  /**
+    Defines the specified entry.
+  */
+  public void put(
+    XRefEntry entry
+    )
+  {
+    if(entry.getUsage() == XRefEntry.UsageEnum.InUseCompressed)
+    {putCompressed(entry.getNumber(), (int)entry.getOffset(), entry.getStreamNumber());}
+    else
+    {put(entry.getNumber(), entry.getGeneration(), entry.getOffset(), entry.getUsage());}
+  }
+
+  /**
+    Defines a compressed object entry.
+
+    @param number Object number.
+    @param index Object index within its object stream.
+    @param streamNumber Object number of the object stream in which this object is stored.
+  */
+  public void putCompressed(
+    int number,
+    int index,
+    int streamNumber
+    )
+  {put(number, InUseCompressedType, streamNumber, index);}
+  // </public>
+
+  // <private>
+  /**
+    Ensures that the dense range covers the specified object number, as far as it is within the
+    allowed ratio to the entry count.
+
+    @return Whether the object number is covered by the dense range.
+  */
+  private boolean ensureCapacity(
+    int number
+    )
+  {
+    if(number < types.length)
+      return true;
+    else if(number >= Math.max((long)(count + 1) * DenseRatio, DefaultCapacity)) // Sparse number.
+      return false;
+
+    int capacity = (int)Math.max(Math.max((long)types.length << 1, DefaultCapacity), number + 1L);
+    generations = Arrays.copyOf(generations, capacity);
+    offsets = Arrays.copyOf(offsets, capacity);
+    types = Arrays.copyOf(types, capacity);
+    return true;
+  }
+
+  private int getRawGeneration(
+    int number
+    )
+  {
+    if(number < types.length && types[number] != UndefinedType)
+      return generations[number];
+
+    SparseEntry sparseEntry = sparseEntries.get(number);
+    return sparseEntry != null ? sparseEntry.generation : 0;
+  }
+
+  private long getRawOffset(
+    int number
+    )
+  {
+    if(number < types.length && types[number] != UndefinedType)
+      return offsets[number];
+
+    SparseEntry sparseEntry = sparseEntries.get(number);
+    return sparseEntry != null ? sparseEntry.offset : 0;
+  }
+
+  private byte getType(
+    int number
+    )
+  {
+    if(number < 0 || number > lastNumber)
+      return UndefinedType;
+    else if(number < types.length && types[number] != UndefinedType)
+      return types[number];
+
+    SparseEntry sparseEntry = sparseEntries.get(number);
+    return sparseEntry != null ? sparseEntry.type : UndefinedType;
+  }
+
+  private void put(
+    int number,
+    byte type,
+    long offset,
+    int generation
+    )
+  {
+    if(number < 0)
+      throw new IllegalArgumentException("Object number (" + number + ") MUST be non-negative.");
+
+    SparseEntry sparseEntry = sparseEntries.get(number);
+    if(sparseEntry == null)
+    {
+      if(ensureCapacity(number)) // Dense number.
+      {
+        if(types[number] == UndefinedType)
+        {count++;}
+        types[number] = type;
+        offsets[number] = offset;
+        generations[number] = generation;
+      }
+      else // Sparse number.
+      {
+        sparseEntries.put(number, sparseEntry = new SparseEntry());
+        count++;
+      }
+    }
+    if(sparseEntry != null)
+    {
+      sparseEntry.type = type;
+      sparseEntry.offset = offset;
+      sparseEntry.generation = generation;
+    }
+    if(number > lastNumber)
+    {lastNumber = number;}
+  }
+  // </private>
+  // </interface>
+  // </dynamic>
+  // </class>
+}
@@ -0,0 +1,518 @@
+/*
+  Copyright 2015 Stefano Chizzolini. http://www.pdfclown.org
+
+  Contributors:
+    * Stefano Chizzolini (original code developer, http://www.stefanochizzolini.it)
+
+  This file should be part of the source code distribution of "PDF Clown library"
+  (the Program): see the accompanying README files for more info.
+
+  This Program is free software; you can redistribute it and/or modify it under the terms
+  of the GNU Lesser General Public License as published by the Free Software Foundation;
+  either version 3 of the License, or (at your option) any later version.
+
+  This Program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY,
+  either expressed or implied; without even the implied warranty of MERCHANTABILITY or
+  FITNESS FOR A PARTICULAR PURPOSE. See the License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this
+  Program (see README files); if not, go to the GNU website (http://www.gnu.org/licenses/).
+
+  Redistribution and use, with or without modification, are permitted provided that such
+  redistributions retain the above copyright notice, license and disclaimer, along with
+  this list of conditions.
+*/
+
+package org.pdfclown.tokens;
+
+import java.io.EOFException;
+import java.util.Arrays;
+
+import org.pdfclown.Version;
+import org.pdfclown.bytes.IInputStream;
+import org.pdfclown.objects.PdfDataObject;
+import org.pdfclown.objects.PdfDictionary;
+import org.pdfclown.objects.PdfDirectObject;
+import org.pdfclown.objects.PdfInteger;
+import org.pdfclown.objects.PdfName;
+import org.pdfclown.objects.PdfReference;
+import org.pdfclown.objects.PdfStream;
+import org.pdfclown.util.parsers.PostScriptParseException;
+
+/**
+  Cross-reference scanner for damaged files.
+  <p>It rebuilds the cross-reference information of a file whose xref sections are missing or
+  corrupted, scanning its bytes in a single pass for indirect-object headers, trailers and object
+  streams; in case of multiple definitions of the same object, the last one wins (as if it came
+  from an incremental update).</p>
+
+  @author Stefano Chizzolini (http://www.stefanochizzolini.it)
+  @since 0.2.0
+  @version 0.2.0, 06/15/15
+*/
+final class XRefScanner
+{
+  // <class>
+  // <static>
+  // <fields>
+  private static final int ChunkSize = 1 << 20;
+  /**
+    Number of bytes preceding each chunk, carried over from the previous one (it MUST fit both the
+    longest keyword and the longest indirect-object header).
+  */
+  private static final int ChunkOverlap = 64;
+  /**
+    Number of trailing bytes of each chunk whose matching is deferred to the next one.
+  */
+  private static final int ChunkTail = 16;
+  private static final int MaxGenerationDigitCount = 5;
+  private static final int MaxNumberDigitCount = 10;
+
+  private static final byte[] CatalogName = (Keyword.NamePrefix + PdfName.Catalog.getValue()).getBytes();
+  private static final byte[] EndIndirectObjectKeyword = Keyword.EndIndirectObject.getBytes();
+  private static final byte[] BeginIndirectObjectKeyword = Keyword.BeginIndirectObject.getBytes();
+  private static final byte[] ObjStmName = (Keyword.NamePrefix + PdfName.ObjStm.getValue()).getBytes();
+  private static final byte[] TrailerKeyword = Keyword.Trailer.getBytes();
+  private static final byte[] XRefName = (Keyword.NamePrefix + PdfName.XRef.getValue()).getBytes();
+
+  private static final byte CatalogFlag = 1;
+  private static final byte ObjStmFlag = 2;
+  private static final byte XRefFlag = 4;
+  // </fields>
+
+  // <interface>
+  // <private>
+  private static boolean isDelimiter(
+    int c
+    )
+  {
+    return c == Symbol.OpenRoundBracket
+      || c == Symbol.CloseRoundBracket
+      || c == Symbol.OpenAngleBracket
+      || c == Symbol.CloseAngleBracket
+      || c == Symbol.OpenSquareBracket
+      || c == Symbol.CloseSquareBracket
+      || c == Symbol.Slash
+      || c == Symbol.Percent;
+  }
+
+  private static boolean isDigit(
+    int c
+    )
+  {return c >= '0' && c <= '9';}
+
+  private static boolean isWhitespace(
+    int c
+    )
+  {return c == 32 || c == 10 || c == 13 || c == 0 || c == 9 || c == 12;}
+  // </private>
+  // </interface>
+  // </static>
+
+  // <dynamic>
+  // <fields>
+  private final FileParser parser;
+
+  private byte[] chunk;
+  /**
+    File position of the first byte of the chunk.
+  */
+  private long chunkPosition;
+
+  private int objectCount;
+  private byte[] objectFlags = new byte[64];
+  private int[] objectGenerations = new int[64];
+  private int[] objectNumbers = new int[64];
+  private long[] objectOffsets = new long[64];
+
+  private int trailerCount;
+  private long[] trailerOffsets = new long[4];
+  // </fields>
+
+  // <constructors>
+  XRefScanner(
+    FileParser parser
+    )
+  {this.parser = parser;}
+  // </constructors>
+
+  // <interface>
+  // <public>
+  /**
+    Scans the file, rebuilding its cross-reference information.
+
+    @param version File header version.
+  */
+  public Reader.FileInfo scan(
+    Version version
+    )
+  {
+    try
+    {scanFile();}
+    catch(EOFException e)
+    {throw new PostScriptParseException("Cross-reference recovery failed.", e);}
+
+    XRefIndex xrefIndex = buildIndex();
+    return new Reader.FileInfo(version, buildTrailer(xrefIndex), xrefIndex);
+  }
+  // </public>
+
+  // <private>
+  private void addObject(
+    int number,
+    int generation,
+    long offset
+    )
+  {
+    if(objectCount == objectOffsets.length)
+    {
+      int capacity = objectCount << 1;
+      objectFlags = Arrays.copyOf(objectFlags, capacity);
+      objectGenerations = Arrays.copyOf(objectGenerations, capacity);
+      objectNumbers = Arrays.copyOf(objectNumbers, capacity);
+      objectOffsets = Arrays.copyOf(objectOffsets, capacity);
+    }
+    objectFlags[objectCount] = 0;
+    objectGenerations[objectCount] = generation;
+    objectNumbers[objectCount] = number;
+    objectOffsets[objectCount] = offset;
+    objectCount++;
+  }
+
+  private XRefIndex buildIndex(
+    )
+  {
+    XRefIndex xrefIndex = new XRefIndex();
+    // Register the leading free-object [PDF:1.6:3.4.3]!
+    xrefIndex.put(0, XRefEntry.GenerationUnreusable, 0, XRefEntry.UsageEnum.Free);
+
+    // 1. Uncompressed objects.
+    for(int index = 0; index < objectCount; index++)
+    {xrefIndex.put(objectNumbers[index], objectGenerations[index], objectOffsets[index], XRefEntry.UsageEnum.InUse);}
+
+    // 2. Compressed objects.
+    for(int index = 0; index < objectCount; index++)
+    {
+      if((objectFlags[index] & ObjStmFlag) == 0
+        || !isCurrent(xrefIndex, index))
+        continue;
+
+      PdfStream objectStream = parseStream(xrefIndex, index);
+      if(objectStream == null)
+        continue;
+
+      long objectStreamOffset = objectOffsets[index];
+      int objectStreamNumber = objectNumbers[index];
+      try
+      {
+        PdfDictionary header = objectStream.getHeader();
+        int count = ((PdfInteger)header.get(PdfName.N)).getValue();
+        FileParser streamParser = new FileParser(objectStream.getBody(), parser.getFile());
+        for(int objectIndex = 0; objectIndex < count; objectIndex++)
+        {
+          int objectNumber = ((PdfInteger)streamParser.parsePdfObject(1)).getValue();
+          streamParser.moveNext(); // Skips the object offset.
+          if(objectNumber <= 0)
+            continue;
+
+          /*
+            NOTE: Uncompressed definitions following the object stream override its objects.
+          */
+          if(xrefIndex.getUsage(objectNumber) == XRefEntry.UsageEnum.InUse
+            && xrefIndex.getOffset(objectNumber) > objectStreamOffset)
+            continue;
+
+          xrefIndex.putCompressed(objectNumber, objectIndex, objectStreamNumber);
+        }
+      }
+      catch(RuntimeException e)
+      {/* NOOP: Damaged object stream (its objects are lost). */}
+    }
+    return xrefIndex;
+  }
+
+  private PdfDictionary buildTrailer(
+    XRefIndex xrefIndex
+    )
+  {
+    // 1. Original trailer.
+    /*
+      NOTE: Both trailer dictionaries and cross-reference streams are candidates; the last one
+      declaring the document catalog is elected.
+    */
+    PdfDictionary sourceTrailer = null;
+    {
+      int trailerIndex = trailerCount - 1;
+      int objectIndex = objectCount - 1;
+      while(sourceTrailer == null
+        && (trailerIndex >= 0 || objectIndex >= 0))
+      {
+        PdfDictionary trailer = null;
+        if(objectIndex >= 0
+          && (trailerIndex < 0 || objectOffsets[objectIndex] > trailerOffsets[trailerIndex]))
+        {
+          if((objectFlags[objectIndex] & XRefFlag) != 0
+            && isCurrent(xrefIndex, objectIndex))
+          {
+            PdfStream xrefStream = parseStream(xrefIndex, objectIndex);
+            if(xrefStream != null)
+            {trailer = xrefStream.getHeader();}
+          }
+          objectIndex--;
+        }
+        else
+        {
+          try
+          {
+            parser.seek(trailerOffsets[trailerIndex]);
+            PdfDataObject trailerObject = parser.parsePdfObject(2);
+            if(trailerObject instanceof PdfDictionary)
+            {trailer = (PdfDictionary)trailerObject;}
+          }
+          catch(RuntimeException e)
+          {/* NOOP: Damaged trailer. */}
+          trailerIndex--;
+        }
+        if(trailer != null
+          && trailer.get(PdfName.Root) instanceof PdfReference)
+        {sourceTrailer = trailer;}
+      }
+    }
+
+    // 2. Recovered trailer.
+    PdfDictionary trailer = new PdfDictionary();
+    if(sourceTrailer != null)
+    {
+      for(PdfName key : new PdfName[]{PdfName.Root, PdfName.Info, PdfName.ID, PdfName.Encrypt})
+      {
+        PdfDirectObject value = sourceTrailer.get(key);
+        if(value != null)
+        {trailer.put(key, value);}
+      }
+    }
+    else
+    {
+      // Look for the document catalog!
+      for(int index = objectCount - 1; index >= 0; index--)
+      {
+        if((objectFlags[index] & CatalogFlag) != 0
+          && isCurrent(xrefIndex, index))
+        {
+          trailer.put(
+            PdfName.Root,
+            new PdfReference(objectNumbers[index], objectGenerations[index], parser.getFile())
+            );
+          break;
+        }
+      }
+      if(!trailer.containsKey(PdfName.Root))
+        throw new PostScriptParseException("Cross-reference recovery failed: document catalog not found.", parser);
+    }
+    trailer.put(PdfName.Size, PdfInteger.get(xrefIndex.getLastNumber() + 1));
+    /*
+      NOTE: Compressed objects can be serialized through cross-reference streams only.
+    */
+    for(int number : xrefIndex.getNumbers())
+    {
+      if(xrefIndex.getUsage(number) == XRefEntry.UsageEnum.InUseCompressed)
+      {
+        trailer.put(PdfName.Type, PdfName.XRef);
+        break;
+      }
+    }
+    return trailer;
+  }
+
+  /**
+    Gets whether the scanned object is the current definition of its object number.
+  */
+  private boolean isCurrent(
+    XRefIndex xrefIndex,
+    int index
+    )
+  {
+    int number = objectNumbers[index];
+    return xrefIndex.getUsage(number) == XRefEntry.UsageEnum.InUse
+      && xrefIndex.getOffset(number) == objectOffsets[index];
+  }
+
+  /**
+    Gets whether the chunk matches the specified keyword at the specified position, as a whole token.
+  */
+  private boolean matches(
+    byte[] keyword,
+    int position,
+    int chunkLength
+    )
+  {
+    int end = position + keyword.length;
+    if(end > chunkLength)
+      return false;
+
+    for(int index = 1; index < keyword.length; index++)
+    {
+      if(chunk[position + index] != keyword[index])
+        return false;
+    }
+    return end == chunkLength
+      || isWhitespace(chunk[end])
+      || isDelimiter(chunk[end]);
+  }
+
+  /**
+    Matches an indirect-object header ending with the 'obj' keyword at the specified position.
+  */
+  private void matchObjectHeader(
+    int position
+    )
+  {
+    // Generation number.
+    int index = position - 1;
+    if(index < 0 || !isWhitespace(chunk[index]))
+      return;
+    while(index >= 0 && isWhitespace(chunk[index]))
+    {index--;}
+    int generationEnd = index + 1;
+    while(index >= 0 && isDigit(chunk[index]))
+    {index--;}
+    int generationStart = index + 1;
+    if(generationStart == generationEnd
+      || generationEnd - generationStart > MaxGenerationDigitCount)
+      return;
+
+    // Object number.
+    if(index < 0 || !isWhitespace(chunk[index]))
+      return;
+    while(index >= 0 && isWhitespace(chunk[index]))
+    {index--;}
+    int numberEnd = index + 1;
+    while(index >= 0 && isDigit(chunk[index]))
+    {index--;}
+    int numberStart = index + 1;
+    if(numberStart == numberEnd
+      || numberEnd - numberStart > MaxNumberDigitCount)
+      return;
+    if(index >= 0
+      ? !(isWhitespace(chunk[index]) || isDelimiter(chunk[index]))
+      : chunkPosition > 0) // NOTE: Header possibly truncated by the chunk start.
+      return;
+
+    long number = parseNumber(numberStart, numberEnd);
+    if(number <= 0 || number > Integer.MAX_VALUE)
+      return;
+
+    addObject((int)number, (int)parseNumber(generationStart, generationEnd), chunkPosition + numberStart);
+  }
+
+  private long parseNumber(
+    int start,
+    int end
+    )
+  {
+    long value = 0;
+    for(int index = start; index < end; index++)
+    {value = value * 10 + (chunk[index] - '0');}
+    return value;
+  }
+
+  /**
+    Parses the stream corresponding to the specified scanned object.
+
+    @return <code>null</code>, if it isn't a valid stream.
+  */
+  private PdfStream parseStream(
+    XRefIndex xrefIndex,
+    int index
+    )
+  {
+    try
+    {
+      PdfDataObject object = parser.parsePdfObject(xrefIndex.get(objectNumbers[index]));
+      return object instanceof PdfStream ? (PdfStream)object : null;
+    }
+    catch(RuntimeException e)
+    {return null;}
+  }
+
+  /**
+    Scans the file bytes, collecting the positions of indirect objects and trailers.
+  */
+  private void scanFile(
+    ) throws EOFException
+  {
+    IInputStream stream = parser.getStream();
+    long length = stream.getLength();
+    chunk = new byte[ChunkOverlap + ChunkSize];
+    chunkPosition = 0;
+    int chunkLength = 0;
+    long readPosition = 0;
+    long scanPosition = 0;
+    int currentObjectIndex = -1; // Object whose body is being scanned.
+    stream.seek(0);
+    while(readPosition < length)
+    {
+      // Load the next chunk!
+      {
+        int overlap = Math.min(chunkLength, ChunkOverlap);
+        System.arraycopy(chunk, chunkLength - overlap, chunk, 0, overlap);
+        int readLength = (int)Math.min(ChunkSize, length - readPosition);
+        stream.read(chunk, overlap, readLength);
+        chunkPosition = readPosition - overlap;
+        chunkLength = overlap + readLength;
+        readPosition += readLength;
+      }
+
+      // Scan the chunk!
+      int end = (readPosition < length ? chunkLength - ChunkTail : chunkLength);
+      for(int index = (int)(scanPosition - chunkPosition); index < end; index++)
+      {
+        switch(chunk[index])
+        {
+          case 'o':
+            if(matches(BeginIndirectObjectKeyword, index, chunkLength))
+            {
+              int oldObjectCount = objectCount;
+              matchObjectHeader(index);
+              if(objectCount > oldObjectCount)
+              {currentObjectIndex = oldObjectCount;}
+            }
+            break;
+          case 'e':
+            if(matches(EndIndirectObjectKeyword, index, chunkLength))
+            {currentObjectIndex = -1;}
+            break;
+          case 't':
+            if(matches(TrailerKeyword, index, chunkLength)
+              && (index == 0 || isWhitespace(chunk[index - 1]) || isDelimiter(chunk[index - 1])))
+            {
+              if(trailerCount == trailerOffsets.length)
+              {trailerOffsets = Arrays.copyOf(trailerOffsets, trailerCount << 1);}
+              trailerOffsets[trailerCount++] = chunkPosition + index;
+            }
+            break;
+          case Symbol.Slash:
+            if(currentObjectIndex >= 0)
+            {
+              if(matches(ObjStmName, index, chunkLength))
+              {objectFlags[currentObjectIndex] |= ObjStmFlag;}
+              else if(matches(XRefName, index, chunkLength))
+              {objectFlags[currentObjectIndex] |= XRefFlag;}
+              else if(matches(CatalogName, index, chunkLength))
+              {objectFlags[currentObjectIndex] |= CatalogFlag;}
+            }
+            break;
+          default:
+          {
+            /* NOOP */
+          }
+        }
+      }
+      scanPosition = chunkPosition + end;
+    }
+    chunk = null;
+  }
+  // </private>
+  // </interface>
+  // </dynamic>
+  // </class>
+}
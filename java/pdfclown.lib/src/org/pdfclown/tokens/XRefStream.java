@@ -44,6 +44,7 @@ import org.pdfclown.objects.PdfDictionary;
 import org.pdfclown.objects.PdfDirectObject;
 import org.pdfclown.objects.PdfInteger;
 import org.pdfclown.objects.PdfName;
+import org.pdfclown.objects.PdfNumber;
 import org.pdfclown.objects.PdfObject;
 import org.pdfclown.objects.PdfStream;
 import org.pdfclown.util.ConvertUtils;
@@ -67,7 +68,7 @@ public final class XRefStream
   private static final int InUseEntryType = 1;
   private static final int InUseCompressedEntryType = 2;
 
-  private static final double ByteBaseLog = Math.log(256);
+  private static final int PngUpPredictor = 12;
 
   private static final int EntryField0Size = 1;
   private static final int EntryField2Size = getFieldSize(XRefEntry.GenerationUnreusable);
@@ -81,9 +82,14 @@ public final class XRefStream
     @param maxValue Maximum storable value.
   */
   private static int getFieldSize(
-    int maxValue
+    long maxValue
     )
-  {return (int)Math.ceil(Math.log(maxValue)/ByteBaseLog);}
+  {
+    int size = 1;
+    while((maxValue >>>= 8) != 0)
+    {size++;}
+    return size;
+  }
 
   /**
     Converts the specified value into a customly-sized big-endian byte array.
@@ -92,10 +98,29 @@ public final class XRefStream
     @param length Byte array's length.
    */
   private static byte[] numberToByteArray(
-    int value,
+    long value,
     int length
     )
   {return ConvertUtils.numberToByteArray(value, length, ByteOrder.BIG_ENDIAN);}
+
+  /**
+    Reads a customly-sized big-endian unsigned integer.
+    <p>Differently from {@link IBuffer#readInt(int)}, its value may exceed 32 bits (byte offsets
+    within files larger than 2 GB).</p>
+
+    @param body Source.
+    @param length Value's length in bytes.
+  */
+  private static long readLong(
+    IBuffer body,
+    int length
+    ) throws EOFException
+  {
+    long value = 0;
+    for(int index = 0; index < length; index++)
+    {value = (value << 8) | body.readUnsignedByte();}
+    return value;
+  }
   // </private>
   // </interface>
   // </static>
@@ -152,11 +177,11 @@ public final class XRefStream
 
     @return <code>-1</code> in case no linked stream exists.
   */
-  public int getLinkedStreamOffset(
+  public long getLinkedStreamOffset(
     )
   {
-    PdfInteger linkedStreamOffsetObject = (PdfInteger)getHeader().get(PdfName.Prev);
-    return (linkedStreamOffsetObject != null ? linkedStreamOffsetObject.getValue() : -1);
+    PdfNumber<?> linkedStreamOffsetObject = (PdfNumber<?>)getHeader().get(PdfName.Prev);
+    return (linkedStreamOffsetObject != null ? linkedStreamOffsetObject.getLongValue() : -1);
   }
 
   @Override
@@ -246,6 +271,29 @@ public final class XRefStream
   // </Map>
   // </public>
 
+  // <internal>
+  /**
+    <span style="color:red">For internal use only.</span>
+    <p>Adds its entries to the specified index, skipping those already defined. Differently from the
+    {@link Map} interface, no {@link XRefEntry} is instantiated.</p>
+  */
+  public void readEntries(
+    XRefIndex index
+    )
+  {
+    if(entries != null)
+    {
+      for(XRefEntry entry : entries.values())
+      {
+        if(!index.contains(entry.getNumber()))
+        {index.put(entry);}
+      }
+    }
+    else
+    {parseEntries(index);}
+  }
+  // </internal>
+
   // <private>
   /**
     Serializes the xref stream entries into the stream body.
@@ -259,7 +307,7 @@ public final class XRefStream
     final int[] entryFieldSizes = new int[]
       {
         EntryField0Size,
-        getFieldSize((int)stream.getLength()), // NOTE: We assume this xref stream is the last indirect object.
+        getFieldSize(stream.getLength()), // NOTE: We assume this xref stream is the last indirect object.
         EntryField2Size
       };
     {
@@ -325,6 +373,30 @@ public final class XRefStream
           PdfInteger.get(entryFieldSizes[2])
           )
         );
+      if(getFile().getConfiguration().isStreamFilterEnabled())
+      {
+        /*
+          NOTE: As entries are fixed-size records whose fields vary little from one to the next,
+          PNG Up prediction makes them much more compressible.
+        */
+        header.put(
+          PdfName.DecodeParms,
+          new PdfDictionary(
+            new PdfName[]
+              {
+                PdfName.Predictor,
+                PdfName.Columns
+              },
+            new PdfDirectObject[]
+              {
+                PdfInteger.get(PngUpPredictor),
+                PdfInteger.get(entryFieldSizes[0] + entryFieldSizes[1] + entryFieldSizes[2])
+              }
+            )
+          );
+      }
+      else
+      {header.remove(PdfName.DecodeParms);}
     }
   }
 
@@ -335,104 +407,98 @@ public final class XRefStream
     {
       entries = new TreeMap<Integer,XRefEntry>();
 
-      final IBuffer body = getBody();
-      if(body.getLength() > 0)
+      XRefIndex index = new XRefIndex();
+      parseEntries(index);
+      for(int number : index.getNumbers())
+      {entries.put(number, index.get(number));}
+    }
+    return entries;
+  }
+
+  /**
+    Parses the entries serialized in the stream body into the specified index, skipping those
+    already defined.
+  */
+  private void parseEntries(
+    XRefIndex index
+    )
+  {
+    final IBuffer body = getBody();
+    if(body.getLength() == 0)
+      return;
+
+    try
+    {
+      final PdfDictionary header = getHeader();
+      final int size = ((PdfInteger)header.get(PdfName.Size)).getValue();
+      final int[] entryFieldSizes;
       {
-        try
+        final PdfArray entryFieldSizesObject = (PdfArray)header.get(PdfName.W);
+        entryFieldSizes = new int[entryFieldSizesObject.size()];
+        for(int fieldIndex = 0, length = entryFieldSizes.length; fieldIndex < length; fieldIndex++)
+        {entryFieldSizes[fieldIndex] = ((PdfInteger)entryFieldSizesObject.get(fieldIndex)).getValue();}
+      }
+
+      final PdfArray subsectionBounds;
+      if(header.containsKey(PdfName.Index))
+      {subsectionBounds = (PdfArray)header.get(PdfName.Index);}
+      else
+      {
+        subsectionBounds = new PdfArray();
+        subsectionBounds.add(PdfInteger.get(0));
+        subsectionBounds.add(PdfInteger.get(size));
+      }
+
+      body.setByteOrder(ByteOrder.BIG_ENDIAN);
+      body.seek(0);
+
+      final Iterator<PdfDirectObject> subsectionBoundIterator = subsectionBounds.iterator();
+      while(subsectionBoundIterator.hasNext())
+      {
+        final int start = ((PdfInteger)subsectionBoundIterator.next()).getValue();
+        final int count = ((PdfInteger)subsectionBoundIterator.next()).getValue();
+        for(
+          int entryIndex = start,
+            length = start + count;
+          entryIndex < length;
+          entryIndex++
+          )
         {
-          final PdfDictionary header = getHeader();
-          final int size = ((PdfInteger)header.get(PdfName.Size)).getValue();
-          final int[] entryFieldSizes;
-          {
-            final PdfArray entryFieldSizesObject = (PdfArray)header.get(PdfName.W);
-            entryFieldSizes = new int[entryFieldSizesObject.size()];
-            for(int index = 0, length = entryFieldSizes.length; index < length; index++)
-            {entryFieldSizes[index] = ((PdfInteger)entryFieldSizesObject.get(index)).getValue();}
-          }
-  
-          final PdfArray subsectionBounds;
-          if(header.containsKey(PdfName.Index))
-          {subsectionBounds = (PdfArray)header.get(PdfName.Index);}
-          else
-          {
-            subsectionBounds = new PdfArray();
-            subsectionBounds.add(PdfInteger.get(0));
-            subsectionBounds.add(PdfInteger.get(size));
-          }
-  
-          body.setByteOrder(ByteOrder.BIG_ENDIAN);
-          body.seek(0);
-  
-          final Iterator<PdfDirectObject> subsectionBoundIterator = subsectionBounds.iterator();
-          while(subsectionBoundIterator.hasNext())
+          final int entryFieldType = (entryFieldSizes[0] == 0 ? 1 : body.readInt(entryFieldSizes[0]));
+          switch(entryFieldType)
           {
-            final int start = ((PdfInteger)subsectionBoundIterator.next()).getValue();
-            final int count = ((PdfInteger)subsectionBoundIterator.next()).getValue();
-            for(
-              int entryIndex = start,
-                length = start + count;
-              entryIndex < length;
-              entryIndex++
-              )
+            case FreeEntryType:
             {
-              final int entryFieldType = (entryFieldSizes[0] == 0 ? 1 : body.readInt(entryFieldSizes[0]));
-              switch(entryFieldType)
-              {
-                case FreeEntryType:
-                {
-                  final int nextFreeObjectNumber = body.readInt(entryFieldSizes[1]);
-                  final int generation = body.readInt(entryFieldSizes[2]);
-                  entries.put(
-                    entryIndex,
-                    new XRefEntry(
-                      entryIndex,
-                      generation,
-                      nextFreeObjectNumber,
-                      XRefEntry.UsageEnum.Free
-                      )
-                    );
-                  break;
-                }
-                case InUseEntryType:
-                {
-                  final int offset = body.readInt(entryFieldSizes[1]);
-                  final int generation = body.readInt(entryFieldSizes[2]);
-                  entries.put(
-                    entryIndex,
-                    new XRefEntry(
-                      entryIndex,
-                      generation,
-                      offset,
-                      XRefEntry.UsageEnum.InUse
-                      )
-                    );
-                  break;
-                }
-                case InUseCompressedEntryType:
-                {
-                  final int streamNumber = body.readInt(entryFieldSizes[1]);
-                  final int innerNumber = body.readInt(entryFieldSizes[2]);
-                  entries.put(
-                    entryIndex,
-                    new XRefEntry(
-                      entryIndex,
-                      innerNumber,
-                      streamNumber
-                      )
-                    );
-                  break;
-                }
-                default:
-                  throw new UnsupportedOperationException("Unknown xref entry type '" + entryFieldType + "'.");
-              }
+              final int nextFreeObjectNumber = body.readInt(entryFieldSizes[1]);
+              final int generation = body.readInt(entryFieldSizes[2]);
+              if(!index.contains(entryIndex))
+              {index.put(entryIndex, generation, nextFreeObjectNumber, XRefEntry.UsageEnum.Free);}
+              break;
+            }
+            case InUseEntryType:
+            {
+              final long offset = readLong(body, entryFieldSizes[1]);
+              final int generation = body.readInt(entryFieldSizes[2]);
+              if(!index.contains(entryIndex))
+              {index.put(entryIndex, generation, offset, XRefEntry.UsageEnum.InUse);}
+              break;
             }
+            case InUseCompressedEntryType:
+            {
+              final int streamNumber = body.readInt(entryFieldSizes[1]);
+              final int innerNumber = body.readInt(entryFieldSizes[2]);
+              if(!index.contains(entryIndex))
+              {index.putCompressed(entryIndex, innerNumber, streamNumber);}
+              break;
+            }
+            default:
+              throw new UnsupportedOperationException("Unknown xref entry type '" + entryFieldType + "'.");
           }
         }
-        catch(EOFException e)
-        {throw new ParseException("Malformed cross-reference stream object.", e);}
       }
     }
-    return entries;
+    catch(EOFException e)
+    {throw new ParseException("Malformed cross-reference stream object.", e);}
   }
   // </private>
   // </interface>
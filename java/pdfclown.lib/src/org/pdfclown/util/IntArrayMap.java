@@ -0,0 +1,342 @@
+/*
+  Copyright 2015 Stefano Chizzolini. http://www.pdfclown.org
+
+  Contributors:
+    * Stefano Chizzolini (original code developer, http://www.stefanochizzolini.it)
+
+  This file should be part of the source code distribution of "PDF Clown library"
+  (the Program): see the accompanying README files for more info.
+
+  This Program is free software; you can redistribute it and/or modify it under the terms
+  of the GNU Lesser General Public License as published by the Free Software Foundation;
+  either version 3 of the License, or (at your option) any later version.
+
+  This Program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY,
+  either expressed or implied; without even the implied warranty of MERCHANTABILITY or
+  FITNESS FOR A PARTICULAR PURPOSE. See the License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this
+  Program (see README files); if not, go to the GNU website (http://www.gnu.org/licenses/).
+
+  Redistribution and use, with or without modification, are permitted provided that such
+  redistributions retain the above copyright notice, license and disclaimer, along with
+  this list of conditions.
+*/
+
+package org.pdfclown.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+  Map whose keys are non-negative integers, stored as indexes of a plain array.
+  <p>It suits dense keys such as object numbers: lookups neither box the key nor walk any structure,
+  and iteration follows the ascending key order. Primitive-key overloads should be preferred to the
+  {@link java.util.Map} interface ones.</p>
+  <p>The array covers keys up to a small multiple of the entry count: sparse keys beyond such range
+  are stored into a sorted map instead, till the array grows to cover them.</p>
+
+  @author Stefano Chizzolini (http://www.stefanochizzolini.it)
+  @since 0.2.0
+  @version 0.2.0, 06/15/15
+*/
+public final class IntArrayMap<V>
+  extends AbstractMap<Integer,V>
+{
+  // <class>
+  // <static>
+  // <fields>
+  private static final int DefaultCapacity = 16;
+  /**
+    Maximum ratio between the array length and the entry count.
+  */
+  private static final int DenseRatio = 4;
+  // </fields>
+  // </static>
+
+  // <dynamic>
+  // <fields>
+  private int modCount;
+  private int size;
+  /**
+    Entries whose keys are beyond the array length.
+  */
+  private final TreeMap<Integer,V> sparseValues = new TreeMap<Integer,V>();
+  private Object[] values;
+  // </fields>
+
+  // <constructors>
+  public IntArrayMap(
+    )
+  {this(DefaultCapacity);}
+
+  public IntArrayMap(
+    int capacity
+    )
+  {values = new Object[capacity];}
+  // </constructors>
+
+  // <interface>
+  // <public>
+  @Override
+  public void clear(
+    )
+  {
+    Arrays.fill(values, null);
+    sparseValues.clear();
+    size = 0;
+    modCount++;
+  }
+
+  public boolean containsKey(
+    int key
+    )
+  {return get(key) != null;}
+
+  @Override
+  public boolean containsKey(
+    Object key
+    )
+  {return key instanceof Integer && containsKey(((Integer)key).intValue());}
+
+  @Override
+  public Set<Entry<Integer,V>> entrySet(
+    )
+  {
+    return new AbstractSet<Entry<Integer,V>>()
+    {
+      @Override
+      public Iterator<Entry<Integer,V>> iterator(
+        )
+      {
+        return new Iterator<Entry<Integer,V>>()
+        {
+          private int expectedModCount = modCount;
+          /** Key of the last returned entry. */
+          private int key = -1;
+          /** Key of the next entry in the array. */
+          private int nextKey = seek(0);
+          /** Whether the last returned entry comes from the sparse entries. */
+          private boolean sparse;
+          /** Iterator over the sparse entries, once the array has been scanned. */
+          private Iterator<Map.Entry<Integer,V>> sparseIterator;
+
+          @Override
+          public boolean hasNext(
+            )
+          {return nextKey < values.length || getSparseIterator().hasNext();}
+
+          @Override
+          @SuppressWarnings("unchecked")
+          public Entry<Integer,V> next(
+            )
+          {
+            if(!hasNext())
+              throw new NoSuchElementException();
+            if(modCount != expectedModCount)
+              throw new ConcurrentModificationException();
+
+            if(nextKey < values.length) // Array entry.
+            {
+              key = nextKey;
+              nextKey = seek(key + 1);
+              sparse = false;
+              return new MapEntry<Integer,V>(key, (V)values[key]);
+            }
+            else // Sparse entry.
+            {
+              Map.Entry<Integer,V> entry = sparseIterator.next();
+              key = entry.getKey();
+              sparse = true;
+              return new MapEntry<Integer,V>(key, entry.getValue());
+            }
+          }
+
+          @Override
+          public void remove(
+            )
+          {
+            if(key < 0)
+              throw new IllegalStateException();
+            if(modCount != expectedModCount)
+              throw new ConcurrentModificationException();
+
+            if(sparse) // Sparse entry.
+            {
+              sparseIterator.remove();
+              size--;
+              modCount++;
+            }
+            else // Array entry.
+            {IntArrayMap.this.remove(key);}
+            expectedModCount = modCount;
+            key = -1;
+          }
+
+          private Iterator<Map.Entry<Integer,V>> getSparseIterator(
+            )
+          {
+            if(sparseIterator == null)
+            {sparseIterator = sparseValues.entrySet().iterator();}
+            return sparseIterator;
+          }
+        };
+      }
+
+      @Override
+      public int size(
+        )
+      {return size;}
+    };
+  }
+
+  @SuppressWarnings("unchecked")
+  public V get(
+    int key
+    )
+  {
+    if(key < values.length)
+      return key >= 0 ? (V)values[key] : null;
+    else
+      return sparseValues.isEmpty() ? null : sparseValues.get(key);
+  }
+
+  @Override
+  public V get(
+    Object key
+    )
+  {return key instanceof Integer ? get(((Integer)key).intValue()) : null;}
+
+  /**
+    Gets the highest key.
+
+    @return <code>-1</code>, if empty.
+  */
+  public int lastKey(
+    )
+  {
+    if(!sparseValues.isEmpty())
+      return sparseValues.lastKey();
+
+    for(int key = values.length - 1; key >= 0; key--)
+    {
+      if(values[key] != null)
+        return key;
+    }
+    return -1;
+  }
+
+  /**
+    @param value Value to associate to the key (<code>null</code> is equivalent to key removal).
+  */
+  @SuppressWarnings("unchecked")
+  public V put(
+    int key,
+    V value
+    )
+  {
+    if(key < 0)
+      throw new IllegalArgumentException("key MUST be non-negative.");
+
+    if(key >= values.length)
+    {
+      if(value == null
+        || key >= Math.max((long)(size + 1) * DenseRatio, DefaultCapacity)) // Sparse key.
+      {
+        V old = (value != null ? sparseValues.put(key, value) : sparseValues.remove(key));
+        if((old == null) != (value == null))
+        {
+          size += (value != null ? 1 : -1);
+          modCount++;
+        }
+        return old;
+      }
+
+      grow(key);
+    }
+    V old = (V)values[key];
+    values[key] = value;
+    if(old == null)
+    {
+      if(value != null)
+      {size++; modCount++;}
+    }
+    else if(value == null)
+    {size--; modCount++;}
+    return old;
+  }
+
+  @Override
+  public V put(
+    Integer key,
+    V value
+    )
+  {return put(key.intValue(), value);}
+
+  public V remove(
+    int key
+    )
+  {return key >= 0 ? put(key, null) : null;}
+
+  @Override
+  public V remove(
+    Object key
+    )
+  {return key instanceof Integer ? remove(((Integer)key).intValue()) : null;}
+
+  @Override
+  public int size(
+    )
+  {return size;}
+  // </public>
+
+  // <private>
+  /**
+    Grows the array to cover the specified key, moving the sparse entries it covers.
+  */
+  private void grow(
+    int key
+    )
+  {
+    values = Arrays.copyOf(
+      values,
+      (int)Math.min(Math.max(Math.max((long)values.length << 1, DefaultCapacity), key + 1L), Integer.MAX_VALUE)
+      );
+    if(!sparseValues.isEmpty())
+    {
+      SortedMap<Integer,V> coveredValues = sparseValues.headMap(values.length);
+      for(Map.Entry<Integer,V> entry : coveredValues.entrySet())
+      {values[entry.getKey()] = entry.getValue();}
+      coveredValues.clear();
+    }
+  }
+
+  /**
+    Gets the first key with a value, starting from the specified one.
+
+    @return Array length, if none.
+  */
+  private int seek(
+    int key
+    )
+  {
+    for(int length = values.length; key < length; key++)
+    {
+      if(values[key] != null)
+        break;
+    }
+    return key;
+  }
+  // </private>
+  // </interface>
+  // </dynamic>
+  // </class>
+}
@@ -0,0 +1,196 @@
+/*
+  Copyright 2015 Stefano Chizzolini. http://www.pdfclown.org
+
+  Contributors:
+    * Stefano Chizzolini (original code developer, http://www.stefanochizzolini.it)
+
+  This file should be part of the source code distribution of "PDF Clown library"
+  (the Program): see the accompanying README files for more info.
+
+  This Program is free software; you can redistribute it and/or modify it under the terms
+  of the GNU Lesser General Public License as published by the Free Software Foundation;
+  either version 3 of the License, or (at your option) any later version.
+
+  This Program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY,
+  either expressed or implied; without even the implied warranty of MERCHANTABILITY or
+  FITNESS FOR A PARTICULAR PURPOSE. See the License for more details.
+
+  You should have received a copy of the GNU Lesser General Public License along with this
+  Program (see README files); if not, go to the GNU website (http://www.gnu.org/licenses/).
+
+  Redistribution and use, with or without modification, are permitted provided that such
+  redistributions retain the above copyright notice, license and disclaimer, along with
+  this list of conditions.
+*/
+
+package org.pdfclown.util;
+
+import java.util.Arrays;
+
+/**
+  Open-addressing hash map whose keys are integers.
+  <p>Differently from {@link IntArrayMap}, it suits sparse keys (such as hash codes): keys are
+  stored unboxed and probed linearly.</p>
+
+  @author Stefano Chizzolini (http://www.stefanochizzolini.it)
+  @since 0.2.0
+  @version 0.2.0, 06/15/15
+*/
+public final class IntHashMap<V>
+{
+  // <class>
+  // <static>
+  // <fields>
+  private static final int DefaultCapacity = 16;
+  // </fields>
+
+  // <interface>
+  // <private>
+  private static int hash(
+    int key
+    )
+  {
+    int hash = key * 0x9E3779B9; // Fibonacci hashing (spreads sequential keys).
+    return hash ^ (hash >>> 16);
+  }
+  // </private>
+  // </interface>
+  // </static>
+
+  // <dynamic>
+  // <fields>
+  private int[] keys;
+  private int size;
+  private Object[] values;
+  // </fields>
+
+  // <constructors>
+  public IntHashMap(
+    )
+  {this(DefaultCapacity);}
+
+  /**
+    @param capacity Expected number of entries.
+  */
+  public IntHashMap(
+    int capacity
+    )
+  {
+    int tableLength = DefaultCapacity;
+    while(tableLength < capacity << 1)
+    {tableLength <<= 1;}
+    keys = new int[tableLength];
+    values = new Object[tableLength];
+  }
+  // </constructors>
+
+  // <interface>
+  // <public>
+  public void clear(
+    )
+  {
+    Arrays.fill(values, null);
+    size = 0;
+  }
+
+  public boolean containsKey(
+    int key
+    )
+  {return get(key) != null;}
+
+  @SuppressWarnings("unchecked")
+  public V get(
+    int key
+    )
+  {
+    int mask = keys.length - 1;
+    for(int index = hash(key) & mask; values[index] != null; index = (index + 1) & mask)
+    {
+      if(keys[index] == key)
+        return (V)values[index];
+    }
+    return null;
+  }
+
+  /**
+    Gets the keys (in no particular order).
+  */
+  public int[] getKeys(
+    )
+  {
+    int[] keys = new int[size];
+    for(int index = 0, keyIndex = 0, length = values.length; index < length; index++)
+    {
+      if(values[index] != null)
+      {keys[keyIndex++] = this.keys[index];}
+    }
+    return keys;
+  }
+
+  public boolean isEmpty(
+    )
+  {return size == 0;}
+
+  /**
+    @param value Value to associate to the key (MUST NOT be <code>null</code>).
+    @return Previous value associated to the key.
+  */
+  @SuppressWarnings("unchecked")
+  public V put(
+    int key,
+    V value
+    )
+  {
+    if(value == null)
+      throw new NullPointerException("value MUST NOT be null.");
+
+    int mask = keys.length - 1;
+    int index = hash(key) & mask;
+    for(; values[index] != null; index = (index + 1) & mask)
+    {
+      if(keys[index] == key)
+      {
+        V old = (V)values[index];
+        values[index] = value;
+        return old;
+      }
+    }
+    keys[index] = key;
+    values[index] = value;
+    if(++size << 1 > keys.length) // Load factor exceeded.
+    {rehash(keys.length << 1);}
+    return null;
+  }
+
+  public int size(
+    )
+  {return size;}
+  // </public>
+
+  // <private>
+  private void rehash(
+    int tableLength
+    )
+  {
+    int[] oldKeys = keys;
+    Object[] oldValues = values;
+    keys = new int[tableLength];
+    values = new Object[tableLength];
+    int mask = tableLength - 1;
+    for(int oldIndex = 0, oldLength = oldKeys.length; oldIndex < oldLength; oldIndex++)
+    {
+      if(oldValues[oldIndex] == null)
+        continue;
+
+      int index = hash(oldKeys[oldIndex]) & mask;
+      while(values[index] != null)
+      {index = (index + 1) & mask;}
+      keys[index] = oldKeys[oldIndex];
+      values[index] = oldValues[oldIndex];
+    }
+  }
+  // </private>
+  // </interface>
+  // </dynamic>
+  // </class>
+}
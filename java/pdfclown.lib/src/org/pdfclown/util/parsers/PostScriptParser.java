@@ -28,9 +28,11 @@ package org.pdfclown.util.parsers;
 import java.io.Closeable;
 import java.io.EOFException;
 import java.io.IOException;
+import java.util.Arrays;
 
 import org.pdfclown.bytes.Buffer;
 import org.pdfclown.bytes.IInputStream;
+import org.pdfclown.tokens.Encoding;
 import org.pdfclown.tokens.Keyword;
 import org.pdfclown.tokens.Symbol;
 
@@ -50,6 +52,11 @@ public class PostScriptParser
   {
     Keyword,
     Boolean,
+    /**
+      Integer number.
+      <p>Its token is an {@link java.lang.Integer}, unless its value exceeds the 32-bit range (for
+      example, byte offsets within files larger than 2 GB): in such case it is a {@link Long}.</p>
+    */
     Integer,
     Real,
     Literal,
@@ -62,9 +69,83 @@ public class PostScriptParser
     DictionaryEnd,
     Null
   }
+
+  /**
+    Snapshot of a parsed token.
+    <p>It allows a token to be restored without scanning its bytes again.</p>
+
+    @see PostScriptParser#saveToken(TokenState)
+    @see PostScriptParser#restoreToken(TokenState)
+  */
+  public static final class TokenState
+  {
+    private long integerValue;
+    private long position;
+    private double realValue;
+    private Object token;
+    private byte[] tokenBuffer = new byte[TokenBufferInitialCapacity];
+    private int tokenLength;
+    private boolean tokenResolved;
+    private TokenTypeEnum tokenType;
+
+    /**
+      Gets the value of the integer token.
+
+      @see PostScriptParser#getIntegerValue()
+    */
+    public long getIntegerValue(
+      )
+    {return tokenResolved && token instanceof Number ? ((Number)token).longValue() : integerValue;}
+
+    /**
+      Gets the stream position just after the token.
+    */
+    public long getPosition(
+      )
+    {return position;}
+
+    /**
+      Gets the token type.
+    */
+    public TokenTypeEnum getTokenType(
+      )
+    {return tokenType;}
+
+    /**
+      Gets whether the raw bytes of the token match the specified value.
+
+      @see PostScriptParser#tokenEquals(String)
+    */
+    public boolean tokenEquals(
+      String value
+      )
+    {return PostScriptParser.tokenEquals(tokenBuffer, tokenLength, value);}
+  }
   // </classes>
 
   // <static>
+  // <fields>
+  /**
+    Maximum number of significant digits whose decimal value is exactly representable as a double.
+  */
+  private static final int MaxExactRealDigitCount = 15;
+  /**
+    Maximum number of digits whose decimal value is representable as a long.
+  */
+  private static final int MaxExactIntegerDigitCount = 18;
+  private static final double[] Pow10 = new double[MaxExactRealDigitCount + 1];
+  private static final int TokenBufferInitialCapacity = 64;
+  // </fields>
+
+  // <constructors>
+  static
+  {
+    Pow10[0] = 1;
+    for(int index = 1; index < Pow10.length; index++)
+    {Pow10[index] = Pow10[index - 1] * 10;}
+  }
+  // </constructors>
+
   // <interface>
   // <protected>
   protected static int getHex(
@@ -114,6 +195,25 @@ public class PostScriptParser
     )
   {return c == 32 || isEOL(c) || c == 0 || c == 9 || c == 12;}
   // </protected>
+
+  // <private>
+  private static boolean tokenEquals(
+    byte[] tokenBuffer,
+    int tokenLength,
+    String value
+    )
+  {
+    if(tokenLength != value.length())
+      return false;
+
+    for(int index = 0; index < tokenLength; index++)
+    {
+      if((tokenBuffer[index] & 0xff) != value.charAt(index))
+        return false;
+    }
+    return true;
+  }
+  // </private>
   // </interface>
   // </static>
 
@@ -121,8 +221,27 @@ public class PostScriptParser
   // <fields>
   private IInputStream stream;
 
+  /**
+    Current token object (valid only if {@link #tokenResolved}).
+  */
   private Object token;
+  /**
+    Raw bytes of the current token.
+  */
+  private byte[] tokenBuffer = new byte[TokenBufferInitialCapacity];
+  private int tokenLength;
+  /**
+    Whether {@link #token} represents the current token (otherwise, it has to be materialized from
+    {@link #tokenBuffer}).
+  */
+  private boolean tokenResolved = true;
   private TokenTypeEnum tokenType;
+
+  /**
+    Current number token value.
+  */
+  private long integerValue;
+  private double realValue;
   // </fields>
 
   // <constructors>
@@ -151,12 +270,55 @@ public class PostScriptParser
     )
   {return stream;}
 
+  /**
+    Gets the value of the currently-parsed integer token.
+    <p>Differently from {@link #getToken()}, no object is materialized.</p>
+  */
+  public long getIntegerValue(
+    )
+  {return tokenResolved && token instanceof Number ? ((Number)token).longValue() : integerValue;}
+
+  /**
+    Gets the value of the currently-parsed number (either integer or real) token.
+    <p>Differently from {@link #getToken()}, no object is materialized.</p>
+  */
+  public double getRealValue(
+    )
+  {
+    if(tokenResolved && token instanceof Number)
+      return ((Number)token).doubleValue();
+    else
+      return tokenType == TokenTypeEnum.Integer ? integerValue : realValue;
+  }
+
   /**
     Gets the currently-parsed token.
+    <p>The token object is materialized from the {@link #getTokenBuffer() token bytes} on first
+    request.</p>
   */
   public Object getToken(
     )
-  {return token;}
+  {
+    if(!tokenResolved)
+    {
+      switch(tokenType)
+      {
+        case Integer:
+          token = (integerValue >= java.lang.Integer.MIN_VALUE && integerValue <= java.lang.Integer.MAX_VALUE
+            ? (Object)java.lang.Integer.valueOf((int)integerValue)
+            : (Object)Long.valueOf(integerValue));
+          break;
+        case Real:
+          token = realValue;
+          break;
+        default:
+          token = Encoding.Pdf.decode(tokenBuffer, 0, tokenLength);
+          break;
+      }
+      tokenResolved = true;
+    }
+    return token;
+  }
 
   /**
     Gets a token after moving to the given offset.
@@ -169,6 +331,36 @@ public class PostScriptParser
     )
   {moveNext(offset); return getToken();}
 
+  /**
+    Gets the buffer containing the raw bytes of the currently-parsed token.
+    <p>The token bytes start at the beginning of the buffer and span {@link #getTokenLength() its
+    length}; the buffer is reused by the next tokens, so its contents are valid only until the next
+    move.</p>
+    <p>Literal strings are unescaped, hexadecimal strings are stripped of whitespace, while delimiters
+    (such as the slash of names and the brackets of strings) are excluded.</p>
+  */
+  public byte[] getTokenBuffer(
+    )
+  {return tokenBuffer;}
+
+  /**
+    Gets a copy of the raw bytes of the currently-parsed token.
+
+    @see #getTokenBuffer()
+  */
+  public byte[] getTokenBytes(
+    )
+  {return Arrays.copyOf(tokenBuffer, tokenLength);}
+
+  /**
+    Gets the number of raw bytes of the currently-parsed token.
+
+    @see #getTokenBuffer()
+  */
+  public int getTokenLength(
+    )
+  {return tokenLength;}
+
   /**
     Gets the currently-parsed token type.
   */
@@ -181,6 +373,34 @@ public class PostScriptParser
     )
   {return stream.hashCode();}
 
+  /**
+    Gets whether the raw bytes of the currently-parsed token match the specified value.
+    <p>Differently from comparing {@link #getToken()}, no object is materialized.</p>
+  */
+  public boolean tokenEquals(
+    String value
+    )
+  {return tokenEquals(tokenBuffer, tokenLength, value);}
+
+  /**
+    Gets whether the raw bytes of the currently-parsed token begin with the specified value.
+  */
+  public boolean tokenStartsWith(
+    String value
+    )
+  {
+    int length = value.length();
+    if(tokenLength < length)
+      return false;
+
+    for(int index = 0; index < length; index++)
+    {
+      if((tokenBuffer[index] & 0xff) != value.charAt(index))
+        return false;
+    }
+    return true;
+  }
+
   /**
     Moves the pointer to the token at the given offset.
 
@@ -208,14 +428,17 @@ public class PostScriptParser
     <p>To properly parse the current token, the pointer MUST be just before its starting
     (leading whitespaces are ignored). When this method terminates, the pointer IS
     at the last byte of the current token.</p>
+    <p>The token is scanned into a reusable {@link #getTokenBuffer() buffer}: its object
+    representation is materialized only on {@link #getToken() request}.</p>
 
     @return Whether a new token was found.
   */
   public boolean moveNext(
     )
   {
-    StringBuilder buffer = null;
+    tokenLength = 0;
     token = null;
+    tokenResolved = true;
     int c = 0;
 
     // Skip leading white-space characters.
@@ -223,7 +446,7 @@ public class PostScriptParser
     {
       do
       {c = stream.readUnsignedByte();}
-      while(isWhitespace(c)); // Keep goin' till there's a white-space character...
+      while(isWhitespace(c)); // Keep goin' till there's a white-space character.
     }
     catch(EOFException e)
     {return false;}
@@ -240,7 +463,6 @@ public class PostScriptParser
           the bytes making up the name are never treated as text, so here they are just
           passed through without unescaping.
         */
-        buffer = new StringBuilder();
         try
         {
           while(true)
@@ -249,7 +471,7 @@ public class PostScriptParser
             if(isDelimiter(c) || isWhitespace(c))
               break;
 
-            buffer.append((char)c);
+            appendToken(c);
           }
           stream.skip(-1); // Restores the first byte after the current token.
         }
@@ -276,12 +498,11 @@ public class PostScriptParser
         {tokenType = TokenTypeEnum.Integer;} // By default (it may be real).
 
         // Building the number...
-        buffer = new StringBuilder();
         try
         {
           while(true)
           {
-            buffer.append((char)c);
+            appendToken(c);
             c = stream.readUnsignedByte();
             if(c == '.')
             {tokenType = TokenTypeEnum.Real;}
@@ -292,6 +513,7 @@ public class PostScriptParser
         }
         catch(EOFException e)
         {/* NOOP */}
+        parseNumber();
       } break;
       case Symbol.OpenSquareBracket: // Array (begin).
         tokenType = TokenTypeEnum.ArrayBegin;
@@ -315,13 +537,12 @@ public class PostScriptParser
         // Hexadecimal string (single angle bracket).
         tokenType = TokenTypeEnum.Hex;
 
-        buffer = new StringBuilder();
         try
         {
           while(c != Symbol.CloseAngleBracket) // NOT string end.
           {
             if(!isWhitespace(c))
-            {buffer.append((char)c);}
+            {appendToken(c);}
 
             c = stream.readUnsignedByte();
           }
@@ -344,7 +565,6 @@ public class PostScriptParser
       {
         tokenType = TokenTypeEnum.Literal;
 
-        buffer = new StringBuilder();
         int level = 0;
         try
         {
@@ -423,7 +643,7 @@ public class PostScriptParser
             if(level == -1)
               break;
 
-            buffer.append((char)c);
+            appendToken(c);
           }
         }
         catch(EOFException e)
@@ -433,7 +653,6 @@ public class PostScriptParser
       {
         tokenType = TokenTypeEnum.Comment;
 
-        buffer = new StringBuilder();
         try
         {
           while(true)
@@ -442,7 +661,7 @@ public class PostScriptParser
             if(isEOL(c))
               break;
 
-            buffer.append((char)c);
+            appendToken(c);
           }
         }
         catch(EOFException e)
@@ -452,56 +671,43 @@ public class PostScriptParser
       {
         tokenType = TokenTypeEnum.Keyword;
 
-        buffer = new StringBuilder();
         try
         {
           do
           {
-            buffer.append((char)c);
+            appendToken(c);
             c = stream.readUnsignedByte();
           } while(!isDelimiter(c) && !isWhitespace(c));
           stream.skip(-1); // Restores the first byte after the current token.
         }
         catch(EOFException e)
         {/* NOOP */}
+
+        if(tokenEquals(Keyword.False)
+          || tokenEquals(Keyword.True)) // Boolean.
+        {
+          token = Boolean.valueOf(tokenLength == Keyword.True.length());
+          tokenType = TokenTypeEnum.Boolean;
+        }
+        else if(tokenEquals(Keyword.Null)) // Null.
+        {tokenType = TokenTypeEnum.Null;}
       } break;
     }
 
-    if(buffer != null)
+    switch(tokenType)
     {
-      switch(tokenType)
+      case Name:
+      case Literal:
+      case Hex:
+      case Comment:
+      case Keyword:
+      case Integer:
+      case Real:
+        tokenResolved = false; // Token object to materialize on request.
+        break;
+      default:
       {
-        case Keyword:
-        {
-          token = buffer.toString();
-          if(token.equals(Keyword.False)
-            || token.equals(Keyword.True)) // Boolean.
-          {
-            token = Boolean.parseBoolean((String)token);
-            tokenType = TokenTypeEnum.Boolean;
-          }
-          else if(token.equals(Keyword.Null)) // Null.
-          {
-            token = null;
-            tokenType = TokenTypeEnum.Null;
-          }
-        } break;
-        case Name:
-        case Literal:
-        case Hex:
-        case Comment:
-          token = buffer.toString();
-          break;
-        case Integer:
-          token = Integer.parseInt(buffer.toString());
-          break;
-        case Real:
-          token = Double.parseDouble(buffer.toString());
-          break;
-        default:
-        {
-          /* NOOP */
-        }
+        /* NOOP */
       }
     }
     return true;
@@ -609,16 +815,136 @@ public class PostScriptParser
     {super.finalize();}
   }
 
+  /**
+    Restores the token saved into the specified state, moving the pointer just after it.
+
+    @see #saveToken(TokenState)
+  */
+  protected void restoreToken(
+    TokenState state
+    )
+  {
+    seek(state.position);
+
+    if(tokenBuffer.length < state.tokenLength)
+    {tokenBuffer = new byte[state.tokenBuffer.length];}
+    System.arraycopy(state.tokenBuffer, 0, tokenBuffer, 0, state.tokenLength);
+    tokenLength = state.tokenLength;
+    token = state.token;
+    tokenResolved = state.tokenResolved;
+    tokenType = state.tokenType;
+    integerValue = state.integerValue;
+    realValue = state.realValue;
+  }
+
+  /**
+    Saves the currently-parsed token into the specified state.
+
+    @see #restoreToken(TokenState)
+  */
+  protected void saveToken(
+    TokenState state
+    )
+  {
+    if(state.tokenBuffer.length < tokenLength)
+    {state.tokenBuffer = new byte[tokenBuffer.length];}
+    System.arraycopy(tokenBuffer, 0, state.tokenBuffer, 0, tokenLength);
+    state.tokenLength = tokenLength;
+    state.token = token;
+    state.tokenResolved = tokenResolved;
+    state.tokenType = tokenType;
+    state.integerValue = integerValue;
+    state.realValue = realValue;
+    state.position = stream.getPosition();
+  }
+
   protected void setToken(
     Object value
     )
-  {token = value;}
+  {
+    token = value;
+    tokenResolved = true;
+  }
 
   protected void setTokenType(
     TokenTypeEnum value
     )
   {tokenType = value;}
   // </protected>
+
+  // <private>
+  private void appendToken(
+    int c
+    )
+  {
+    if(tokenLength == tokenBuffer.length)
+    {tokenBuffer = Arrays.copyOf(tokenBuffer, tokenLength << 1);}
+
+    tokenBuffer[tokenLength++] = (byte)c;
+  }
+
+  /**
+    Evaluates the number token.
+  */
+  private void parseNumber(
+    )
+  {
+    int index = 0;
+    boolean negative = false;
+    {
+      int c = tokenBuffer[0];
+      if(c == '-' || c == '+')
+      {
+        negative = (c == '-');
+        index++;
+      }
+    }
+    long mantissa = 0;
+    int digitCount = 0;
+    int fractionDigitCount = -1; // No decimal point.
+    for(; index < tokenLength; index++)
+    {
+      int c = tokenBuffer[index];
+      if(c == '.')
+      {
+        if(fractionDigitCount >= 0) // Malformed (multiple decimal points).
+        {digitCount = -1; break;}
+
+        fractionDigitCount = 0;
+      }
+      else
+      {
+        mantissa = mantissa * 10 + (c - '0');
+        digitCount++;
+        if(fractionDigitCount >= 0)
+        {fractionDigitCount++;}
+      }
+    }
+
+    /*
+      NOTE: Values are evaluated straight from their digits as long as they are exactly representable
+      (their division by an exact power of 10 is correctly rounded); otherwise (including malformed
+      values), the standard parsers apply.
+    */
+    if(tokenType == TokenTypeEnum.Integer)
+    {
+      if(digitCount > 0 && digitCount <= MaxExactIntegerDigitCount)
+      {integerValue = negative ? -mantissa : mantissa;}
+      else
+      {integerValue = Long.parseLong(Encoding.Pdf.decode(tokenBuffer, 0, tokenLength));}
+    }
+    else
+    {
+      if(digitCount > 0 && digitCount <= MaxExactRealDigitCount)
+      {
+        double value = mantissa / Pow10[fractionDigitCount];
+        realValue = negative ? -value : value;
+      }
+      else
+      {realValue = Double.parseDouble(Encoding.Pdf.decode(tokenBuffer, 0, tokenLength));}
+    }
+  }
+  // </private>
   // </dynamic>
   // </class>
 }
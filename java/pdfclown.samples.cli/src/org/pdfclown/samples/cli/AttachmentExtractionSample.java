@@ -1,8 +1,8 @@
 package org.pdfclown.samples.cli;
 
+import java.io.InputStream;
 import java.util.Map;
 
-import org.pdfclown.bytes.IBuffer;
 import org.pdfclown.documents.Document;
 import org.pdfclown.documents.Page;
 import org.pdfclown.documents.files.EmbeddedFile;
@@ -70,12 +70,12 @@ public class AttachmentExtractionSample
     {
       EmbeddedFile embeddedFile = ((FullFileSpecification)dataFile).getEmbeddedFile();
       if(embeddedFile != null)
-      {exportAttachment(embeddedFile.getData(), dataFile.getPath());}
+      {exportAttachment(embeddedFile.getDataStream(), dataFile.getPath());}
     }
   }
 
   private void exportAttachment(
-    IBuffer data,
+    InputStream data,
     String filename
     )
   {
@@ -93,11 +93,15 @@ public class AttachmentExtractionSample
 
     try
     {
-      outputStream.write(data.toByteArray());
+      byte[] chunk = new byte[8192]; int chunkLength;
+      while((chunkLength = data.read(chunk, 0, chunk.length)) != -1)
+      {outputStream.write(chunk, 0, chunkLength);}
       outputStream.close();
     }
     catch(Exception e)
     {throw new RuntimeException(outputFile.getPath() + " file writing has failed.",e);}
+    finally
+    {IOUtils.closeQuietly(data);}
 
     System.out.println("Output: " + outputFile.getPath());
   }
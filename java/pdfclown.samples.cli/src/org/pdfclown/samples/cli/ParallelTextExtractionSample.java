@@ -0,0 +1,118 @@
+package org.pdfclown.samples.cli;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.pdfclown.documents.Page;
+import org.pdfclown.documents.Pages;
+import org.pdfclown.documents.contents.ContentScanner;
+import org.pdfclown.documents.contents.fonts.Font;
+import org.pdfclown.documents.contents.objects.ContainerObject;
+import org.pdfclown.documents.contents.objects.ContentObject;
+import org.pdfclown.documents.contents.objects.ShowText;
+import org.pdfclown.documents.contents.objects.Text;
+import org.pdfclown.files.File;
+import org.pdfclown.files.FileConfiguration;
+import org.pdfclown.util.io.IOUtils;
+
+/**
+  This sample demonstrates how to <b>extract text from multiple pages at once</b>, sharing the same
+  PDF file across threads.
+  <h3>Remarks</h3>
+  <p>The file is opened with concurrent reading enabled, so that the pages can be processed through
+  {@link Pages#process(java.util.concurrent.Executor, int, Pages.IPageProcessor)}; the extracted
+  text is then printed in page order.</p>
+
+  @author Stefano Chizzolini (http://www.stefanochizzolini.it)
+  @since 0.2.0
+  @version 0.2.0, 06/15/15
+*/
+public class ParallelTextExtractionSample
+  extends Sample
+{
+  @Override
+  public void run(
+    )
+  {
+    File file = null;
+    ExecutorService executor = null;
+    try
+    {
+      // 1. Opening the PDF file...
+      {
+        String filePath = promptFileChoice("Please select a PDF file");
+        try
+        {file = new File(filePath, new FileConfiguration().withConcurrentReadEnabled(true));}
+        catch(Exception e)
+        {throw new RuntimeException(filePath + " file access error.",e);}
+      }
+      Pages pages = file.getDocument().getPages();
+
+      // 2. Text extraction from the document pages.
+      final String[] pageTexts = new String[pages.size()];
+      int threadCount = Runtime.getRuntime().availableProcessors();
+      executor = Executors.newFixedThreadPool(threadCount);
+      pages.process(
+        executor,
+        threadCount,
+        new Pages.IPageProcessor()
+        {
+          @Override
+          public void process(
+            int index,
+            Page page,
+            ContentScanner scanner
+            )
+          {
+            StringBuilder textBuilder = new StringBuilder();
+            extract(scanner, textBuilder);
+            pageTexts[index] = textBuilder.toString();
+          }
+        }
+        );
+
+      // 3. Showing the extracted text...
+      for(int index = 0; index < pageTexts.length; index++)
+      {
+        System.out.println("\nPage " + (index + 1) + ":");
+        System.out.print(pageTexts[index]);
+      }
+    }
+    finally
+    {
+      // 4. Closing the PDF file...
+      if(executor != null)
+      {executor.shutdown();}
+      IOUtils.closeQuietly(file);
+    }
+  }
+
+  /**
+    Scans a content level looking for text.
+  */
+  private void extract(
+    ContentScanner level,
+    StringBuilder textBuilder
+    )
+  {
+    if(level == null)
+      return;
+
+    while(level.moveNext())
+    {
+      ContentObject content = level.getCurrent();
+      if(content instanceof ShowText)
+      {
+        Font font = level.getState().getFont();
+        // Extract the current text chunk, decoding it!
+        textBuilder.append(font.decode(((ShowText)content).getText())).append('\n');
+      }
+      else if(content instanceof Text
+        || content instanceof ContainerObject)
+      {
+        // Scan the inner level!
+        extract(level.getChildLevel(), textBuilder);
+      }
+    }
+  }
+}
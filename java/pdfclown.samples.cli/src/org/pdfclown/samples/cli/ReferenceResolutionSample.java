@@ -0,0 +1,93 @@
+package org.pdfclown.samples.cli;
+
+import org.pdfclown.files.File;
+import org.pdfclown.files.IndirectObjects;
+import org.pdfclown.objects.PdfIndirectObject;
+import org.pdfclown.util.io.IOUtils;
+
+/**
+  This sample is a <b>micro-benchmark of indirect reference resolution</b> throughput.
+  <h3>Remarks</h3>
+  <p>First, each object is resolved once (its data object is parsed from the file); then, the
+  already-resolved objects are looked up repeatedly, as it happens while navigating a document.</p>
+
+  @author Stefano Chizzolini (http://www.stefanochizzolini.it)
+  @since 0.2.0
+  @version 0.2.0, 06/15/15
+*/
+public class ReferenceResolutionSample
+  extends Sample
+{
+  private static final int LookupRoundCount = 20;
+
+  @Override
+  public void run(
+    )
+  {
+    File file = null;
+    try
+    {
+      // 1. Opening the PDF file...
+      {
+        String filePath = promptFileChoice("Please select a PDF file");
+        try
+        {file = new File(filePath);}
+        catch(Exception e)
+        {throw new RuntimeException(filePath + " file access error.",e);}
+      }
+      IndirectObjects indirectObjects = file.getIndirectObjects();
+      int objectCount = indirectObjects.size();
+
+      // 2. First resolution (parsing).
+      {
+        long startTime = System.nanoTime();
+        for(int index = 0; index < objectCount; index++)
+        {
+          PdfIndirectObject object = indirectObjects.get(index);
+          if(object.isInUse())
+          {object.getDataObject();}
+        }
+        printThroughput("First resolution", objectCount, System.nanoTime() - startTime);
+      }
+
+      // 3. Repeated resolution (lookup).
+      {
+        int hitCount = 0;
+        long startTime = System.nanoTime();
+        for(int round = 0; round < LookupRoundCount; round++)
+        {
+          for(int index = 0; index < objectCount; index++)
+          {
+            if(indirectObjects.get(index).getDataObject() != null)
+            {hitCount++;}
+          }
+        }
+        printThroughput("Repeated resolution", LookupRoundCount * objectCount, System.nanoTime() - startTime);
+        System.out.println("(" + hitCount + " non-null objects)");
+      }
+    }
+    finally
+    {
+      // 4. Closing the PDF file...
+      IOUtils.closeQuietly(file);
+    }
+  }
+
+  private void printThroughput(
+    String label,
+    long count,
+    long elapsedTime
+    )
+  {
+    double seconds = elapsedTime / 1e9;
+    System.out.println(
+      String.format(
+        "%s: %d references in %.3f s (%.0f references/s)",
+        label,
+        count,
+        seconds,
+        count / seconds
+        )
+      );
+  }
+}
@@ -0,0 +1,583 @@
+package org.pdfclown.samples.cli;
+
+import java.io.EOFException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.pdfclown.bytes.Buffer;
+import org.pdfclown.bytes.IInputStream;
+import org.pdfclown.documents.Page;
+import org.pdfclown.files.File;
+import org.pdfclown.objects.PdfArray;
+import org.pdfclown.objects.PdfDataObject;
+import org.pdfclown.objects.PdfDirectObject;
+import org.pdfclown.objects.PdfName;
+import org.pdfclown.objects.PdfObject;
+import org.pdfclown.objects.PdfStream;
+import org.pdfclown.tokens.Keyword;
+import org.pdfclown.tokens.Symbol;
+import org.pdfclown.util.io.IOUtils;
+import org.pdfclown.util.parsers.PostScriptParseException;
+import org.pdfclown.util.parsers.PostScriptParser;
+import org.pdfclown.util.parsers.PostScriptParser.TokenTypeEnum;
+
+/**
+  This sample is a <b>micro-benchmark of PostScript tokenization</b> throughput, comparing the
+  current tokenizer to the previous one.
+  <h3>Remarks</h3>
+  <p>The decoded content streams of the pages are joined (and repeated) into a single large content
+  stream, which is then tokenized repeatedly by:</p>
+  <ol>
+    <li>the previous tokenizer (a copy of which is kept here as {@link BaselineTokenizer}), which
+    builds a string for each token and parses number tokens from it;</li>
+    <li>the current tokenizer, materializing each token object ({@link PostScriptParser#getToken()});</li>
+    <li>the current tokenizer, reading number values through their primitive accessors (as the
+    library parsers do).</li>
+  </ol>
+
+  @author Stefano Chizzolini (http://www.stefanochizzolini.it)
+  @since 0.2.0
+  @version 0.2.0, 06/15/15
+*/
+public class TokenizationSample
+  extends Sample
+{
+  /**
+    Tokenizer as it was before scanning into a reusable buffer (kept for comparison).
+  */
+  private static final class BaselineTokenizer
+  {
+    private static boolean isDelimiter(
+      int c
+      )
+    {
+      return c == Symbol.OpenRoundBracket
+        || c == Symbol.CloseRoundBracket
+        || c == Symbol.OpenAngleBracket
+        || c == Symbol.CloseAngleBracket
+        || c == Symbol.OpenSquareBracket
+        || c == Symbol.CloseSquareBracket
+        || c == Symbol.Slash
+        || c == Symbol.Percent;
+    }
+
+    private static boolean isEOL(
+      int c
+      )
+    {return c == 10 || c == 13;}
+
+    private static boolean isWhitespace(
+      int c
+      )
+    {return c == 32 || isEOL(c) || c == 0 || c == 9 || c == 12;}
+
+    private final IInputStream stream;
+
+    private Object token;
+    private TokenTypeEnum tokenType;
+
+    BaselineTokenizer(
+      byte[] data
+      )
+    {stream = new Buffer(data);}
+
+    public Object getToken(
+      )
+    {return token;}
+
+    public boolean moveNext(
+      )
+    {
+      StringBuilder buffer = null;
+      token = null;
+      int c = 0;
+
+      // Skip leading white-space characters.
+      try
+      {
+        do
+        {c = stream.readUnsignedByte();}
+        while(isWhitespace(c)); // Keep goin' till there's a white-space character...
+      }
+      catch(EOFException e)
+      {return false;}
+
+      // Which character is it?
+      switch(c)
+      {
+        case Symbol.Slash: // Name.
+        {
+          tokenType = TokenTypeEnum.Name;
+
+          buffer = new StringBuilder();
+          try
+          {
+            while(true)
+            {
+              c = stream.readUnsignedByte();
+              if(isDelimiter(c) || isWhitespace(c))
+                break;
+
+              buffer.append((char)c);
+            }
+            stream.skip(-1); // Restores the first byte after the current token.
+          }
+          catch(EOFException e)
+          {/* NOOP */}
+        } break;
+        case '0':
+        case '1':
+        case '2':
+        case '3':
+        case '4':
+        case '5':
+        case '6':
+        case '7':
+        case '8':
+        case '9':
+        case '.':
+        case '-':
+        case '+': // Number.
+        {
+          if(c == '.')
+          {tokenType = TokenTypeEnum.Real;}
+          else // Digit or signum.
+          {tokenType = TokenTypeEnum.Integer;} // By default (it may be real).
+
+          // Building the number...
+          buffer = new StringBuilder();
+          try
+          {
+            while(true)
+            {
+              buffer.append((char)c);
+              c = stream.readUnsignedByte();
+              if(c == '.')
+              {tokenType = TokenTypeEnum.Real;}
+              else if(c < '0' || c > '9')
+                break;
+            }
+            stream.skip(-1); // Restores the first byte after the current token.
+          }
+          catch(EOFException e)
+          {/* NOOP */}
+        } break;
+        case Symbol.OpenSquareBracket: // Array (begin).
+          tokenType = TokenTypeEnum.ArrayBegin;
+          break;
+        case Symbol.CloseSquareBracket: // Array (end).
+          tokenType = TokenTypeEnum.ArrayEnd;
+          break;
+        case Symbol.OpenAngleBracket: // Dictionary (begin) | Hexadecimal string.
+        {
+          try
+          {c = stream.readUnsignedByte();}
+          catch(EOFException e)
+          {throw new PostScriptParseException("Isolated opening angle-bracket character.", e);}
+          // Is it a dictionary (2nd angle bracket)?
+          if(c == Symbol.OpenAngleBracket)
+          {
+            tokenType = TokenTypeEnum.DictionaryBegin;
+            break;
+          }
+
+          // Hexadecimal string (single angle bracket).
+          tokenType = TokenTypeEnum.Hex;
+
+          buffer = new StringBuilder();
+          try
+          {
+            while(c != Symbol.CloseAngleBracket) // NOT string end.
+            {
+              if(!isWhitespace(c))
+              {buffer.append((char)c);}
+
+              c = stream.readUnsignedByte();
+            }
+          }
+          catch(EOFException e)
+          {throw new PostScriptParseException("Malformed hex string.", e);}
+        } break;
+        case Symbol.CloseAngleBracket: // Dictionary (end).
+        {
+          try
+          {c = stream.readUnsignedByte();}
+          catch(EOFException e)
+          {throw new PostScriptParseException("Malformed dictionary.", e);}
+          if(c != Symbol.CloseAngleBracket)
+            throw new PostScriptParseException("Malformed dictionary.");
+
+          tokenType = TokenTypeEnum.DictionaryEnd;
+        } break;
+        case Symbol.OpenRoundBracket: // Literal string.
+        {
+          tokenType = TokenTypeEnum.Literal;
+
+          buffer = new StringBuilder();
+          int level = 0;
+          try
+          {
+            while(true)
+            {
+              c = stream.readUnsignedByte();
+              if(c == Symbol.OpenRoundBracket)
+                level++;
+              else if(c == Symbol.CloseRoundBracket)
+                level--;
+              else if(c == '\\')
+              {
+                boolean lineBreak = false;
+                c = stream.readUnsignedByte();
+                switch(c)
+                {
+                  case 'n':
+                    c = Symbol.LineFeed;
+                    break;
+                  case 'r':
+                    c = Symbol.CarriageReturn;
+                    break;
+                  case 't':
+                    c = '\t';
+                    break;
+                  case 'b':
+                    c = '\b';
+                    break;
+                  case 'f':
+                    c = '\f';
+                    break;
+                  case Symbol.OpenRoundBracket:
+                  case Symbol.CloseRoundBracket:
+                  case '\\':
+                    break;
+                  case Symbol.CarriageReturn:
+                    lineBreak = true;
+                    c = stream.readUnsignedByte();
+                    if(c != Symbol.LineFeed)
+                      stream.skip(-1);
+                    break;
+                  case Symbol.LineFeed:
+                    lineBreak = true;
+                    break;
+                  default:
+                  {
+                    // Is it outside the octal encoding?
+                    if(c < '0' || c > '7')
+                      break;
+
+                    // Octal.
+                    int octal = c - '0';
+                    c = stream.readUnsignedByte();
+                    // Octal end?
+                    if(c < '0' || c > '7')
+                    {c = octal; stream.skip(-1); break;}
+                    octal = (octal << 3) + c - '0';
+                    c = stream.readUnsignedByte();
+                    // Octal end?
+                    if(c < '0' || c > '7')
+                    {c = octal; stream.skip(-1); break;}
+                    octal = (octal << 3) + c - '0';
+                    c = octal & 0xff;
+                    break;
+                  }
+                }
+                if(lineBreak)
+                  continue;
+              }
+              else if(c == Symbol.CarriageReturn)
+              {
+                c = stream.readUnsignedByte();
+                if(c != Symbol.LineFeed)
+                {c = Symbol.LineFeed; stream.skip(-1);}
+              }
+              if(level == -1)
+                break;
+
+              buffer.append((char)c);
+            }
+          }
+          catch(EOFException e)
+          {throw new PostScriptParseException("Malformed literal string.", e);}
+        } break;
+        case Symbol.Percent: // Comment.
+        {
+          tokenType = TokenTypeEnum.Comment;
+
+          buffer = new StringBuilder();
+          try
+          {
+            while(true)
+            {
+              c = stream.readUnsignedByte();
+              if(isEOL(c))
+                break;
+
+              buffer.append((char)c);
+            }
+          }
+          catch(EOFException e)
+          {/* NOOP */}
+        } break;
+        default: // Keyword.
+        {
+          tokenType = TokenTypeEnum.Keyword;
+
+          buffer = new StringBuilder();
+          try
+          {
+            do
+            {
+              buffer.append((char)c);
+              c = stream.readUnsignedByte();
+            } while(!isDelimiter(c) && !isWhitespace(c));
+            stream.skip(-1); // Restores the first byte after the current token.
+          }
+          catch(EOFException e)
+          {/* NOOP */}
+        } break;
+      }
+
+      if(buffer != null)
+      {
+        switch(tokenType)
+        {
+          case Keyword:
+          {
+            token = buffer.toString();
+            if(token.equals(Keyword.False)
+              || token.equals(Keyword.True)) // Boolean.
+            {
+              token = Boolean.parseBoolean((String)token);
+              tokenType = TokenTypeEnum.Boolean;
+            }
+            else if(token.equals(Keyword.Null)) // Null.
+            {
+              token = null;
+              tokenType = TokenTypeEnum.Null;
+            }
+          } break;
+          case Name:
+          case Literal:
+          case Hex:
+          case Comment:
+            token = buffer.toString();
+            break;
+          case Integer:
+            token = Integer.parseInt(buffer.toString());
+            break;
+          case Real:
+            token = Double.parseDouble(buffer.toString());
+            break;
+          default:
+          {
+            /* NOOP */
+          }
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+    Minimum length of the benchmarked content stream.
+  */
+  private static final int MinContentLength = 16 << 20;
+  private static final int RoundCount = 5;
+  private static final int WarmupRoundCount = 3;
+
+  @Override
+  public void run(
+    )
+  {
+    File file = null;
+    try
+    {
+      // 1. Opening the PDF file...
+      {
+        String filePath = promptFileChoice("Please select a PDF file");
+        try
+        {file = new File(filePath);}
+        catch(Exception e)
+        {throw new RuntimeException(filePath + " file access error.",e);}
+      }
+
+      // 2. Collecting the content streams...
+      List<byte[]> contents = new ArrayList<byte[]>();
+      for(Page page : file.getDocument().getPages())
+      {
+        PdfDataObject contentsObject = page.getBaseDataObject().resolve(PdfName.Contents);
+        if(contentsObject instanceof PdfStream)
+        {addContent(contents, (PdfStream)contentsObject);}
+        else if(contentsObject instanceof PdfArray)
+        {
+          for(PdfDirectObject item : (PdfArray)contentsObject)
+          {
+            PdfDataObject itemObject = PdfObject.resolve(item);
+            if(itemObject instanceof PdfStream)
+            {addContent(contents, (PdfStream)itemObject);}
+          }
+        }
+      }
+      if(contents.isEmpty())
+      {
+        System.out.println("No tokenizable content stream found.");
+        return;
+      }
+      byte[] content = joinContents(contents);
+      System.out.println(contents.size() + " content streams joined into " + content.length + " bytes");
+
+      // 3. Warming up...
+      long baselineTokenCount = 0, tokenCount = 0;
+      for(int round = 0; round < WarmupRoundCount; round++)
+      {
+        baselineTokenCount = tokenizeBaseline(content);
+        tokenCount = tokenize(content, true);
+        tokenize(content, false);
+      }
+      if(baselineTokenCount != tokenCount)
+        throw new RuntimeException("Token counts differ (baseline: " + baselineTokenCount + "; current: " + tokenCount + ").");
+
+      // 4. Measuring...
+      long baselineTime;
+      {
+        long startTime = System.nanoTime();
+        for(int round = 0; round < RoundCount; round++)
+        {tokenizeBaseline(content);}
+        baselineTime = System.nanoTime() - startTime;
+        printThroughput("Baseline (materializing)", RoundCount * tokenCount, RoundCount * (long)content.length, baselineTime, baselineTime);
+      }
+      {
+        long startTime = System.nanoTime();
+        for(int round = 0; round < RoundCount; round++)
+        {tokenize(content, true);}
+        printThroughput("Current (materializing)", RoundCount * tokenCount, RoundCount * (long)content.length, System.nanoTime() - startTime, baselineTime);
+      }
+      {
+        long startTime = System.nanoTime();
+        for(int round = 0; round < RoundCount; round++)
+        {tokenize(content, false);}
+        printThroughput("Current (scanning)", RoundCount * tokenCount, RoundCount * (long)content.length, System.nanoTime() - startTime, baselineTime);
+      }
+    }
+    finally
+    {
+      // 5. Closing the PDF file...
+      IOUtils.closeQuietly(file);
+    }
+  }
+
+  /**
+    Adds the decoded data of the specified content stream, provided that it can be tokenized.
+  */
+  private void addContent(
+    List<byte[]> contents,
+    PdfStream stream
+    )
+  {
+    byte[] content = stream.getBody().toByteArray();
+    try
+    {
+      tokenize(content, false);
+      tokenizeBaseline(content);
+    }
+    catch(PostScriptParseException e)
+    {return;} // NOTE: Malformed content (e.g. unusual inline image data) is excluded.
+
+    contents.add(content);
+  }
+
+  /**
+    Joins the specified content streams, repeating them up to the minimum benchmark length.
+  */
+  private byte[] joinContents(
+    List<byte[]> contents
+    )
+  {
+    Buffer buffer = new Buffer();
+    do
+    {
+      for(byte[] content : contents)
+      {
+        buffer.append(content);
+        buffer.append((byte)Symbol.LineFeed);
+      }
+    } while(buffer.getLength() < MinContentLength);
+    return buffer.toByteArray();
+  }
+
+  private void printThroughput(
+    String label,
+    long tokenCount,
+    long byteCount,
+    long elapsedTime,
+    long baselineTime
+    )
+  {
+    double seconds = elapsedTime / 1e9;
+    System.out.println(
+      String.format(
+        "%s: %d tokens in %.3f s (%.0f tokens/s, %.1f MB/s, %.2fx baseline)",
+        label,
+        tokenCount,
+        seconds,
+        tokenCount / seconds,
+        byteCount / seconds / (1 << 20),
+        (double)baselineTime / elapsedTime
+        )
+      );
+  }
+
+  /**
+    Tokenizes the specified data.
+
+    @param materialized Whether token objects have to be materialized.
+    @return Token count.
+  */
+  private long tokenize(
+    byte[] data,
+    boolean materialized
+    )
+  {
+    PostScriptParser parser = new PostScriptParser(data);
+    long tokenCount = 0;
+    while(parser.moveNext())
+    {
+      if(materialized)
+      {parser.getToken();}
+      else
+      {
+        switch(parser.getTokenType())
+        {
+          case Integer:
+            parser.getIntegerValue();
+            break;
+          case Real:
+            parser.getRealValue();
+            break;
+          default:
+            break;
+        }
+      }
+      tokenCount++;
+    }
+    return tokenCount;
+  }
+
+  /**
+    Tokenizes the specified data through the previous tokenizer.
+
+    @return Token count.
+  */
+  private long tokenizeBaseline(
+    byte[] data
+    )
+  {
+    BaselineTokenizer tokenizer = new BaselineTokenizer(data);
+    long tokenCount = 0;
+    while(tokenizer.moveNext())
+    {
+      tokenizer.getToken();
+      tokenCount++;
+    }
+    return tokenCount;
+  }
+}